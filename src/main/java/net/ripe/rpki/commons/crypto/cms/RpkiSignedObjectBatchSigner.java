@@ -0,0 +1,277 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.cms;
+
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
+import org.apache.commons.lang.Validate;
+
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Signs many ROAs, manifests or other signed objects in parallel, for example when re-issuing all objects of a CA
+ * during a key roll.
+ * <p>
+ * Each {@link Item} is signed by its own task on the executor, so the builders of a batch must not be shared between
+ * items. By default every signed object is parsed again to verify it, like {@link RpkiSignedObjectEncoder#build}
+ * does; {@link #withoutVerification()} skips this and only encodes and signs. Instances are immutable and
+ * thread-safe.
+ * <p>
+ * With {@link #withSigner(AsyncSigner)} the items are signed through that signer instead of their builders' own
+ * signer or provider. All items are encoded first to collect their to-be-signed bytes, which are submitted to the
+ * signer at once with {@link AsyncSigner#signAll}, so an HSM receives the whole batch as a pipeline. Every item is
+ * then encoded again with its signature. The signed attributes only depend on the builder, so the second encoding
+ * signs the same bytes.
+ */
+public final class RpkiSignedObjectBatchSigner {
+
+    private final Executor executor;
+
+    private final boolean verifying;
+
+    private final AsyncSigner signer;
+
+    private RpkiSignedObjectBatchSigner(Executor executor, boolean verifying, AsyncSigner signer) {
+        this.executor = executor;
+        this.verifying = verifying;
+        this.signer = signer;
+    }
+
+    public static RpkiSignedObjectBatchSigner create() {
+        return new RpkiSignedObjectBatchSigner(ForkJoinPool.commonPool(), true, null);
+    }
+
+    public RpkiSignedObjectBatchSigner withExecutor(Executor executor) {
+        Validate.notNull(executor, "executor is required");
+        return new RpkiSignedObjectBatchSigner(executor, verifying, signer);
+    }
+
+    public RpkiSignedObjectBatchSigner withoutVerification() {
+        return new RpkiSignedObjectBatchSigner(executor, false, signer);
+    }
+
+    public RpkiSignedObjectBatchSigner withSigner(AsyncSigner signer) {
+        Validate.notNull(signer, "signer is required");
+        return new RpkiSignedObjectBatchSigner(executor, verifying, signer);
+    }
+
+    public boolean isVerifying() {
+        return verifying;
+    }
+
+    /**
+     * Signs all items and waits until they are done. When signing any item fails the exception of the first failed
+     * item is thrown, after all other items are done.
+     *
+     * @return the signed objects in the order of <code>items</code>.
+     */
+    public List<Result> sign(Collection<Item> items) {
+        Validate.notNull(items, "items are required");
+        List<CompletableFuture<Result>> futures = signer == null ? signEach(items) : signAll(items);
+
+        List<Result> results = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        for (CompletableFuture<Result> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RpkiSignedObjectBuilderException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private List<CompletableFuture<Result>> signEach(Collection<Item> items) {
+        List<CompletableFuture<Result>> futures = new ArrayList<>(items.size());
+        for (Item item : items) {
+            futures.add(CompletableFuture.supplyAsync(() -> sign(item), executor));
+        }
+        return futures;
+    }
+
+    private Result sign(Item item) {
+        long start = System.nanoTime();
+        byte[] encoded = verifying
+                ? item.builder.build(item.privateKey).getEncoded()
+                : item.builder.getEncoded(item.privateKey);
+        return new Result(item.name, encoded, System.nanoTime() - start);
+    }
+
+    private List<CompletableFuture<Result>> signAll(Collection<Item> items) {
+        List<CompletableFuture<ToBeSigned>> prepared = new ArrayList<>(items.size());
+        for (Item item : items) {
+            prepared.add(CompletableFuture.supplyAsync(() -> prepare(item), executor));
+        }
+
+        Map<String, List<ToBeSigned>> byAlgorithm = new LinkedHashMap<>();
+        for (CompletableFuture<ToBeSigned> future : prepared) {
+            try {
+                ToBeSigned toBeSigned = future.join();
+                byAlgorithm.computeIfAbsent(toBeSigned.algorithm, algorithm -> new ArrayList<>()).add(toBeSigned);
+            } catch (CompletionException e) {
+                // Reported with the result of the item
+            }
+        }
+        for (Map.Entry<String, List<ToBeSigned>> entry : byAlgorithm.entrySet()) {
+            List<AsyncSigner.Request> requests = new ArrayList<>(entry.getValue().size());
+            for (ToBeSigned toBeSigned : entry.getValue()) {
+                requests.add(new AsyncSigner.Request(toBeSigned.item.privateKey, toBeSigned.bytes));
+            }
+            List<CompletableFuture<byte[]>> signatures = signer.signAll(entry.getKey(), requests);
+            Validate.isTrue(signatures.size() == requests.size(), "signer must return a signature for every request");
+            for (int i = 0; i < signatures.size(); i++) {
+                entry.getValue().get(i).signature = signatures.get(i);
+            }
+        }
+
+        List<CompletableFuture<Result>> futures = new ArrayList<>(prepared.size());
+        for (CompletableFuture<ToBeSigned> future : prepared) {
+            futures.add(future.thenCompose(toBeSigned -> toBeSigned.signature.thenApplyAsync(signature -> finish(toBeSigned, signature), executor)));
+        }
+        return futures;
+    }
+
+    private ToBeSigned prepare(Item item) {
+        long start = System.nanoTime();
+        RecordingSigner recorder = new RecordingSigner();
+        item.builder.getEncoded(item.privateKey, recorder);
+        Validate.notNull(recorder.toBeSigned, "builder of " + item.name + " did not sign");
+        return new ToBeSigned(item, start, recorder.algorithm, recorder.toBeSigned);
+    }
+
+    private Result finish(ToBeSigned toBeSigned, byte[] signature) {
+        Item item = toBeSigned.item;
+        AsyncSigner replay = (algorithm, privateKey, bytes) -> {
+            CompletableFuture<byte[]> result = new CompletableFuture<>();
+            if (Arrays.equals(bytes, toBeSigned.bytes)) {
+                result.complete(signature);
+            } else {
+                result.completeExceptionally(new IllegalStateException("to-be-signed bytes of " + item.name + " changed between encodings"));
+            }
+            return result;
+        };
+        byte[] encoded = verifying
+                ? item.builder.build(item.privateKey, replay).getEncoded()
+                : item.builder.getEncoded(item.privateKey, replay);
+        return new Result(item.name, encoded, System.nanoTime() - toBeSigned.startNanos);
+    }
+
+    /**
+     * Records the to-be-signed bytes of an encoding, which gets an empty signature.
+     */
+    private static final class RecordingSigner implements AsyncSigner {
+        private String algorithm;
+        private byte[] toBeSigned;
+
+        @Override
+        public CompletableFuture<byte[]> sign(String algorithm, PrivateKey privateKey, byte[] toBeSigned) {
+            this.algorithm = algorithm;
+            this.toBeSigned = toBeSigned;
+            return CompletableFuture.completedFuture(new byte[0]);
+        }
+    }
+
+    private static final class ToBeSigned {
+        private final Item item;
+        private final long startNanos;
+        private final String algorithm;
+        private final byte[] bytes;
+        private CompletableFuture<byte[]> signature;
+
+        private ToBeSigned(Item item, long startNanos, String algorithm, byte[] bytes) {
+            this.item = item;
+            this.startNanos = startNanos;
+            this.algorithm = algorithm;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * An object to sign: a configured builder and the private key of its EE certificate.
+     */
+    public static final class Item {
+        private final String name;
+        private final RpkiSignedObjectEncoder builder;
+        private final PrivateKey privateKey;
+
+        public Item(String name, RpkiSignedObjectEncoder builder, PrivateKey privateKey) {
+            Validate.notNull(builder, "builder is required");
+            Validate.notNull(privateKey, "privateKey is required");
+            this.name = name;
+            this.builder = builder;
+            this.privateKey = privateKey;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * A signed object with the time it took to sign, and verify if enabled.
+     */
+    public static final class Result {
+        private final String name;
+        private final byte[] encoded;
+        private final long signingTimeNanos;
+
+        private Result(String name, byte[] encoded, long signingTimeNanos) {
+            this.name = name;
+            this.encoded = encoded;
+            this.signingTimeNanos = signingTimeNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public byte[] getEncoded() {
+            return encoded;
+        }
+
+        public long getSigningTimeNanos() {
+            return signingTimeNanos;
+        }
+    }
+}
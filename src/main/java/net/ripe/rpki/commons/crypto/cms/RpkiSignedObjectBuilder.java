@@ -29,7 +29,9 @@
  */
 package net.ripe.rpki.commons.crypto.cms;
 
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
+import net.ripe.rpki.commons.crypto.util.ContentSignerFactory;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateUtil;
 import org.apache.commons.lang.Validate;
@@ -49,7 +51,6 @@ import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.DigestCalculatorProvider;
 import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 
 import java.io.IOException;
 import java.security.InvalidAlgorithmParameterException;
@@ -67,9 +68,16 @@ import java.util.Map;
 public abstract class RpkiSignedObjectBuilder {
 
     protected byte[] generateCms(X509Certificate signingCertificate, PrivateKey privateKey, String signatureProvider, ASN1ObjectIdentifier contentTypeOid, byte[] content) {
+        return generateCms(signingCertificate, privateKey, signatureProvider, null, contentTypeOid, content);
+    }
+
+    /**
+     * @param asyncSigner signs instead of the signature provider when not null
+     */
+    protected byte[] generateCms(X509Certificate signingCertificate, PrivateKey privateKey, String signatureProvider, AsyncSigner asyncSigner, ASN1ObjectIdentifier contentTypeOid, byte[] content) {
         byte[] result;
         try {
-            result = doGenerate(signingCertificate, privateKey, signatureProvider, contentTypeOid, content);
+            result = doGenerate(signingCertificate, privateKey, signatureProvider, asyncSigner, contentTypeOid, content);
         } catch (NoSuchAlgorithmException | NoSuchProviderException | CMSException | IOException |
             InvalidAlgorithmParameterException | CertStoreException | CertificateEncodingException | OperatorCreationException e) {
             throw new RpkiSignedObjectBuilderException(e);
@@ -77,20 +85,20 @@ public abstract class RpkiSignedObjectBuilder {
         return result;
     }
 
-    private byte[] doGenerate(X509Certificate signingCertificate, PrivateKey privateKey, String signatureProvider, ASN1ObjectIdentifier contentTypeOid, byte[] content) throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, CertStoreException, CMSException, NoSuchProviderException, IOException, CertificateEncodingException, OperatorCreationException {
+    private byte[] doGenerate(X509Certificate signingCertificate, PrivateKey privateKey, String signatureProvider, AsyncSigner asyncSigner, ASN1ObjectIdentifier contentTypeOid, byte[] content) throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, CertStoreException, CMSException, NoSuchProviderException, IOException, CertificateEncodingException, OperatorCreationException {
         byte[] subjectKeyIdentifier = X509CertificateUtil.getSubjectKeyIdentifier(signingCertificate);
         Validate.notNull(subjectKeyIdentifier, "certificate must contain SubjectKeyIdentifier extension");
 
         RPKISignedDataGenerator generator = new RPKISignedDataGenerator();
-        addSignerInfo(generator, privateKey, signatureProvider, signingCertificate);
+        addSignerInfo(generator, privateKey, signatureProvider, asyncSigner, signingCertificate);
         generator.addCertificates(new JcaCertStore(Collections.singleton(signingCertificate)));
 
         CMSSignedData data = generator.generate(new CMSProcessableByteArray(contentTypeOid, content), true);
         return data.getEncoded();
     }
 
-    private void addSignerInfo(RPKISignedDataGenerator generator, PrivateKey privateKey, String signatureProvider, X509Certificate signingCertificate) throws OperatorCreationException {
-        ContentSigner signer = new JcaContentSignerBuilder(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM).setProvider(signatureProvider).build(privateKey);
+    private void addSignerInfo(RPKISignedDataGenerator generator, PrivateKey privateKey, String signatureProvider, AsyncSigner asyncSigner, X509Certificate signingCertificate) throws OperatorCreationException {
+        ContentSigner signer = ContentSignerFactory.create(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM, signatureProvider, asyncSigner, privateKey);
         DigestCalculatorProvider digestProvider = BouncyCastleUtil.DIGEST_CALCULATOR_PROVIDER;
         SignerInfoGenerator gen = new JcaSignerInfoGeneratorBuilder(digestProvider).setSignedAttributeGenerator(
             new DefaultSignedAttributeTableGenerator(createSignedAttributes(signingCertificate.getNotBefore())) {
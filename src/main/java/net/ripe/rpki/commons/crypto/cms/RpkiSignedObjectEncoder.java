@@ -0,0 +1,62 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.cms;
+
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
+
+import java.security.PrivateKey;
+
+/**
+ * A configured builder of an RPKI signed object, such as a ROA or manifest, that can be signed by
+ * {@link RpkiSignedObjectBatchSigner}.
+ */
+public interface RpkiSignedObjectEncoder {
+
+    /**
+     * Signs the object and parses the result again, which verifies the encoding and the signature.
+     */
+    RpkiSignedObject build(PrivateKey privateKey);
+
+    /**
+     * Signs the object and returns the DER encoded CMS, without parsing it again.
+     */
+    byte[] getEncoded(PrivateKey privateKey);
+
+    /**
+     * Like {@link #build(PrivateKey)}, but signs through the signer instead of the builder's own signer or provider.
+     */
+    RpkiSignedObject build(PrivateKey privateKey, AsyncSigner signer);
+
+    /**
+     * Like {@link #getEncoded(PrivateKey)}, but signs through the signer instead of the builder's own signer or
+     * provider.
+     */
+    byte[] getEncoded(PrivateKey privateKey, AsyncSigner signer);
+}
@@ -30,19 +30,20 @@
 package net.ripe.rpki.commons.crypto.cms;
 
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
-import net.ripe.rpki.commons.crypto.x509cert.AbstractX509CertificateWrapperException;
+import net.ripe.rpki.commons.crypto.util.CryptoPrimitivePool;
+import net.ripe.rpki.commons.crypto.util.SignatureVerificationCache;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
 import net.ripe.rpki.commons.util.UTC;
 import net.ripe.rpki.commons.validation.ValidationResult;
+import org.apache.commons.lang.Validate;
 
 import org.bouncycastle.asn1.*;
 import org.bouncycastle.asn1.cms.Attribute;
 import org.bouncycastle.asn1.cms.CMSAttributes;
 import org.bouncycastle.asn1.cms.Time;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cms.*;
-import org.bouncycastle.cms.jcajce.JcaSignerInfoVerifierBuilder;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.util.StoreException;
 import org.joda.time.DateTime;
@@ -50,8 +51,6 @@ import org.joda.time.DateTime;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Collection;
@@ -66,12 +65,24 @@ public abstract class RpkiSignedObjectParser {
 
     private X509ResourceCertificate certificate;
 
+    private X509CertificateHolder certificateHolder;
+
     protected ASN1ObjectIdentifier contentType;
 
     private DateTime signingTime;
 
     private ValidationResult validationResult;
 
+    private SignatureVerificationCache signatureVerificationCache = SignatureVerificationCache.disabled();
+
+    /**
+     * Skip verifying the CMS signature of objects that were verified successfully before. Disabled by default.
+     */
+    public void setSignatureVerificationCache(SignatureVerificationCache signatureVerificationCache) {
+        Validate.notNull(signatureVerificationCache, "signatureVerificationCache is required");
+        this.signatureVerificationCache = signatureVerificationCache;
+    }
+
     public final void parse(String location, byte[] encoded) {
         parse(ValidationResult.withLocation(location), encoded);
     }
@@ -156,19 +167,22 @@ public abstract class RpkiSignedObjectParser {
     }
 
     private void parseCmsCertificate(CMSSignedDataParser sp) {
-        Collection<? extends Certificate> certificates = extractCertificate(sp);
-
-        if (!validationResult.rejectIfNull(certificates, GET_CERTS_AND_CRLS)) {
+        Collection<X509CertificateHolder> holders = extractCertificateHolders(sp);
+        if (!validationResult.rejectIfNull(holders, GET_CERTS_AND_CRLS)) {
             return;
         }
-        if (!validationResult.rejectIfFalse(certificates.size() == 1, ONLY_ONE_EE_CERT_ALLOWED)) {
+        if (!validationResult.rejectIfFalse(holders.size() == 1, ONLY_ONE_EE_CERT_ALLOWED)) {
             return;
         }
-        if (!validationResult.rejectIfFalse(certificates.iterator().next() instanceof X509Certificate, CERT_IS_X509CERT)) {
+        certificateHolder = holders.iterator().next();
+
+        // Convert the certificate decoded from the CMS once, and use it for both the RFC 6487 checks and the signer id
+        X509Certificate x509Certificate = toX509Certificate(certificateHolder);
+        if (!validationResult.rejectIfNull(x509Certificate, CERT_IS_X509CERT)) {
             return;
         }
 
-        certificate = parseCertificate(certificates.iterator().next());
+        certificate = parseCertificate(x509Certificate);
         if (validationResult.hasFailureForCurrentLocation()) {
             return;
         }
@@ -177,21 +191,25 @@ public abstract class RpkiSignedObjectParser {
         validationResult.rejectIfNull(certificate.getSubjectKeyIdentifier(), CERT_HAS_SKI);
     }
 
-    private X509ResourceCertificate parseCertificate(Certificate certificate) {
+    private X509ResourceCertificate parseCertificate(X509Certificate x509Certificate) {
+        validationResult.pass(CERTIFICATE_PARSED);
+        X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
+        parser.validateX509Certificate(validationResult, x509Certificate);
+        return parser.isSuccess() ? parser.getCertificate() : null;
+    }
+
+    private Collection<X509CertificateHolder> extractCertificateHolders(CMSSignedDataParser sp) {
         try {
-            X509Certificate x509certificate = (X509Certificate) certificate;
-            X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
-            parser.parse(validationResult, x509certificate.getEncoded());
-            return parser.isSuccess() ? parser.getCertificate() : null;
-        } catch (CertificateEncodingException e) {
-            throw new AbstractX509CertificateWrapperException("cannot parse already decoded X509 certificate: " + e, e);
+            return BouncyCastleUtil.extractCertificateHolders(sp);
+        } catch (CMSException | StoreException e) {
+            return null;
         }
     }
 
-    private Collection<? extends Certificate> extractCertificate(CMSSignedDataParser sp) {
+    private X509Certificate toX509Certificate(X509CertificateHolder holder) {
         try {
-            return BouncyCastleUtil.extractCertificates(sp);
-        } catch (CMSException | StoreException | CertificateException e) {
+            return BouncyCastleUtil.holderToCertificate(holder);
+        } catch (CertificateException e) {
             return null;
         }
     }
@@ -291,11 +309,7 @@ public abstract class RpkiSignedObjectParser {
         verifyOptionalSignedAttributes(signer);
         
         SignerId signerId = signer.getSID();
-        try {
-            validationResult.rejectIfFalse(signerId.match(new JcaX509CertificateHolder(certificate)), SIGNER_ID_MATCH);
-        } catch (CertificateEncodingException e) {
-            throw new AbstractX509CertificateWrapperException(e);
-        }
+        validationResult.rejectIfFalse(signerId.match(certificateHolder), SIGNER_ID_MATCH);
 
         return true;
     }
@@ -313,6 +327,11 @@ public abstract class RpkiSignedObjectParser {
     }
 
     private void verifySignature(X509Certificate certificate, SignerInformation signer) {
+        if (signatureVerificationCache.isKnownValid(encoded, certificate.getPublicKey())) {
+            validationResult.pass(SIGNATURE_VERIFICATION);
+            return;
+        }
+
         String errorMessage = null;
         try {
             /*
@@ -321,10 +340,11 @@ public abstract class RpkiSignedObjectParser {
              * time. This happens occasionally and is no ground to reject according to standards:
              * http://tools.ietf.org/html/rfc6488#section-2.1.6.4.3
              */
-            final SignerInformationVerifier verifier = new JcaSignerInfoVerifierBuilder(
-                BouncyCastleUtil.DIGEST_CALCULATOR_PROVIDER).build(certificate.getPublicKey());
+            final SignerInformationVerifier verifier = CryptoPrimitivePool.getDefault().signerInformationVerifier(certificate.getPublicKey());
 
-            validationResult.rejectIfFalse(signer.verify(verifier), SIGNATURE_VERIFICATION);
+            if (validationResult.rejectIfFalse(signer.verify(verifier), SIGNATURE_VERIFICATION)) {
+                signatureVerificationCache.markValid(encoded, certificate.getPublicKey());
+            }
         } catch (OperatorCreationException | CMSException e) {
             errorMessage = String.valueOf(e.getMessage());
         }
@@ -31,6 +31,8 @@ package net.ripe.rpki.commons.crypto.cms.ghostbuster;
 
 import com.google.common.base.Charsets;
 import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectBuilder;
+import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectEncoder;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.validation.ValidationResult;
 
@@ -42,12 +44,14 @@ import java.security.PrivateKey;
  *
  * @see <a href="http://tools.ietf.org/html/draft-ietf-sidr-roa-format-03">ROA format</a>
  */
-public class GhostbustersCmsBuilder extends RpkiSignedObjectBuilder {
+public class GhostbustersCmsBuilder extends RpkiSignedObjectBuilder implements RpkiSignedObjectEncoder {
 
     private X509ResourceCertificate certificate;
     private String vCardPayload;
     private String signatureProvider;
 
+    private AsyncSigner asyncSigner;
+
 
     public GhostbustersCmsBuilder withCertificate(X509ResourceCertificate certificate) {
         this.certificate = certificate;
@@ -64,14 +68,31 @@ public class GhostbustersCmsBuilder extends RpkiSignedObjectBuilder {
         return this;
     }
 
+    public GhostbustersCmsBuilder withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
+    @Override
     public GhostbustersCms build(PrivateKey privateKey) {
+        return build(privateKey, asyncSigner);
+    }
+
+    @Override
+    public GhostbustersCms build(PrivateKey privateKey, AsyncSigner signer) {
         String location = "unknown.gbr";
         GhostbustersCmsParser parser = new GhostbustersCmsParser();
-        parser.parse(ValidationResult.withLocation(location), getEncoded(privateKey));
+        parser.parse(ValidationResult.withLocation(location), getEncoded(privateKey, signer));
         return parser.getGhostbustersCms();
     }
 
+    @Override
     public byte[] getEncoded(PrivateKey privateKey) {
-        return generateCms(certificate.getCertificate(), privateKey, signatureProvider, GhostbustersCms.CONTENT_TYPE, vCardPayload.getBytes(StandardCharsets.UTF_8));
+        return getEncoded(privateKey, asyncSigner);
+    }
+
+    @Override
+    public byte[] getEncoded(PrivateKey privateKey, AsyncSigner signer) {
+        return generateCms(certificate.getCertificate(), privateKey, signatureProvider, signer, GhostbustersCms.CONTENT_TYPE, vCardPayload.getBytes(StandardCharsets.UTF_8));
     }
 }
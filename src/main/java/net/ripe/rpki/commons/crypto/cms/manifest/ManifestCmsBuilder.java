@@ -30,7 +30,9 @@
 package net.ripe.rpki.commons.crypto.cms.manifest;
 
 import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectBuilder;
+import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectEncoder;
 import net.ripe.rpki.commons.crypto.util.Asn1Util;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.validation.ValidationResult;
@@ -49,13 +51,15 @@ import java.security.PrivateKey;
 import java.util.Map;
 import java.util.TreeMap;
 
-public class ManifestCmsBuilder extends RpkiSignedObjectBuilder {
+public class ManifestCmsBuilder extends RpkiSignedObjectBuilder implements RpkiSignedObjectEncoder {
 
     private X509ResourceCertificate certificate;
     private BigInteger number;
     private DateTime thisUpdateTime;
     private DateTime nextUpdateTime;
     private String signatureProvider = X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER;
+
+    private AsyncSigner asyncSigner;
     private Map<String, byte[]> files = new TreeMap<String, byte[]>();
 
 
@@ -91,13 +95,34 @@ public class ManifestCmsBuilder extends RpkiSignedObjectBuilder {
         return this;
     }
 
+    public ManifestCmsBuilder withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
+    @Override
     public ManifestCms build(PrivateKey privateKey) {
+        return build(privateKey, asyncSigner);
+    }
+
+    @Override
+    public ManifestCms build(PrivateKey privateKey, AsyncSigner signer) {
         String location = "unknown.mft";
         ManifestCmsParser parser = new ManifestCmsParser();
-        parser.parse(ValidationResult.withLocation(location), generateCms(certificate.getCertificate(), privateKey, signatureProvider, new ASN1ObjectIdentifier(ManifestCms.CONTENT_TYPE_OID), encodeManifest()));
+        parser.parse(ValidationResult.withLocation(location), getEncoded(privateKey, signer));
         return parser.getManifestCms();
     }
 
+    @Override
+    public byte[] getEncoded(PrivateKey privateKey) {
+        return getEncoded(privateKey, asyncSigner);
+    }
+
+    @Override
+    public byte[] getEncoded(PrivateKey privateKey, AsyncSigner signer) {
+        return generateCms(certificate.getCertificate(), privateKey, signatureProvider, signer, new ASN1ObjectIdentifier(ManifestCms.CONTENT_TYPE_OID), encodeManifest());
+    }
+
     public void addFile(String fileName, byte[] contents) {
         byte[] digestValue = ManifestCms.hashContents(contents);
         files.put(fileName, digestValue);
@@ -0,0 +1,180 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import org.apache.commons.lang.Validate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies the hashes of all entries of a manifest against files on the local file system.
+ * <p>
+ * Files are hashed in parallel in a {@link ForkJoinPool} and are read through a direct buffer per thread, or mapped
+ * into memory when large, so file contents are never loaded on the heap. Digests are reused per thread. Instances are
+ * immutable and thread-safe.
+ */
+public final class ManifestFileVerifier {
+
+    /**
+     * Outcome of verifying a single manifest entry.
+     */
+    public enum Outcome {
+        /** The file exists and its hash matches the manifest entry. */
+        MATCH,
+        /** The file exists but its hash does not match the manifest entry. */
+        MISMATCH,
+        /** The file does not exist, or the entry does not name a file in the directory. */
+        MISSING,
+        /** The file exists but could not be read. */
+        UNREADABLE
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+    private static final long MAXIMUM_MAPPING_SIZE = 64 * 1024 * 1024;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    });
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private final ForkJoinPool pool;
+
+    private ManifestFileVerifier(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public static ManifestFileVerifier create() {
+        return new ManifestFileVerifier(ForkJoinPool.commonPool());
+    }
+
+    public ManifestFileVerifier withPool(ForkJoinPool pool) {
+        Validate.notNull(pool, "pool is required");
+        return new ManifestFileVerifier(pool);
+    }
+
+    /**
+     * Verifies the manifest entries against the files with the same name in <code>directory</code>.
+     *
+     * @return the outcome per manifest entry, sorted by file name.
+     */
+    public Map<String, Outcome> verify(ManifestCms manifest, Path directory) {
+        Validate.notNull(directory, "directory is required");
+        Path normalized = directory.toAbsolutePath().normalize();
+        return verify(manifest, fileName -> {
+            try {
+                Path path = normalized.resolve(fileName).normalize();
+                return normalized.equals(path.getParent()) ? path : null;
+            } catch (InvalidPathException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Verifies the manifest entries against the files returned by <code>paths</code>. A null path is reported as
+     * {@link Outcome#MISSING}.
+     *
+     * @return the outcome per manifest entry, sorted by file name.
+     */
+    public Map<String, Outcome> verify(ManifestCms manifest, Function<String, Path> paths) {
+        Validate.notNull(manifest, "manifest is required");
+        Validate.notNull(paths, "paths is required");
+        Map<String, byte[]> hashes = manifest.getHashes();
+        return pool.submit(() -> hashes.entrySet().parallelStream().collect(Collectors.toMap(
+                Map.Entry::getKey,
+                entry -> verify(paths.apply(entry.getKey()), entry.getValue()),
+                (a, b) -> a,
+                TreeMap::new
+        ))).join();
+    }
+
+    /**
+     * @return true when every entry {@link Outcome#MATCH matches}.
+     */
+    public static boolean allMatch(Map<String, Outcome> outcomes) {
+        return outcomes.values().stream().allMatch(outcome -> outcome == Outcome.MATCH);
+    }
+
+    private static Outcome verify(Path path, byte[] expectedHash) {
+        if (path == null) {
+            return Outcome.MISSING;
+        }
+        try {
+            return MessageDigest.isEqual(expectedHash, hash(path)) ? Outcome.MATCH : Outcome.MISMATCH;
+        } catch (NoSuchFileException e) {
+            return Outcome.MISSING;
+        } catch (IOException e) {
+            return Outcome.UNREADABLE;
+        }
+    }
+
+    static byte[] hash(Path path) throws IOException {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAPPING_THRESHOLD) {
+                for (long position = 0; position < size; position += MAXIMUM_MAPPING_SIZE) {
+                    digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAXIMUM_MAPPING_SIZE, size - position)));
+                }
+            } else {
+                ByteBuffer buffer = BUFFER.get();
+                buffer.clear();
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        return digest.digest();
+    }
+}
@@ -32,8 +32,10 @@ package net.ripe.rpki.commons.crypto.cms.roa;
 import net.ripe.ipresource.Asn;
 import net.ripe.ipresource.IpResourceType;
 import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectBuilder;
+import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectEncoder;
 import net.ripe.rpki.commons.crypto.rfc3779.AddressFamily;
 import net.ripe.rpki.commons.crypto.util.Asn1Util;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import org.apache.commons.lang.Validate;
@@ -52,13 +54,15 @@ import java.util.List;
  *
  * @see <a href="http://tools.ietf.org/html/draft-ietf-sidr-roa-format-03">ROA format</a>
  */
-public class RoaCmsBuilder extends RpkiSignedObjectBuilder {
+public class RoaCmsBuilder extends RpkiSignedObjectBuilder implements RpkiSignedObjectEncoder {
 
     private X509ResourceCertificate certificate;
     private Asn asn;
     private List<RoaPrefix> prefixes;
     private String signatureProvider;
 
+    private AsyncSigner asyncSigner;
+
 
     public RoaCmsBuilder withCertificate(X509ResourceCertificate certificate) {
         this.certificate = certificate;
@@ -81,13 +85,34 @@ public class RoaCmsBuilder extends RpkiSignedObjectBuilder {
         return this;
     }
 
+    public RoaCmsBuilder withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
+    @Override
     public RoaCms build(PrivateKey privateKey) {
+        return build(privateKey, asyncSigner);
+    }
+
+    @Override
+    public RoaCms build(PrivateKey privateKey, AsyncSigner signer) {
         String location = "unknown.roa";
         RoaCmsParser parser = new RoaCmsParser();
-        parser.parse(ValidationResult.withLocation(location), generateCms(certificate.getCertificate(), privateKey, signatureProvider, RoaCms.CONTENT_TYPE, encodeRouteOriginAttestation(asn, prefixes)));
+        parser.parse(ValidationResult.withLocation(location), getEncoded(privateKey, signer));
         return parser.getRoaCms();
     }
 
+    @Override
+    public byte[] getEncoded(PrivateKey privateKey) {
+        return getEncoded(privateKey, asyncSigner);
+    }
+
+    @Override
+    public byte[] getEncoded(PrivateKey privateKey, AsyncSigner signer) {
+        return generateCms(certificate.getCertificate(), privateKey, signatureProvider, signer, RoaCms.CONTENT_TYPE, encodeRouteOriginAttestation(asn, prefixes));
+    }
+
     /**
      * <pre>
      * ROAIPAddress ::= SEQUENCE {
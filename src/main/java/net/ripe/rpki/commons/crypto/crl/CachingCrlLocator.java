@@ -0,0 +1,274 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.crl;
+
+import net.ripe.rpki.commons.crypto.x509cert.AbstractX509CertificateWrapper;
+import net.ripe.rpki.commons.validation.ValidationCheck;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
+import org.apache.commons.lang.Validate;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link CrlLocator} decorator that remembers the CRL returned by its delegate, together with the checks the delegate
+ * recorded while locating and validating it, per CRL location and issuing key. A cached CRL is returned and its checks
+ * are added to the validation result again without calling the delegate.
+ * <p>
+ * The outcome of validating a CRL depends on the issuer certificate and on the validation time. Only CRLs located
+ * without failures or warnings are cached, and the cached outcome is only used for the same issuer certificate and
+ * while the validation time of the context is between the this update and next update time of the CRL. Within that
+ * window the stale period and strict validity options do not change the outcome.
+ * <p>
+ * Entries are dropped once the next update time of the CRL is before the validation time of the context, and when a
+ * CRL with a higher CRL number is {@link #update(URI, X509Crl) offered} for the same location and issuer. The cache is
+ * bounded, least recently used entries are evicted first. Instances are thread-safe.
+ */
+public class CachingCrlLocator implements CrlLocator {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final CrlLocator delegate;
+
+    private final Map<Key, CachedCrl> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingCrlLocator(CrlLocator delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CachingCrlLocator(CrlLocator delegate, final int maximumSize) {
+        Validate.notNull(delegate, "delegate is required");
+        Validate.isTrue(maximumSize > 0, "maximumSize must be positive");
+        this.delegate = delegate;
+        this.entries = new LinkedHashMap<Key, CachedCrl>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedCrl> eldest) {
+                if (size() > maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public X509Crl getCrl(URI uri, CertificateRepositoryObjectValidationContext context, ValidationResult result) {
+        AbstractX509CertificateWrapper issuerCertificate = context != null && context.getUntypedCertificate() instanceof AbstractX509CertificateWrapper
+                ? (AbstractX509CertificateWrapper) context.getUntypedCertificate()
+                : null;
+        byte[] issuerKeyIdentifier = issuerCertificate == null ? null : issuerCertificate.getSubjectKeyIdentifier();
+        if (uri == null || issuerKeyIdentifier == null) {
+            return delegate.getCrl(uri, context, result);
+        }
+
+        Key key = new Key(uri, issuerKeyIdentifier);
+        X509Certificate issuer = issuerCertificate.getCertificate();
+        long now = context.getOptions().getValidationTimeMillis();
+        CachedCrl cached = get(key, now);
+        if (cached != null && cached.isCurrent(issuer, now)) {
+            hits.increment();
+            cached.addChecksTo(result);
+            return cached.crl;
+        }
+        misses.increment();
+
+        ValidationResult outcome = ValidationResult.withLocation(result.getCurrentLocation());
+        X509Crl crl = delegate.getCrl(uri, context, outcome);
+        result.addAll(outcome);
+        if (crl != null && outcome.hasNoFailuresOrWarnings()) {
+            CachedCrl located = new CachedCrl(crl, issuer, outcome);
+            if (located.isCurrent(issuer, now)) {
+                put(key, located);
+            }
+        }
+        return crl;
+    }
+
+    /**
+     * Drops the cached CRL for the location and the issuer of <code>crl</code> when <code>crl</code> has a higher
+     * CRL number, so the new CRL is located and validated on the next lookup.
+     *
+     * @return true when a cached CRL was dropped.
+     */
+    public boolean update(URI uri, X509Crl crl) {
+        byte[] issuerKeyIdentifier = crl.getAuthorityKeyIdentifier();
+        if (issuerKeyIdentifier == null) {
+            return false;
+        }
+        Key key = new Key(uri, issuerKeyIdentifier);
+        synchronized (entries) {
+            CachedCrl cached = entries.get(key);
+            if (cached != null && cached.number.compareTo(numberOf(crl)) < 0) {
+                entries.remove(key);
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries dropped because the cache was full, a CRL expired or a newer CRL was offered.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private CachedCrl get(Key key, long now) {
+        synchronized (entries) {
+            CachedCrl cached = entries.get(key);
+            if (cached != null && cached.nextUpdate <= now) {
+                entries.remove(key);
+                evictions.increment();
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void put(Key key, CachedCrl crl) {
+        synchronized (entries) {
+            CachedCrl existing = entries.get(key);
+            if (existing == null || existing.number.compareTo(crl.number) <= 0) {
+                entries.put(key, crl);
+            }
+        }
+    }
+
+    private static BigInteger numberOf(X509Crl crl) {
+        BigInteger number = crl.getNumber();
+        return number == null ? BigInteger.valueOf(-1) : number;
+    }
+
+    private static final class CachedCrl {
+        private final X509Crl crl;
+        private final BigInteger number;
+        private final long thisUpdate;
+        private final long nextUpdate;
+        private final X509Certificate issuer;
+        private final ValidationLocation callerLocation;
+        private final Map<ValidationLocation, List<ValidationCheck>> checks = new LinkedHashMap<>();
+
+        private CachedCrl(X509Crl crl, X509Certificate issuer, ValidationResult outcome) {
+            this.crl = crl;
+            this.number = numberOf(crl);
+            this.thisUpdate = crl.getThisUpdateTime().getMillis();
+            this.nextUpdate = crl.getNextUpdateTime().getMillis();
+            this.issuer = issuer;
+            this.callerLocation = outcome.getCurrentLocation();
+            for (ValidationLocation location : outcome.getValidatedLocations()) {
+                checks.put(location, new ArrayList<>(outcome.getAllValidationChecksForLocation(location)));
+            }
+        }
+
+        private boolean isCurrent(X509Certificate issuer, long now) {
+            return thisUpdate <= now && now < nextUpdate && this.issuer.equals(issuer);
+        }
+
+        /**
+         * Adds the (passed) checks again. Checks of the location of the caller that located the CRL are added for
+         * the current location of <code>result</code>.
+         */
+        private void addChecksTo(ValidationResult result) {
+            ValidationLocation current = result.getCurrentLocation();
+            for (Map.Entry<ValidationLocation, List<ValidationCheck>> entry : checks.entrySet()) {
+                result.setLocation(entry.getKey().equals(callerLocation) ? current : entry.getKey());
+                for (ValidationCheck check : entry.getValue()) {
+                    result.pass(check.getKey(), check.getParams());
+                }
+            }
+            result.setLocation(current);
+        }
+    }
+
+    private static final class Key {
+        private final URI uri;
+        private final ByteBuffer issuerKeyIdentifier;
+
+        private Key(URI uri, byte[] issuerKeyIdentifier) {
+            this.uri = uri;
+            this.issuerKeyIdentifier = ByteBuffer.wrap(issuerKeyIdentifier);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return uri.equals(that.uri) && issuerKeyIdentifier.equals(that.issuerKeyIdentifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, issuerKeyIdentifier);
+        }
+    }
+}
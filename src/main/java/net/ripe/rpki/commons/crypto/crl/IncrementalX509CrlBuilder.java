@@ -0,0 +1,290 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.crl;
+
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
+import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
+import net.ripe.rpki.commons.crypto.util.ContentSignerFactory;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
+import net.ripe.rpki.commons.util.UTC;
+import org.apache.commons.lang.Validate;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.joda.time.DateTime;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Builds CRLs for a CA with many revoked certificates, re-using the DER encoding of the revoked certificate entries.
+ * <p>
+ * Unlike {@link X509CrlBuilder}, which encodes every entry again for each CRL, entries are encoded once when they are
+ * added, or copied from the encoding of a previous CRL with {@link #withEntriesOf(X509Crl)}. Issuing the next CRL only
+ * encodes the CRL fields, concatenates the cached entries and signs. The output is the same as that of
+ * {@link X509CrlBuilder} for the same fields and entries.
+ */
+public class IncrementalX509CrlBuilder {
+
+    private static final int TAG_SEQUENCE = 0x30;
+
+    private static final ASN1Integer CRL_VERSION = new ASN1Integer(X509CrlBuilder.CRL_VERSION_2 - 1);
+
+    private X500Principal issuerDN;
+    private DateTime thisUpdateTime;
+    private DateTime nextUpdateTime;
+    private AuthorityKeyIdentifier authorityKeyIdentifier;
+    private CRLNumber crlNumber;
+    private String signatureProvider = X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER;
+
+    private AsyncSigner asyncSigner;
+
+    private final SortedMap<BigInteger, byte[]> entries = new TreeMap<>();
+
+    // Concatenated encoding of all entries, null when the entries changed since the last CRL was built.
+    private byte[] encodedEntries;
+
+    public IncrementalX509CrlBuilder withSignatureProvider(String signatureProvider) {
+        this.signatureProvider = signatureProvider;
+        return this;
+    }
+
+    public IncrementalX509CrlBuilder withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
+    public IncrementalX509CrlBuilder withIssuerDN(X500Principal issuerDN) {
+        this.issuerDN = issuerDN;
+        return this;
+    }
+
+    public IncrementalX509CrlBuilder withThisUpdateTime(DateTime instant) {
+        this.thisUpdateTime = instant;
+        return this;
+    }
+
+    public IncrementalX509CrlBuilder withNextUpdateTime(DateTime instant) {
+        this.nextUpdateTime = instant;
+        return this;
+    }
+
+    public IncrementalX509CrlBuilder withNumber(BigInteger number) {
+        this.crlNumber = new CRLNumber(number);
+        return this;
+    }
+
+    public IncrementalX509CrlBuilder withAuthorityKeyIdentifier(PublicKey authorityKey) {
+        this.authorityKeyIdentifier = BouncyCastleUtil.createAuthorityKeyIdentifier(authorityKey);
+        return this;
+    }
+
+    /**
+     * Adds the revoked certificate entries of <code>crl</code>, copying their encoding instead of decoding them. No
+     * entries are added when any of them is a duplicate.
+     */
+    public IncrementalX509CrlBuilder withEntriesOf(X509Crl crl) {
+        SortedMap<BigInteger, byte[]> copied = new TreeMap<>();
+        crl.getIndex().forEachEncodedEntry((serial, encoded) -> {
+            Validate.isTrue(!entries.containsKey(serial), "duplicate CRL entry");
+            copied.put(serial, encoded);
+        });
+        entries.putAll(copied);
+        encodedEntries = null;
+        return this;
+    }
+
+    public IncrementalX509CrlBuilder addEntry(BigInteger serial, DateTime revocationTime) {
+        Validate.isTrue(!entries.containsKey(serial), "duplicate CRL entry");
+        X509Crl.Entry entry = new X509Crl.Entry(serial, revocationTime);
+        ASN1Encodable[] fields = {new ASN1Integer(serial), new Time(entry.getRevocationDateTime().toDate())};
+        try {
+            entries.put(serial, new DERSequence(fields).getEncoded(ASN1Encoding.DER));
+        } catch (IOException e) {
+            throw new X509CrlBuilderException(e);
+        }
+        encodedEntries = null;
+        return this;
+    }
+
+    /**
+     * @return true when the serial number had an entry.
+     */
+    public boolean removeEntry(BigInteger serial) {
+        boolean removed = entries.remove(serial) != null;
+        if (removed) {
+            encodedEntries = null;
+        }
+        return removed;
+    }
+
+    public X509Crl.Entry getRevokedCertificate(BigInteger serial) {
+        byte[] encoded = entries.get(serial);
+        if (encoded == null) {
+            return null;
+        }
+        Time revocationTime = Time.getInstance(ASN1Sequence.getInstance(encoded).getObjectAt(1));
+        return new X509Crl.Entry(serial, UTC.dateTime(revocationTime.getDate()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public IncrementalX509CrlBuilder clearEntries() {
+        entries.clear();
+        encodedEntries = null;
+        return this;
+    }
+
+    public X509Crl build(PrivateKey key) {
+        validateCrlFields();
+        try {
+            ContentSigner signer = ContentSignerFactory.create(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM, signatureProvider, asyncSigner, key);
+            byte[] signatureAlgorithm = signer.getAlgorithmIdentifier().getEncoded(ASN1Encoding.DER);
+            byte[] tbsCertList = encodeTbsCertList(signatureAlgorithm);
+
+            OutputStream signerOutput = signer.getOutputStream();
+            signerOutput.write(tbsCertList);
+            signerOutput.close();
+            byte[] signature = new DERBitString(signer.getSignature()).getEncoded(ASN1Encoding.DER);
+
+            return new X509Crl(sequence(tbsCertList, signatureAlgorithm, signature));
+        } catch (OperatorCreationException | IOException e) {
+            throw new X509CrlBuilderException(e);
+        }
+    }
+
+    /*
+     * Streams the entries, in ascending serial number order, against the revoked serial numbers of the CRL. Same
+     * semantics as X509CrlBuilder: the CRL may contain additional entries.
+     */
+    public boolean isSatisfiedByEntries(X509Crl crl) {
+        return crl.getIndex().containsAll(entries.keySet());
+    }
+
+    private void validateCrlFields() {
+        Validate.notNull(issuerDN, "issuerDN is null");
+        Validate.notNull(thisUpdateTime, "thisUpdateTime is null");
+        Validate.notNull(nextUpdateTime, "nextUpdateTime is null");
+        Validate.notNull(crlNumber, "crlNumber is null");
+        Validate.notNull(authorityKeyIdentifier, "authorityKeyIdentifier is null");
+    }
+
+    /**
+     * <pre>
+     * TBSCertList ::= SEQUENCE {
+     *     version              Version,
+     *     signature            AlgorithmIdentifier,
+     *     issuer               Name,
+     *     thisUpdate           Time,
+     *     nextUpdate           Time,
+     *     revokedCertificates  SEQUENCE OF SEQUENCE { ... } OPTIONAL,
+     *     crlExtensions    [0] EXPLICIT Extensions }
+     * </pre>
+     */
+    private byte[] encodeTbsCertList(byte[] signatureAlgorithm) throws IOException {
+        ExtensionsGenerator extensions = new ExtensionsGenerator();
+        extensions.addExtension(Extension.authorityKeyIdentifier, false, authorityKeyIdentifier);
+        extensions.addExtension(Extension.cRLNumber, false, crlNumber);
+
+        byte[] revokedCertificates = entries.isEmpty() ? new byte[0] : sequence(getEncodedEntries());
+        return sequence(
+                CRL_VERSION.getEncoded(ASN1Encoding.DER),
+                signatureAlgorithm,
+                X500Name.getInstance(issuerDN.getEncoded()).getEncoded(ASN1Encoding.DER),
+                new Time(thisUpdateTime.toDate()).getEncoded(ASN1Encoding.DER),
+                new Time(nextUpdateTime.toDate()).getEncoded(ASN1Encoding.DER),
+                revokedCertificates,
+                new DERTaggedObject(true, 0, extensions.generate()).getEncoded(ASN1Encoding.DER)
+        );
+    }
+
+    private byte[] getEncodedEntries() {
+        if (encodedEntries == null) {
+            int length = 0;
+            for (byte[] entry : entries.values()) {
+                length += entry.length;
+            }
+            byte[] result = new byte[length];
+            int position = 0;
+            for (byte[] entry : entries.values()) {
+                System.arraycopy(entry, 0, result, position, entry.length);
+                position += entry.length;
+            }
+            encodedEntries = result;
+        }
+        return encodedEntries;
+    }
+
+    /**
+     * @return the DER encoding of a SEQUENCE with the already encoded elements as content.
+     */
+    private static byte[] sequence(byte[]... elements) {
+        int length = 0;
+        for (byte[] element : elements) {
+            length += element.length;
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length + 6);
+        result.write(TAG_SEQUENCE);
+        if (length < 0x80) {
+            result.write(length);
+        } else {
+            int lengthOctets = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            result.write(0x80 | lengthOctets);
+            for (int i = lengthOctets - 1; i >= 0; i--) {
+                result.write(length >>> (8 * i));
+            }
+        }
+        for (byte[] element : elements) {
+            result.write(element, 0, element.length);
+        }
+        return result.toByteArray();
+    }
+}
@@ -30,6 +30,7 @@
 package net.ripe.rpki.commons.crypto.crl;
 
 import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.util.CryptoPrimitivePool;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateUtil;
 import net.ripe.rpki.commons.util.EqualsSupport;
 import net.ripe.rpki.commons.util.UTC;
@@ -44,25 +45,19 @@ import org.bouncycastle.x509.extension.X509ExtensionUtil;
 import org.joda.time.DateTime;
 
 import javax.security.auth.x500.X500Principal;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.net.URI;
 import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.cert.CRLException;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.security.cert.X509CRLEntry;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -76,6 +71,8 @@ public class X509Crl implements CertificateRepositoryObject {
 
     private transient X509CRL crl;
 
+    private transient volatile X509CrlIndex index;
+
     public X509Crl(byte[] encoded) { //NOPMD - ArrayIsStoredDirectly
         Validate.notNull(encoded);
         this.encoded = encoded;
@@ -104,6 +101,18 @@ public class X509Crl implements CertificateRepositoryObject {
         return crl;
     }
 
+    /**
+     * @return the index over the revoked certificates, scanned from the encoding on first use
+     */
+    public X509CrlIndex getIndex() {
+        X509CrlIndex result = index;
+        if (result == null) {
+            result = X509CrlIndex.parse(encoded);
+            index = result;
+        }
+        return result;
+    }
+
     public static X509Crl parseDerEncoded(byte[] encoded, ValidationResult validationResult) {
         try {
             X509Crl crl = new X509Crl(makeX509CRLFromEncoded(encoded));
@@ -120,14 +129,9 @@ public class X509Crl implements CertificateRepositoryObject {
             return null;
         }
         try {
-            try (final ByteArrayInputStream in = new ByteArrayInputStream(encoded)) {
-                final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-                return (X509CRL) factory.generateCRL(in);
-            } catch (final CertificateException | CRLException e) {
-                throw new IllegalArgumentException(e);
-            }
-        } catch (final IOException e) {
-            throw new RuntimeException("Error managing CRL I/O stream", e);
+            return CryptoPrimitivePool.getDefault().generateCrl(encoded);
+        } catch (final CRLException e) {
+            throw new IllegalArgumentException(e);
         }
     }
 
@@ -189,7 +193,14 @@ public class X509Crl implements CertificateRepositoryObject {
 
     @Override
     public boolean isPastValidityTime() {
-        return getNextUpdateTime().isBeforeNow();
+        return isPastValidityTime(ValidationOptions.strictValidation());
+    }
+
+    /**
+     * @return true when the next update time is before the validation time of the options.
+     */
+    public boolean isPastValidityTime(ValidationOptions options) {
+        return getNextUpdateTime().getMillis() < options.getValidationTimeMillis();
     }
 
     @Override
@@ -207,18 +218,14 @@ public class X509Crl implements CertificateRepositoryObject {
 
     public SortedSet<Entry> getRevokedCertificates() {
         SortedSet<Entry> result = new TreeSet<Entry>();
-        Set<? extends X509CRLEntry> entries = getCrl().getRevokedCertificates();
-        if (entries != null) {
-            for (X509CRLEntry entry : entries) {
-                result.add(new Entry(entry));
-            }
+        for (Entry entry : getIndex().entries()) {
+            result.add(entry);
         }
         return result;
     }
 
     public Entry getRevokedCertificate(BigInteger serialNumber) {
-        X509CRLEntry entry = getCrl().getRevokedCertificate(serialNumber);
-        return entry == null ? null : new Entry(entry);
+        return getIndex().getRevokedCertificate(serialNumber);
     }
 
     public BigInteger getNumber() {
@@ -252,20 +259,19 @@ public class X509Crl implements CertificateRepositoryObject {
 
     public void verify(PublicKey publicKey) throws SignatureException {
         try {
-            getCrl().verify(publicKey, DEFAULT_SIGNATURE_PROVIDER);
+            CryptoPrimitivePool.getDefault().verify(getCrl(), publicKey);
         } catch (InvalidKeyException e) {
             throw new IllegalArgumentException(e);
-        } catch (CRLException e) {
-            throw new IllegalArgumentException(e);
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalArgumentException(e);
-        } catch (NoSuchProviderException e) {
-            throw new IllegalArgumentException(e);
         }
     }
 
     public boolean isRevoked(X509Certificate certificate) {
-        return getCrl().isRevoked(certificate);
+        // Serial numbers are only unique per issuer, so only certificates of this CRL's issuer can be revoked by it
+        return certificate.getIssuerX500Principal().equals(getIssuer()) && isRevoked(certificate.getSerialNumber());
+    }
+
+    public boolean isRevoked(BigInteger serialNumber) {
+        return getIndex().isRevoked(serialNumber);
     }
 
     public static class X509CRLEntryComparator implements Comparator<X509CRLEntry> {
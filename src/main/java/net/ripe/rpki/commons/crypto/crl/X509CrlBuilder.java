@@ -29,8 +29,9 @@
  */
 package net.ripe.rpki.commons.crypto.crl;
 
-import net.ripe.rpki.commons.crypto.crl.X509Crl.Entry;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
+import net.ripe.rpki.commons.crypto.util.ContentSignerFactory;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
 import org.apache.commons.lang.Validate;
 import org.bouncycastle.asn1.x500.X500Name;
@@ -41,7 +42,6 @@ import org.bouncycastle.cert.CertIOException;
 import org.bouncycastle.cert.X509v2CRLBuilder;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.joda.time.DateTime;
 
 import javax.security.auth.x500.X500Principal;
@@ -50,7 +50,6 @@ import java.math.BigInteger;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.SortedMap;
-import java.util.SortedSet;
 import java.util.TreeMap;
 
 public class X509CrlBuilder {
@@ -64,6 +63,8 @@ public class X509CrlBuilder {
     private CRLNumber crlNumber;
     private String signatureProvider = X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER;
 
+    private AsyncSigner asyncSigner;
+
     private SortedMap<BigInteger, X509Crl.Entry> entries = new TreeMap<BigInteger, X509Crl.Entry>();
 
 
@@ -72,6 +73,11 @@ public class X509CrlBuilder {
         return this;
     }
 
+    public X509CrlBuilder withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
     public X509CrlBuilder withIssuerDN(X500Principal issuerDN) {
         this.issuerDN = issuerDN;
         return this;
@@ -124,7 +130,7 @@ public class X509CrlBuilder {
         validateCrlFields();
         try {
             X509v2CRLBuilder generator = createCrlGenerator();
-            ContentSigner signer = new JcaContentSignerBuilder(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM).setProvider(signatureProvider).build(key);
+            ContentSigner signer = ContentSignerFactory.create(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM, signatureProvider, asyncSigner, key);
             return new X509Crl(generator.build(signer).getEncoded());
         } catch (OperatorCreationException e) {
             throw new X509CrlBuilderException(e);
@@ -159,7 +165,6 @@ public class X509CrlBuilder {
      * unnecessary churn.
      */
     public boolean isSatisfiedByEntries(X509Crl crl) {
-        SortedSet<Entry> crlEntries = crl.getRevokedCertificates();
-        return crlEntries.containsAll(entries.values());
+        return crl.getIndex().containsAll(entries.keySet());
     }
 }
@@ -0,0 +1,399 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.crl;
+
+import net.ripe.rpki.commons.util.UTC;
+import org.apache.commons.lang.Validate;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.x509.Time;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Compact index over the revoked certificates of a DER encoded CRL.
+ * <p>
+ * The encoding is scanned once and only the serial numbers and the offsets of their entries are kept, in sorted
+ * primitive arrays. Serial numbers in the range [0, 2^63) are stored as <code>long</code> values; other serial
+ * numbers fall back to <code>BigInteger</code>. Revocation queries are answered by binary search without allocating,
+ * revocation dates are decoded only when entries are requested.
+ * <p>
+ * Like the CRLs used in the RPKI, the index assumes a direct CRL: certificate issuer entry extensions are ignored.
+ */
+public final class X509CrlIndex {
+
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int TAG_UTC_TIME = 0x17;
+    private static final int TAG_GENERALIZED_TIME = 0x18;
+
+    private static final X509CrlIndex EMPTY = new X509CrlIndex(new byte[0], new long[0], new int[0], new BigInteger[0], new int[0]);
+
+    private final byte[] encoded;
+
+    private final long[] serials;
+    private final int[] offsets;
+
+    private final BigInteger[] largeSerials;
+    private final int[] largeOffsets;
+    private final int negativeCount;
+
+    private X509CrlIndex(byte[] encoded, long[] serials, int[] offsets, BigInteger[] largeSerials, int[] largeOffsets) {
+        this.encoded = encoded;
+        this.serials = serials;
+        this.offsets = offsets;
+        this.largeSerials = largeSerials;
+        this.largeOffsets = largeOffsets;
+        int negatives = 0;
+        while (negatives < largeSerials.length && largeSerials[negatives].signum() < 0) {
+            negatives++;
+        }
+        this.negativeCount = negatives;
+    }
+
+    /**
+     * Scans the revoked certificates of a DER encoded CRL. The encoded array is referenced, not copied.
+     *
+     * @throws IllegalArgumentException when the encoding is not a well formed CRL
+     */
+    public static X509CrlIndex parse(byte[] encoded) {
+        Validate.notNull(encoded, "encoded is required");
+        return new Scanner(encoded).scan();
+    }
+
+    public static X509CrlIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return serials.length + largeSerials.length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean isRevoked(long serialNumber) {
+        return serialNumber >= 0 ? Arrays.binarySearch(serials, serialNumber) >= 0 : isRevoked(BigInteger.valueOf(serialNumber));
+    }
+
+    public boolean isRevoked(BigInteger serialNumber) {
+        return offsetOf(serialNumber) >= 0;
+    }
+
+    /**
+     * @return the entry for the serial number, or null when it is not revoked
+     */
+    public X509Crl.Entry getRevokedCertificate(BigInteger serialNumber) {
+        int offset = offsetOf(serialNumber);
+        return offset < 0 ? null : decodeEntry(serialNumber, offset);
+    }
+
+    /**
+     * @return the entries in ascending serial number order, decoded while iterating
+     */
+    public Iterable<X509Crl.Entry> entries() {
+        return EntryIterator::new;
+    }
+
+    /**
+     * Checks that all serial numbers are revoked in a single merge pass over the revoked serial numbers.
+     *
+     * @param ascendingSerialNumbers serial numbers in ascending order
+     */
+    public boolean containsAll(Iterable<BigInteger> ascendingSerialNumbers) {
+        int small = 0;
+        int large = 0;
+        for (BigInteger serialNumber : ascendingSerialNumbers) {
+            if (fitsLong(serialNumber)) {
+                long value = serialNumber.longValue();
+                while (small < serials.length && serials[small] < value) {
+                    small++;
+                }
+                if (small == serials.length || serials[small] != value) {
+                    return false;
+                }
+            } else {
+                while (large < largeSerials.length && largeSerials[large].compareTo(serialNumber) < 0) {
+                    large++;
+                }
+                if (large == largeSerials.length || !largeSerials[large].equals(serialNumber)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes the serial number and the DER encoding of every entry to the consumer, in ascending serial number order.
+     */
+    void forEachEncodedEntry(BiConsumer<BigInteger, byte[]> consumer) {
+        int small = 0;
+        int large = 0;
+        while (small < serials.length || large < largeSerials.length) {
+            if (large < negativeCount || small == serials.length) {
+                consumer.accept(largeSerials[large], encodedEntryAt(largeOffsets[large]));
+                large++;
+            } else {
+                consumer.accept(BigInteger.valueOf(serials[small]), encodedEntryAt(offsets[small]));
+                small++;
+            }
+        }
+    }
+
+    private byte[] encodedEntryAt(int entryOffset) {
+        Scanner scanner = new Scanner(encoded);
+        scanner.position = entryOffset;
+        scanner.skip(TAG_SEQUENCE);
+        return Arrays.copyOfRange(encoded, entryOffset, scanner.position);
+    }
+
+    private int offsetOf(BigInteger serialNumber) {
+        Validate.notNull(serialNumber, "serialNumber is required");
+        if (fitsLong(serialNumber)) {
+            int index = Arrays.binarySearch(serials, serialNumber.longValue());
+            return index < 0 ? -1 : offsets[index];
+        }
+        int index = Arrays.binarySearch(largeSerials, serialNumber);
+        return index < 0 ? -1 : largeOffsets[index];
+    }
+
+    private static boolean fitsLong(BigInteger serialNumber) {
+        return serialNumber.signum() >= 0 && serialNumber.bitLength() < Long.SIZE;
+    }
+
+    private X509Crl.Entry decodeEntry(BigInteger serialNumber, int entryOffset) {
+        Scanner scanner = new Scanner(encoded);
+        scanner.position = entryOffset;
+        scanner.enter(TAG_SEQUENCE);
+        scanner.skip(TAG_INTEGER);
+        int start = scanner.position;
+        int tag = scanner.peekTag();
+        scanner.skip(tag == TAG_GENERALIZED_TIME ? TAG_GENERALIZED_TIME : TAG_UTC_TIME);
+        try {
+            Time time = Time.getInstance(ASN1Primitive.fromByteArray(Arrays.copyOfRange(encoded, start, scanner.position)));
+            return new X509Crl.Entry(serialNumber, UTC.dateTime(time.getDate()));
+        } catch (IOException e) {
+            throw new X509CrlException("cannot decode revocation date of CRL entry", e);
+        }
+    }
+
+    private class EntryIterator implements Iterator<X509Crl.Entry> {
+        private int large;
+        private int small;
+
+        @Override
+        public boolean hasNext() {
+            return small < serials.length || large < largeSerials.length;
+        }
+
+        @Override
+        public X509Crl.Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (large < negativeCount || small == serials.length) {
+                X509Crl.Entry entry = decodeEntry(largeSerials[large], largeOffsets[large]);
+                large++;
+                return entry;
+            }
+            X509Crl.Entry entry = decodeEntry(BigInteger.valueOf(serials[small]), offsets[small]);
+            small++;
+            return entry;
+        }
+    }
+
+    /**
+     * Minimal DER reader that walks the structure of a CertificateList (RFC 5280, section 5.1) up to the revoked
+     * certificates, without materialising any of the other fields.
+     */
+    private static final class Scanner {
+        private final byte[] encoded;
+        private int position;
+        private int contentEnd;
+
+        private Scanner(byte[] encoded) {
+            this.encoded = encoded;
+        }
+
+        private X509CrlIndex scan() {
+            enter(TAG_SEQUENCE);
+            enter(TAG_SEQUENCE);
+            int tbsEnd = contentEnd;
+            if (peekTag() == TAG_INTEGER) {
+                skip(TAG_INTEGER);
+            }
+            skip(TAG_SEQUENCE);
+            skip(TAG_SEQUENCE);
+            skipTime();
+            if (position < tbsEnd && isTime(peekTag())) {
+                skipTime();
+            }
+            if (position >= tbsEnd || peekTag() != TAG_SEQUENCE) {
+                return new X509CrlIndex(encoded, new long[0], new int[0], new BigInteger[0], new int[0]);
+            }
+            enter(TAG_SEQUENCE);
+            int revokedEnd = contentEnd;
+
+            long[] serials = new long[16];
+            int[] offsets = new int[16];
+            int count = 0;
+            BigInteger[] largeSerials = new BigInteger[0];
+            int[] largeOffsets = new int[0];
+            int largeCount = 0;
+            while (position < revokedEnd) {
+                int entryOffset = position;
+                enter(TAG_SEQUENCE);
+                int entryEnd = contentEnd;
+                int serialLength = enter(TAG_INTEGER);
+                Validate.isTrue(serialLength > 0, "empty CRL entry serial number");
+                // Ignore redundant leading zero octets, so padded serial numbers are indexed by their value
+                int magnitudeStart = position;
+                boolean negative = (encoded[position] & 0x80) != 0;
+                while (!negative && magnitudeStart < position + serialLength && encoded[magnitudeStart] == 0) {
+                    magnitudeStart++;
+                }
+                int magnitudeLength = position + serialLength - magnitudeStart;
+                if (!negative && (magnitudeLength < 8 || (magnitudeLength == 8 && (encoded[magnitudeStart] & 0x80) == 0))) {
+                    if (count == serials.length) {
+                        serials = Arrays.copyOf(serials, count * 2);
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    long serial = 0;
+                    for (int i = magnitudeStart; i < position + serialLength; i++) {
+                        serial = (serial << 8) | (encoded[i] & 0xff);
+                    }
+                    serials[count] = serial;
+                    offsets[count] = entryOffset;
+                    count++;
+                } else {
+                    if (largeCount == largeSerials.length) {
+                        largeSerials = Arrays.copyOf(largeSerials, Math.max(16, largeCount * 2));
+                        largeOffsets = Arrays.copyOf(largeOffsets, largeSerials.length);
+                    }
+                    largeSerials[largeCount] = new BigInteger(Arrays.copyOfRange(encoded, position, position + serialLength));
+                    largeOffsets[largeCount] = entryOffset;
+                    largeCount++;
+                }
+                position = entryEnd;
+            }
+            Validate.isTrue(position == revokedEnd, "malformed revoked certificates");
+
+            return sorted(Arrays.copyOf(serials, count), Arrays.copyOf(offsets, count),
+                    Arrays.copyOf(largeSerials, largeCount), Arrays.copyOf(largeOffsets, largeCount));
+        }
+
+        private X509CrlIndex sorted(long[] serials, int[] offsets, BigInteger[] largeSerials, int[] largeOffsets) {
+            long[] sortedSerials = serials;
+            int[] sortedOffsets = offsets;
+            if (!isSorted(serials)) {
+                int[] order = IntStream.range(0, serials.length).boxed()
+                        .sorted((x, y) -> Long.compare(serials[x], serials[y]))
+                        .mapToInt(Integer::intValue).toArray();
+                sortedSerials = new long[order.length];
+                sortedOffsets = new int[order.length];
+                for (int i = 0; i < order.length; i++) {
+                    sortedSerials[i] = serials[order[i]];
+                    sortedOffsets[i] = offsets[order[i]];
+                }
+            }
+            int[] order = IntStream.range(0, largeSerials.length).boxed()
+                    .sorted((x, y) -> largeSerials[x].compareTo(largeSerials[y]))
+                    .mapToInt(Integer::intValue).toArray();
+            BigInteger[] sortedLargeSerials = new BigInteger[order.length];
+            int[] sortedLargeOffsets = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedLargeSerials[i] = largeSerials[order[i]];
+                sortedLargeOffsets[i] = largeOffsets[order[i]];
+            }
+            return new X509CrlIndex(encoded, sortedSerials, sortedOffsets, sortedLargeSerials, sortedLargeOffsets);
+        }
+
+        private static boolean isSorted(long[] values) {
+            for (int i = 1; i < values.length; i++) {
+                if (values[i - 1] > values[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int peekTag() {
+            Validate.isTrue(position < encoded.length, "truncated CRL encoding");
+            return encoded[position] & 0xff;
+        }
+
+        private static boolean isTime(int tag) {
+            return tag == TAG_UTC_TIME || tag == TAG_GENERALIZED_TIME;
+        }
+
+        private void skipTime() {
+            int tag = peekTag();
+            Validate.isTrue(isTime(tag), "expected a time value in CRL");
+            skip(tag);
+        }
+
+        private void skip(int tag) {
+            enter(tag);
+            position = contentEnd;
+        }
+
+        /**
+         * Reads the tag and length of the element at the current position and moves to the start of its content.
+         *
+         * @return the content length
+         */
+        private int enter(int tag) {
+            Validate.isTrue(peekTag() == tag, "unexpected tag in CRL encoding");
+            position++;
+            Validate.isTrue(position < encoded.length, "truncated CRL encoding");
+            int length = encoded[position++] & 0xff;
+            if (length > 0x7f) {
+                int lengthOctets = length & 0x7f;
+                Validate.isTrue(lengthOctets >= 1 && lengthOctets <= 4, "unsupported length in CRL encoding");
+                Validate.isTrue(position + lengthOctets <= encoded.length, "truncated CRL encoding");
+                length = 0;
+                for (int i = 0; i < lengthOctets; i++) {
+                    length = (length << 8) | (encoded[position++] & 0xff);
+                }
+                Validate.isTrue(length >= 0, "unsupported length in CRL encoding");
+            }
+            Validate.isTrue(length <= encoded.length - position, "truncated CRL encoding");
+            contentEnd = position + length;
+            return length;
+        }
+    }
+}
@@ -30,7 +30,6 @@
 package net.ripe.rpki.commons.crypto.crl;
 
 import net.ripe.rpki.commons.crypto.x509cert.AbstractX509CertificateWrapper;
-import net.ripe.rpki.commons.util.UTC;
 import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
@@ -38,7 +37,6 @@ import net.ripe.rpki.commons.validation.ValidationString;
 import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidator;
 import org.joda.time.DateTime;
 
-import java.security.SignatureException;
 
 public class X509CrlValidator implements CertificateRepositoryObjectValidator<X509Crl> {
 
@@ -67,31 +65,26 @@ public class X509CrlValidator implements CertificateRepositoryObjectValidator<X5
     }
 
     private void checkValidityTimes(X509Crl crl) {
-        DateTime now = UTC.dateTime();
+        long now = options.getValidationTimeMillis();
         DateTime nextUpdateTime = crl.getNextUpdateTime();
         DateTime thisUpdateTime = crl.getThisUpdateTime();
+        long nextUpdate = nextUpdateTime.getMillis();
 
-        result.rejectIfTrue(thisUpdateTime.isAfter(now), ValidationString.CRL_THIS_UPDATE_AFTER_NOW, thisUpdateTime.toString());
+        result.rejectIfTrue(thisUpdateTime.getMillis() > now, ValidationString.CRL_THIS_UPDATE_AFTER_NOW, thisUpdateTime.toString());
         if (options.isStrictManifestCRLValidityChecks()) {
-            boolean postGracePeriod = now.isAfter(nextUpdateTime.plus(options.getCrlMaxStalePeriod()));
+            boolean postGracePeriod = now > nextUpdate + options.getCrlMaxStalePeriod().getMillis();
             if (postGracePeriod) {
                 result.error(ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime.toString());
             } else {
-                result.warnIfTrue(now.isAfter(nextUpdateTime), ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime.toString());
+                result.warnIfTrue(now > nextUpdate, ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime.toString());
             }
         } else {
-            result.warnIfTrue(now.isAfter(nextUpdateTime), ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime.toString());
+            result.warnIfTrue(now > nextUpdate, ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, nextUpdateTime.toString());
         }
     }
 
     private void checkSignature(X509Crl crl) {
-        boolean signatureValid;
-        try {
-            crl.verify(parent.getPublicKey());
-            signatureValid = true;
-        } catch (SignatureException e) {
-            signatureValid = false;
-        }
+        boolean signatureValid = options.getSignatureVerificationCache().isValid(crl.getEncoded(), parent.getPublicKey(), crl::verify);
         result.rejectIfFalse(signatureValid, ValidationString.CRL_SIGNATURE_VALID);
     }
 }
@@ -0,0 +1,384 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.rfc3779;
+
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.IpResourceRange;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.ipresource.IpResourceType;
+import org.apache.commons.lang.Validate;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable resource set backed by sorted primitive arrays, one per resource type.
+ * <p>
+ * Each type holds its ranges as consecutive <code>(startHigh, startLow, endHigh, endLow)</code> quadruples of
+ * unsigned 128 bit values. Ranges are kept sorted, non-overlapping and non-adjacent, so containment, intersection,
+ * union and difference are linear merges. Instances never change and share their arrays freely, so they can be
+ * handed between certificates and validation contexts without defensive copies.
+ */
+public final class ImmutableResourceSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final IpResourceType[] TYPES = IpResourceType.values();
+
+    private static final long[] NO_RANGES = new long[0];
+
+    private static final ImmutableResourceSet EMPTY = new ImmutableResourceSet(new long[][]{NO_RANGES, NO_RANGES, NO_RANGES});
+
+    private final long[][] ranges;
+
+    private ImmutableResourceSet(long[][] ranges) {
+        this.ranges = ranges;
+    }
+
+    public static ImmutableResourceSet empty() {
+        return EMPTY;
+    }
+
+    public static ImmutableResourceSet of(IpResource... resources) {
+        return of(Arrays.asList(resources));
+    }
+
+    public static ImmutableResourceSet of(Iterable<? extends IpResource> resources) {
+        Validate.notNull(resources, "resources are required");
+        long[][] unsorted = new long[TYPES.length][];
+        int[] counts = new int[TYPES.length];
+        for (int t = 0; t < TYPES.length; t++) {
+            unsorted[t] = new long[16];
+        }
+        for (IpResource resource : resources) {
+            int t = resource.getType().ordinal();
+            if (counts[t] == unsorted[t].length) {
+                unsorted[t] = Arrays.copyOf(unsorted[t], counts[t] * 2);
+            }
+            BigInteger start = resource.getStart().getValue();
+            BigInteger end = resource.getEnd().getValue();
+            unsorted[t][counts[t]++] = start.shiftRight(Long.SIZE).longValue();
+            unsorted[t][counts[t]++] = start.longValue();
+            unsorted[t][counts[t]++] = end.shiftRight(Long.SIZE).longValue();
+            unsorted[t][counts[t]++] = end.longValue();
+        }
+        long[][] result = new long[TYPES.length][];
+        for (int t = 0; t < TYPES.length; t++) {
+            result[t] = canonical(unsorted[t], counts[t] / 4);
+        }
+        return new ImmutableResourceSet(result);
+    }
+
+    private static long[] canonical(long[] values, int count) {
+        int[] order = IntStream.range(0, count).boxed()
+                .sorted((a, b) -> compare(values[4 * a], values[4 * a + 1], values[4 * b], values[4 * b + 1]))
+                .mapToInt(Integer::intValue).toArray();
+        Appender appender = new Appender(count);
+        for (int i : order) {
+            appender.add(values[4 * i], values[4 * i + 1], values[4 * i + 2], values[4 * i + 3]);
+        }
+        return appender.toArray();
+    }
+
+    public boolean isEmpty() {
+        for (long[] values : ranges) {
+            if (values.length > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean containsType(IpResourceType type) {
+        return ranges[type.ordinal()].length > 0;
+    }
+
+    /**
+     * @return the number of disjoint ranges in this set
+     */
+    public int rangeCount() {
+        int result = 0;
+        for (long[] values : ranges) {
+            result += values.length / 4;
+        }
+        return result;
+    }
+
+    public boolean contains(IpResource resource) {
+        return contains(of(resource));
+    }
+
+    public boolean contains(ImmutableResourceSet that) {
+        for (int t = 0; t < TYPES.length; t++) {
+            if (ranges[t] != that.ranges[t] && !contains(ranges[t], that.ranges[t])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public ImmutableResourceSet union(ImmutableResourceSet that) {
+        if (that.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return that;
+        }
+        long[][] result = new long[TYPES.length][];
+        for (int t = 0; t < TYPES.length; t++) {
+            result[t] = union(ranges[t], that.ranges[t]);
+        }
+        return new ImmutableResourceSet(result);
+    }
+
+    public ImmutableResourceSet intersection(ImmutableResourceSet that) {
+        long[][] result = new long[TYPES.length][];
+        for (int t = 0; t < TYPES.length; t++) {
+            result[t] = intersection(ranges[t], that.ranges[t]);
+        }
+        return new ImmutableResourceSet(result);
+    }
+
+    /**
+     * @return the resources of this set that are not in <code>that</code>, for example the resources a child
+     * certificate claims beyond those of its parent
+     */
+    public ImmutableResourceSet difference(ImmutableResourceSet that) {
+        if (that.isEmpty() || isEmpty()) {
+            return this;
+        }
+        long[][] result = new long[TYPES.length][];
+        for (int t = 0; t < TYPES.length; t++) {
+            result[t] = difference(ranges[t], that.ranges[t]);
+        }
+        return new ImmutableResourceSet(result);
+    }
+
+    /**
+     * @return the resources of this set with one of the given types
+     */
+    public ImmutableResourceSet retainTypes(Set<IpResourceType> types) {
+        long[][] result = new long[TYPES.length][];
+        for (int t = 0; t < TYPES.length; t++) {
+            result[t] = types.contains(TYPES[t]) ? ranges[t] : NO_RANGES;
+        }
+        return new ImmutableResourceSet(result);
+    }
+
+    public IpResourceSet toIpResourceSet() {
+        IpResourceSet result = new IpResourceSet();
+        for (int t = 0; t < TYPES.length; t++) {
+            long[] values = ranges[t];
+            for (int i = 0; i < values.length; i += 4) {
+                result.add(IpResourceRange.assemble(toBigInteger(values[i], values[i + 1]), toBigInteger(values[i + 2], values[i + 3]), TYPES[t]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return Arrays.deepEquals(ranges, ((ImmutableResourceSet) obj).ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(ranges);
+    }
+
+    @Override
+    public String toString() {
+        return toIpResourceSet().toString();
+    }
+
+    private static boolean contains(long[] outer, long[] inner) {
+        int i = 0;
+        for (int j = 0; j < inner.length; j += 4) {
+            while (i < outer.length && compare(outer[i + 2], outer[i + 3], inner[j], inner[j + 1]) < 0) {
+                i += 4;
+            }
+            if (i == outer.length
+                    || compare(outer[i], outer[i + 1], inner[j], inner[j + 1]) > 0
+                    || compare(outer[i + 2], outer[i + 3], inner[j + 2], inner[j + 3]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        Appender appender = new Appender(a.length / 4 + b.length / 4);
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && compare(a[i], a[i + 1], b[j], b[j + 1]) <= 0)) {
+                appender.add(a[i], a[i + 1], a[i + 2], a[i + 3]);
+                i += 4;
+            } else {
+                appender.add(b[j], b[j + 1], b[j + 2], b[j + 3]);
+                j += 4;
+            }
+        }
+        return appender.toArray();
+    }
+
+    private static long[] intersection(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return NO_RANGES;
+        }
+        Appender appender = new Appender(Math.max(a.length, b.length) / 4);
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            boolean startInA = compare(a[i], a[i + 1], b[j], b[j + 1]) >= 0;
+            long startHigh = startInA ? a[i] : b[j];
+            long startLow = startInA ? a[i + 1] : b[j + 1];
+            boolean endInA = compare(a[i + 2], a[i + 3], b[j + 2], b[j + 3]) <= 0;
+            long endHigh = endInA ? a[i + 2] : b[j + 2];
+            long endLow = endInA ? a[i + 3] : b[j + 3];
+            if (compare(startHigh, startLow, endHigh, endLow) <= 0) {
+                appender.add(startHigh, startLow, endHigh, endLow);
+            }
+            if (endInA) {
+                i += 4;
+            } else {
+                j += 4;
+            }
+        }
+        return appender.toArray();
+    }
+
+    private static long[] difference(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return a;
+        }
+        Appender appender = new Appender(a.length / 4 + b.length / 4);
+        int j = 0;
+        for (int i = 0; i < a.length; i += 4) {
+            long currentHigh = a[i];
+            long currentLow = a[i + 1];
+            while (j < b.length && compare(b[j + 2], b[j + 3], currentHigh, currentLow) < 0) {
+                j += 4;
+            }
+            boolean covered = false;
+            while (j < b.length && compare(b[j], b[j + 1], a[i + 2], a[i + 3]) <= 0) {
+                if (compare(b[j], b[j + 1], currentHigh, currentLow) > 0) {
+                    long beforeLow = b[j + 1] - 1;
+                    long beforeHigh = b[j + 1] == 0 ? b[j] - 1 : b[j];
+                    appender.add(currentHigh, currentLow, beforeHigh, beforeLow);
+                }
+                if (compare(b[j + 2], b[j + 3], a[i + 2], a[i + 3]) >= 0) {
+                    covered = true;
+                    break;
+                }
+                currentLow = b[j + 3] + 1;
+                currentHigh = currentLow == 0 ? b[j + 2] + 1 : b[j + 2];
+                j += 4;
+            }
+            if (!covered) {
+                appender.add(currentHigh, currentLow, a[i + 2], a[i + 3]);
+            }
+        }
+        return appender.toArray();
+    }
+
+    private static int compare(long high1, long low1, long high2, long low2) {
+        int result = Long.compareUnsigned(high1, high2);
+        return result != 0 ? result : Long.compareUnsigned(low1, low2);
+    }
+
+    private static BigInteger toBigInteger(long high, long low) {
+        byte[] bytes = new byte[17];
+        for (int i = 0; i < 8; i++) {
+            bytes[1 + i] = (byte) (high >>> (56 - 8 * i));
+            bytes[9 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return new BigInteger(bytes);
+    }
+
+    /**
+     * Collects ranges in ascending start order, merging overlapping and adjacent ranges.
+     */
+    private static final class Appender {
+        private long[] values;
+        private int size;
+
+        private Appender(int expectedRanges) {
+            this.values = new long[Math.max(4, 4 * expectedRanges)];
+        }
+
+        private void add(long startHigh, long startLow, long endHigh, long endLow) {
+            if (size > 0 && touchesLast(startHigh, startLow)) {
+                if (compare(endHigh, endLow, values[size - 2], values[size - 1]) > 0) {
+                    values[size - 2] = endHigh;
+                    values[size - 1] = endLow;
+                }
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = startHigh;
+            values[size++] = startLow;
+            values[size++] = endHigh;
+            values[size++] = endLow;
+        }
+
+        private boolean touchesLast(long startHigh, long startLow) {
+            long lastHigh = values[size - 2];
+            long lastLow = values[size - 1];
+            if (compare(startHigh, startLow, lastHigh, lastLow) <= 0) {
+                return true;
+            }
+            long nextLow = lastLow + 1;
+            long nextHigh = nextLow == 0 ? lastHigh + 1 : lastHigh;
+            return !(nextLow == 0 && nextHigh == 0) && startHigh == nextHigh && startLow == nextLow;
+        }
+
+        private long[] toArray() {
+            return size == 0 ? NO_RANGES : Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.apache.commons.lang.Validate;
+
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service provider interface for signing, for example with keys held by a network HSM where every signature is a
+ * round trip. Implementations may sign asynchronously and pipeline many requests to the provider.
+ * <p>
+ * Pass an implementation to the <code>withSigner</code> method of the certificate, CRL and CMS builders to make them
+ * sign through it, or to {@link net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectBatchSigner#withSigner(AsyncSigner)}
+ * to sign a whole batch of signed objects with {@link #signAll(String, List)}.
+ */
+public interface AsyncSigner {
+
+    /**
+     * Signs the to-be-signed bytes with the private key.
+     *
+     * @param algorithm  JCA signature algorithm name, such as <code>SHA256withRSA</code>
+     * @return a future that completes with the signature, or exceptionally when signing fails.
+     */
+    CompletableFuture<byte[]> sign(String algorithm, PrivateKey privateKey, byte[] toBeSigned);
+
+    /**
+     * Signs many to-be-signed blobs at once. Implementations can submit the whole batch to the provider in one go.
+     * The default submits every request with {@link #sign(String, PrivateKey, byte[])} without waiting for the
+     * previous signature.
+     *
+     * @return a future per request, in the order of <code>requests</code>.
+     */
+    default List<CompletableFuture<byte[]>> signAll(String algorithm, List<Request> requests) {
+        List<CompletableFuture<byte[]>> result = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            result.add(sign(algorithm, request.getPrivateKey(), request.getToBeSigned()));
+        }
+        return result;
+    }
+
+    /**
+     * To-be-signed bytes and the private key to sign them with.
+     */
+    final class Request {
+        private final PrivateKey privateKey;
+        private final byte[] toBeSigned;
+
+        public Request(PrivateKey privateKey, byte[] toBeSigned) {
+            Validate.notNull(privateKey, "privateKey is required");
+            Validate.notNull(toBeSigned, "toBeSigned is required");
+            this.privateKey = privateKey;
+            this.toBeSigned = toBeSigned;
+        }
+
+        public PrivateKey getPrivateKey() {
+            return privateKey;
+        }
+
+        public byte[] getToBeSigned() {
+            return toBeSigned;
+        }
+    }
+}
@@ -59,6 +59,17 @@ public final class CertificateRepositoryObjectFactory {
      * but its contents can not be parsed.
      */
     public static CertificateRepositoryObject createCertificateRepositoryObject(byte[] encoded, ValidationResult validationResult) {
+        return createCertificateRepositoryObject(encoded, validationResult, SignatureVerificationCache.disabled());
+    }
+
+    /**
+     * @param encoded the DER encoded object.
+     * @param signatureVerificationCache used to skip verifying the signature of signed objects that were verified before.
+     *
+     * @return a parsed {@link CertificateRepositoryObject} or {@code null} in case the encoded object has a valid location
+     * but its contents can not be parsed.
+     */
+    public static CertificateRepositoryObject createCertificateRepositoryObject(byte[] encoded, ValidationResult validationResult, SignatureVerificationCache signatureVerificationCache) {
 
         RepositoryObjectType objectType = RepositoryObjectType.parse(validationResult.getCurrentLocation().getName());
 
@@ -66,15 +77,15 @@ public final class CertificateRepositoryObjectFactory {
 
         switch (objectType) {
             case Manifest:
-                return parseManifest(encoded, validationResult);
+                return parseManifest(encoded, validationResult, signatureVerificationCache);
             case Roa:
-                return parseRoa(encoded, validationResult);
+                return parseRoa(encoded, validationResult, signatureVerificationCache);
             case Certificate:
                 return parseX509Certificate(encoded, validationResult);
             case Crl:
                 return parseCrl(encoded, validationResult);
             case Gbr:
-                return parseGbr(encoded, validationResult);
+                return parseGbr(encoded, validationResult, signatureVerificationCache);
             case Unknown:
                 return new UnknownCertificateRepositoryObject(encoded);
             default:
@@ -93,8 +104,9 @@ public final class CertificateRepositoryObjectFactory {
         return cert;
     }
 
-    private static RoaCms parseRoa(byte[] encoded, ValidationResult validationResult) {
+    private static RoaCms parseRoa(byte[] encoded, ValidationResult validationResult, SignatureVerificationCache signatureVerificationCache) {
         final RoaCmsParser parser = new RoaCmsParser();
+        parser.setSignatureVerificationCache(signatureVerificationCache);
         final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
         parser.parse(temp, encoded);
         validationResult.addAll(temp);
@@ -105,8 +117,9 @@ public final class CertificateRepositoryObjectFactory {
         }
     }
 
-    private static ManifestCms parseManifest(byte[] encoded, ValidationResult validationResult) {
+    private static ManifestCms parseManifest(byte[] encoded, ValidationResult validationResult, SignatureVerificationCache signatureVerificationCache) {
         final ManifestCmsParser parser = new ManifestCmsParser();
+        parser.setSignatureVerificationCache(signatureVerificationCache);
         final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
         parser.parse(temp, encoded);
         if (parser.isSuccess()) {
@@ -118,8 +131,9 @@ public final class CertificateRepositoryObjectFactory {
         }
     }
 
-    private static GhostbustersCms parseGbr(byte[] encoded, ValidationResult validationResult) {
+    private static GhostbustersCms parseGbr(byte[] encoded, ValidationResult validationResult, SignatureVerificationCache signatureVerificationCache) {
         final GhostbustersCmsParser parser = new GhostbustersCmsParser();
+        parser.setSignatureVerificationCache(signatureVerificationCache);
         final ValidationResult temp = ValidationResult.withLocation(validationResult.getCurrentLocation());
         parser.parse(temp, encoded);
         if (parser.isSuccess()) {
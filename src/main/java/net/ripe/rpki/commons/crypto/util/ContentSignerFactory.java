@@ -0,0 +1,103 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.DefaultSignatureAlgorithmIdentifierFinder;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.RuntimeOperatorException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.security.PrivateKey;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Creates the {@link ContentSigner}s used by the certificate, CRL, CMS and certificate request builders.
+ * <p>
+ * Signing uses the JCA provider named by the builder's signature provider, unless the builder was given an
+ * {@link AsyncSigner}. Then the builder signs through that signer and waits for its own signature. To pipeline the
+ * signatures of many signed objects, sign them with an
+ * {@link net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectBatchSigner} that has a signer, which submits the whole
+ * batch with {@link AsyncSigner#signAll}.
+ */
+public final class ContentSignerFactory {
+
+    private ContentSignerFactory() {
+    }
+
+    /**
+     * @param signer signs instead of the JCA provider when not null
+     */
+    public static ContentSigner create(String signatureAlgorithm, String signatureProvider, AsyncSigner signer, PrivateKey privateKey) throws OperatorCreationException {
+        if (signer == null) {
+            return new JcaContentSignerBuilder(signatureAlgorithm).setProvider(signatureProvider).build(privateKey);
+        }
+        return new AsyncContentSigner(new DefaultSignatureAlgorithmIdentifierFinder().find(signatureAlgorithm), signatureAlgorithm, signer, privateKey);
+    }
+
+    private static final class AsyncContentSigner implements ContentSigner {
+        private final AlgorithmIdentifier algorithmIdentifier;
+        private final String signatureAlgorithm;
+        private final AsyncSigner signer;
+        private final PrivateKey privateKey;
+        private final ByteArrayOutputStream toBeSigned = new ByteArrayOutputStream();
+
+        private AsyncContentSigner(AlgorithmIdentifier algorithmIdentifier, String signatureAlgorithm, AsyncSigner signer, PrivateKey privateKey) {
+            this.algorithmIdentifier = algorithmIdentifier;
+            this.signatureAlgorithm = signatureAlgorithm;
+            this.signer = signer;
+            this.privateKey = privateKey;
+        }
+
+        @Override
+        public AlgorithmIdentifier getAlgorithmIdentifier() {
+            return algorithmIdentifier;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return toBeSigned;
+        }
+
+        @Override
+        public byte[] getSignature() {
+            try {
+                return signer.sign(signatureAlgorithm, privateKey, toBeSigned.toByteArray()).join();
+            } catch (CompletionException e) {
+                throw new RuntimeOperatorException("exception obtaining signature: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                toBeSigned.reset();
+            }
+        }
+    }
+}
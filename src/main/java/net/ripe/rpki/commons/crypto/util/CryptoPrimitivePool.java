@@ -0,0 +1,259 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.apache.commons.lang.Validate;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.SignerInformationVerifier;
+import org.bouncycastle.cms.jcajce.JcaSignerInfoVerifierBuilder;
+import org.bouncycastle.operator.OperatorCreationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER;
+
+/**
+ * Keeps JCA certificate factories, key factories, signatures and CMS verifier builders per thread, so they are not
+ * looked up through the (synchronized) provider framework for every object.
+ * <p>
+ * The <code>provider</code> is used for certificate and CRL decoding, key decoding and CMS signature verification.
+ * When it is <code>null</code> the JCA provider preference order applies. The <code>signatureProvider</code> is used
+ * to verify certificate and CRL signatures. The parsers and validators use the {@link #getDefault() default pool},
+ * which uses the same providers as before pooling was introduced. Instances are thread-safe.
+ */
+public final class CryptoPrimitivePool {
+
+    private static final String CERTIFICATE_TYPE = "X.509";
+
+    private static final String KEY_ALGORITHM = "RSA";
+
+    private static final byte[] DER_NULL = {0x05, 0x00};
+
+    private static volatile CryptoPrimitivePool defaultPool = new CryptoPrimitivePool(null, DEFAULT_SIGNATURE_PROVIDER);
+
+    private final String provider;
+
+    private final String signatureProvider;
+
+    private final ThreadLocal<Primitives> primitives = ThreadLocal.withInitial(Primitives::new);
+
+    private CryptoPrimitivePool(String provider, String signatureProvider) {
+        this.provider = provider;
+        this.signatureProvider = signatureProvider;
+    }
+
+    public static CryptoPrimitivePool withProviders(String provider, String signatureProvider) {
+        Validate.notNull(signatureProvider, "signatureProvider is required");
+        return new CryptoPrimitivePool(provider, signatureProvider);
+    }
+
+    public static CryptoPrimitivePool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Replaces the pool used by the parsers and validators, for example to use a different JCA provider.
+     */
+    public static void setDefault(CryptoPrimitivePool pool) {
+        Validate.notNull(pool, "pool is required");
+        defaultPool = pool;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public String getSignatureProvider() {
+        return signatureProvider;
+    }
+
+    public X509Certificate generateCertificate(byte[] encoded) throws CertificateException {
+        return (X509Certificate) primitives.get().certificateFactory().generateCertificate(new ByteArrayInputStream(encoded));
+    }
+
+    public X509Certificate generateCertificate(X509CertificateHolder holder) throws CertificateException {
+        try {
+            return generateCertificate(holder.getEncoded());
+        } catch (IOException e) {
+            throw new CertificateException(e);
+        }
+    }
+
+    public X509CRL generateCrl(byte[] encoded) throws CRLException {
+        return (X509CRL) primitives.get().certificateFactory().generateCRL(new ByteArrayInputStream(encoded));
+    }
+
+    public X509CRL generateCrl(X509CRLHolder holder) throws CRLException {
+        try {
+            return generateCrl(holder.getEncoded());
+        } catch (IOException e) {
+            throw new CRLException(e);
+        }
+    }
+
+    public PublicKey generateRsaPublicKey(byte[] encoded) throws InvalidKeySpecException {
+        return primitives.get().keyFactory().generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+    public PrivateKey generateRsaPrivateKey(byte[] encoded) throws InvalidKeySpecException {
+        return primitives.get().keyFactory().generatePrivate(new PKCS8EncodedKeySpec(encoded));
+    }
+
+    /**
+     * Same as {@link X509Certificate#verify(PublicKey, String)} with the signature provider of this pool.
+     */
+    public void verify(X509Certificate certificate, PublicKey publicKey) throws InvalidKeyException, SignatureException {
+        if (hasParameters(certificate.getSigAlgParams())) {
+            try {
+                certificate.verify(publicKey, signatureProvider);
+            } catch (CertificateException | NoSuchAlgorithmException | NoSuchProviderException e) {
+                throw new IllegalArgumentException(e);
+            }
+            return;
+        }
+        try {
+            verify(certificate.getSigAlgName(), publicKey, certificate.getTBSCertificate(), certificate.getSignature());
+        } catch (CertificateException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Same as {@link X509CRL#verify(PublicKey, String)} with the signature provider of this pool.
+     */
+    public void verify(X509CRL crl, PublicKey publicKey) throws InvalidKeyException, SignatureException {
+        if (hasParameters(crl.getSigAlgParams())) {
+            try {
+                crl.verify(publicKey, signatureProvider);
+            } catch (CRLException | NoSuchAlgorithmException | NoSuchProviderException e) {
+                throw new IllegalArgumentException(e);
+            }
+            return;
+        }
+        try {
+            verify(crl.getSigAlgName(), publicKey, crl.getTBSCertList(), crl.getSignature());
+        } catch (CRLException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public SignerInformationVerifier signerInformationVerifier(PublicKey publicKey) throws OperatorCreationException {
+        return primitives.get().signerInfoVerifierBuilder().build(publicKey);
+    }
+
+    private void verify(String algorithm, PublicKey publicKey, byte[] data, byte[] signature) throws InvalidKeyException, SignatureException {
+        Signature verifier = primitives.get().signature(algorithm);
+        verifier.initVerify(publicKey);
+        verifier.update(data);
+        if (!verifier.verify(signature)) {
+            throw new SignatureException("Signature does not match.");
+        }
+    }
+
+    private static boolean hasParameters(byte[] parameters) {
+        return parameters != null && !Arrays.equals(DER_NULL, parameters);
+    }
+
+    /**
+     * The primitives of one thread. JCA engine objects are not thread-safe, so these must never be shared.
+     */
+    private final class Primitives {
+        private CertificateFactory certificateFactory;
+        private KeyFactory keyFactory;
+        private JcaSignerInfoVerifierBuilder signerInfoVerifierBuilder;
+        private final Map<String, Signature> signatures = new HashMap<>();
+
+        CertificateFactory certificateFactory() {
+            if (certificateFactory == null) {
+                try {
+                    certificateFactory = provider == null ? CertificateFactory.getInstance(CERTIFICATE_TYPE) : CertificateFactory.getInstance(CERTIFICATE_TYPE, provider);
+                } catch (CertificateException | NoSuchProviderException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            }
+            return certificateFactory;
+        }
+
+        KeyFactory keyFactory() {
+            if (keyFactory == null) {
+                try {
+                    keyFactory = provider == null ? KeyFactory.getInstance(KEY_ALGORITHM) : KeyFactory.getInstance(KEY_ALGORITHM, provider);
+                } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            }
+            return keyFactory;
+        }
+
+        JcaSignerInfoVerifierBuilder signerInfoVerifierBuilder() {
+            if (signerInfoVerifierBuilder == null) {
+                signerInfoVerifierBuilder = new JcaSignerInfoVerifierBuilder(BouncyCastleUtil.DIGEST_CALCULATOR_PROVIDER);
+                if (provider != null) {
+                    signerInfoVerifierBuilder.setProvider(provider);
+                }
+            }
+            return signerInfoVerifierBuilder;
+        }
+
+        Signature signature(String algorithm) {
+            Signature signature = signatures.get(algorithm);
+            if (signature == null) {
+                try {
+                    signature = Signature.getInstance(algorithm, signatureProvider);
+                } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                signatures.put(algorithm, signature);
+            }
+            return signature;
+        }
+    }
+}
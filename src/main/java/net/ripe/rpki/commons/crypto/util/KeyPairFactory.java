@@ -31,7 +31,6 @@ package net.ripe.rpki.commons.crypto.util;
 
 import java.math.BigInteger;
 import java.security.InvalidAlgorithmParameterException;
-import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
@@ -39,9 +38,7 @@ import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.RSAKeyGenParameterSpec;
-import java.security.spec.X509EncodedKeySpec;
 
 public class KeyPairFactory {
 
@@ -60,6 +57,10 @@ public class KeyPairFactory {
         this.provider = provider;
     }
 
+    public String getProvider() {
+        return provider;
+    }
+
     public KeyPair generate() {
         try {
             final KeyPairGenerator generator = KeyPairGenerator.getInstance(ALGORITHM, provider);
@@ -78,8 +79,8 @@ public class KeyPairFactory {
      */
     public static PublicKey decodePublicKey(byte[] encoded) {
         try {
-            return KeyFactory.getInstance(ALGORITHM).generatePublic(new X509EncodedKeySpec(encoded));
-        } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
+            return CryptoPrimitivePool.getDefault().generateRsaPublicKey(encoded);
+        } catch (InvalidKeySpecException e) {
             throw new KeyPairFactoryException(e);
         }
     }
@@ -93,8 +94,8 @@ public class KeyPairFactory {
      */
     public static PrivateKey decodePrivateKey(byte[] encoded) {
         try {
-            return KeyFactory.getInstance(ALGORITHM).generatePrivate(new PKCS8EncodedKeySpec(encoded));
-        } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
+            return CryptoPrimitivePool.getDefault().generateRsaPrivateKey(encoded);
+        } catch (InvalidKeySpecException e) {
             throw new KeyPairFactoryException(e);
         }
     }
@@ -37,7 +37,6 @@ import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.joda.time.DateTime;
 
 import javax.security.auth.x500.X500Principal;
@@ -189,9 +188,7 @@ public final class KeyStoreUtil {
                 new X500Principal("CN=subject"),
                 keyPair.getPublic());
         try {
-            ContentSigner sigGen = new JcaContentSignerBuilder(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM)
-                    .setProvider(signatureProvider)
-                    .build(keyPair.getPrivate());
+            ContentSigner sigGen = ContentSignerFactory.create(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM, signatureProvider, null, keyPair.getPrivate());
             return new JcaX509CertificateConverter().getCertificate(builder.build(sigGen));
         } catch (OperatorCreationException | CertificateException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,109 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.apache.commons.lang.Validate;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * {@link AsyncSigner} that signs with a JCA provider on an executor, keeping up to a maximum number of signatures in
+ * flight. Each executor thread uses its own {@link Signature}, so with an HSM provider the signatures of a batch are
+ * pipelined over the provider's sessions instead of being made one round trip at a time.
+ * <p>
+ * Submitting blocks while the maximum number of signatures is in flight, to avoid queueing more work than the
+ * provider can handle. Instances are thread-safe.
+ */
+public class PipelinedSigner implements AsyncSigner {
+
+    private final String provider;
+
+    private final Executor executor;
+
+    private final Semaphore inFlight;
+
+    private final ThreadLocal<Map<String, Signature>> signatures = ThreadLocal.withInitial(HashMap::new);
+
+    public PipelinedSigner(String provider, Executor executor, int maximumInFlight) {
+        Validate.notNull(provider, "provider is required");
+        Validate.notNull(executor, "executor is required");
+        Validate.isTrue(maximumInFlight > 0, "maximumInFlight must be positive");
+        this.provider = provider;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maximumInFlight);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> sign(String algorithm, PrivateKey privateKey, byte[] toBeSigned) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CompletableFuture<byte[]> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+        try {
+            CompletableFuture<byte[]> result = CompletableFuture.supplyAsync(() -> doSign(algorithm, privateKey, toBeSigned), executor);
+            result.whenComplete((signature, failure) -> inFlight.release());
+            return result;
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    private byte[] doSign(String algorithm, PrivateKey privateKey, byte[] toBeSigned) {
+        try {
+            Signature signature = signatures.get().get(algorithm);
+            if (signature == null) {
+                signature = Signature.getInstance(algorithm, provider);
+                signatures.get().put(algorithm, signature);
+            }
+            signature.initSign(privateKey);
+            signature.update(toBeSigned);
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.apache.commons.lang.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.security.KeyPair;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Key pair factory that generates key pairs ahead of demand on background threads, so that issuing a one-time-use EE
+ * certificate does not have to wait for RSA key generation.
+ * <p>
+ * Background threads keep the pool filled up to the high-water mark. When the pool is empty {@link #generate()}
+ * waits up to the maximum wait time for a pre-generated key pair and then falls back to generating one on the calling
+ * thread. {@link #close() Close} the factory to stop the background threads. Instances are thread-safe.
+ */
+public class PooledKeyPairFactory extends KeyPairFactory implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledKeyPairFactory.class);
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final KeyPairFactory source;
+
+    private final int highWaterMark;
+
+    private final long maximumWaitMillis;
+
+    private final BlockingQueue<KeyPair> pool;
+
+    private final ExecutorService generators;
+
+    private volatile boolean closed = false;
+
+    private final LongAdder generated = new LongAdder();
+
+    private final LongAdder pooled = new LongAdder();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * Pre-generates up to <code>highWaterMark</code> key pairs with the provider on a single background thread, and
+     * generates key pairs synchronously when the pool is empty.
+     */
+    public PooledKeyPairFactory(String provider, int highWaterMark) {
+        this(new KeyPairFactory(provider), highWaterMark, 1, 0);
+    }
+
+    /**
+     * @param source            generates the key pairs
+     * @param highWaterMark     maximum number of pre-generated key pairs
+     * @param threads           number of background threads generating key pairs
+     * @param maximumWaitMillis time to wait for a pre-generated key pair when the pool is empty, before generating
+     *                          one synchronously
+     */
+    public PooledKeyPairFactory(KeyPairFactory source, int highWaterMark, int threads, long maximumWaitMillis) {
+        super(source.getProvider());
+        Validate.isTrue(highWaterMark > 0, "highWaterMark must be positive");
+        Validate.isTrue(threads > 0, "threads must be positive");
+        Validate.isTrue(maximumWaitMillis >= 0, "maximumWaitMillis must not be negative");
+        this.source = source;
+        this.highWaterMark = highWaterMark;
+        this.maximumWaitMillis = maximumWaitMillis;
+        this.pool = new LinkedBlockingQueue<>(highWaterMark);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.generators = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "key-pair-pool-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            generators.execute(this::refill);
+        }
+    }
+
+    @Override
+    public KeyPair generate() {
+        long start = System.nanoTime();
+        KeyPair keyPair = pool.poll();
+        if (keyPair == null && maximumWaitMillis > 0 && !closed) {
+            try {
+                keyPair = pool.poll(maximumWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KeyPairFactoryException(e);
+            } finally {
+                waitNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        if (keyPair != null) {
+            pooled.increment();
+            return keyPair;
+        }
+        fallbacks.increment();
+        return source.generate();
+    }
+
+    /**
+     * @return a factory that generates key pairs with the provider synchronously, without pooling.
+     */
+    @Override
+    public KeyPairFactory withProvider(String provider) {
+        return source.withProvider(provider);
+    }
+
+    /**
+     * Stops the background threads and discards the pre-generated key pairs. Key pairs are generated synchronously
+     * afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        generators.shutdownNow();
+        pool.clear();
+    }
+
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return the number of pre-generated key pairs that are currently available.
+     */
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    /**
+     * @return the number of key pairs generated by the background threads.
+     */
+    public long getGeneratedCount() {
+        return generated.sum();
+    }
+
+    /**
+     * @return the number of key pairs that were taken from the pool.
+     */
+    public long getPooledCount() {
+        return pooled.sum();
+    }
+
+    /**
+     * @return the number of key pairs that were generated synchronously because the pool was empty.
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * @return the total time spent waiting for pre-generated key pairs when the pool was empty.
+     */
+    public long getWaitTimeNanos() {
+        return waitNanos.sum();
+    }
+
+    private void refill() {
+        while (!closed && !Thread.currentThread().isInterrupted()) {
+            try {
+                KeyPair keyPair = source.generate();
+                generated.increment();
+                pool.put(keyPair);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                log.warn("Failed to pre-generate key pair, retrying in {} ms", RETRY_DELAY_MILLIS, e);
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
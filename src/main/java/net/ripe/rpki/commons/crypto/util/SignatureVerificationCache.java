@@ -0,0 +1,295 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.apache.commons.lang.Validate;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidKeyException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of successful signature verifications, keyed by the SHA-256 hash of the signed object's encoding
+ * and the issuer's public key. Least recently used entries are evicted first. Failed verifications are not cached,
+ * so invalid objects are always verified again, unless the cache is created with {@link #cachingFailures(int)}.
+ * <p>
+ * Share one instance between validators (for example through
+ * {@link net.ripe.rpki.commons.validation.ValidationOptions#setSignatureVerificationCache(SignatureVerificationCache)})
+ * to avoid verifying the same signature over and over, such as the CRL of a CA with many children. The cache can be
+ * saved with {@link #writeTo(OutputStream)} and restored with {@link #readFrom(InputStream)}, so unchanged objects
+ * are not verified again after a restart. Instances are thread-safe.
+ */
+public final class SignatureVerificationCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private static final SignatureVerificationCache DISABLED = new SignatureVerificationCache(0, false);
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int HASH_SIZE = new SHA256Digest().getDigestSize();
+
+    private final int maximumSize;
+
+    private final boolean failuresCached;
+
+    private final Map<Key, Boolean> results;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private SignatureVerificationCache(final int maximumSize, boolean failuresCached) {
+        this.maximumSize = maximumSize;
+        this.failuresCached = failuresCached;
+        this.results = new LinkedHashMap<Key, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    public static SignatureVerificationCache create() {
+        return withMaximumSize(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public static SignatureVerificationCache withMaximumSize(int maximumSize) {
+        Validate.isTrue(maximumSize > 0, "maximumSize must be positive");
+        return new SignatureVerificationCache(maximumSize, false);
+    }
+
+    /**
+     * Creates a cache that also remembers failed verifications, so an invalid object that is checked for many
+     * children, such as the CRL of a CA, is verified only once. Failures are kept in memory only and are not
+     * written by {@link #writeTo(OutputStream)}.
+     */
+    public static SignatureVerificationCache cachingFailures(int maximumSize) {
+        Validate.isTrue(maximumSize > 0, "maximumSize must be positive");
+        return new SignatureVerificationCache(maximumSize, true);
+    }
+
+    /**
+     * @return a cache that never stores results, so every signature is verified.
+     */
+    public static SignatureVerificationCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Verifies the signature of an object, unless the same encoded object was successfully verified with the same
+     * public key before. When failures are cached, a known failure is returned without verifying again as well.
+     *
+     * @param encoded      the encoded object that contains the signature
+     * @param publicKey    the public key of the issuer
+     * @param verification verifies the signature, throwing an exception if it is not valid
+     * @return true when the signature is valid
+     */
+    public boolean isValid(byte[] encoded, PublicKey publicKey, Verification verification) {
+        if (maximumSize == 0) {
+            return verify(publicKey, verification);
+        }
+        Key key = Key.of(encoded, publicKey);
+        Boolean cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean valid = verify(publicKey, verification);
+        if (valid || failuresCached) {
+            put(key, valid);
+        }
+        return valid;
+    }
+
+    /**
+     * For callers that verify signatures themselves, see {@link #markValid(byte[], PublicKey)}.
+     *
+     * @return true when the encoded object was successfully verified with the public key before.
+     */
+    public boolean isKnownValid(byte[] encoded, PublicKey publicKey) {
+        return maximumSize > 0 && Boolean.TRUE.equals(get(Key.of(encoded, publicKey)));
+    }
+
+    /**
+     * Records that the signature of the encoded object was successfully verified with the public key.
+     */
+    public void markValid(byte[] encoded, PublicKey publicKey) {
+        if (maximumSize > 0) {
+            put(Key.of(encoded, publicKey), true);
+        }
+    }
+
+    /**
+     * Writes the cached successful verifications, least recently used first.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        List<Key> keys = new ArrayList<>();
+        synchronized (results) {
+            for (Map.Entry<Key, Boolean> entry : results.entrySet()) {
+                if (entry.getValue()) {
+                    keys.add(entry.getKey());
+                }
+            }
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(keys.size());
+        for (Key key : keys) {
+            data.write(key.hash);
+        }
+        data.flush();
+    }
+
+    /**
+     * Adds the verifications written by {@link #writeTo(OutputStream)} to this cache.
+     */
+    public void readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int version = data.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unsupported signature verification cache format version " + version);
+        }
+        int count = data.readInt();
+        for (int i = 0; i < count; ++i) {
+            byte[] hash = new byte[HASH_SIZE];
+            data.readFully(hash);
+            if (maximumSize > 0) {
+                put(new Key(hash), true);
+            }
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public boolean isCachingFailures() {
+        return failuresCached;
+    }
+
+    public int size() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public void clear() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    private Boolean get(Key key) {
+        Boolean cached;
+        synchronized (results) {
+            cached = results.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    private void put(Key key, boolean valid) {
+        synchronized (results) {
+            results.put(key, valid);
+        }
+    }
+
+    private static boolean verify(PublicKey publicKey, Verification verification) {
+        try {
+            verification.verify(publicKey);
+            return true;
+        } catch (SignatureException | InvalidKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Verifies a signature with the given public key.
+     */
+    public interface Verification {
+        void verify(PublicKey publicKey) throws SignatureException, InvalidKeyException;
+    }
+
+    private static final class Key {
+        private final byte[] hash;
+        private final int hashCode;
+
+        private Key(byte[] hash) {
+            this.hash = hash;
+            this.hashCode = Arrays.hashCode(hash);
+        }
+
+        static Key of(byte[] encoded, PublicKey publicKey) {
+            // Hash the (self-delimiting) DER encoding of the key first, so both parts are unambiguous
+            Digest digest = new SHA256Digest();
+            byte[] encodedKey = publicKey.getEncoded();
+            digest.update(encodedKey, 0, encodedKey.length);
+            digest.update(encoded, 0, encoded.length);
+            byte[] hash = new byte[digest.getDigestSize()];
+            digest.doFinal(hash, 0);
+            return new Key(hash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(hash, ((Key) o).hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
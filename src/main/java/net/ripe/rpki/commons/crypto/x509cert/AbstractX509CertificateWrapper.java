@@ -62,6 +62,23 @@ public abstract class AbstractX509CertificateWrapper implements Serializable {
 
     private final boolean ca;
 
+    // Marks a decoded value that is absent from the certificate, since null means "not decoded yet".
+    private static final URI NO_URI = URI.create("");
+    private static final URI[] NO_URIS = new URI[0];
+    private static final byte[] NO_KEY_IDENTIFIER = new byte[0];
+
+    // Values decoded from the certificate on first use. These are transient, so the serialized form does not change
+    // and the values are decoded again after deserialization.
+    private transient volatile Boolean root;
+    private transient volatile URI manifestUri;
+    private transient volatile URI repositoryUri;
+    private transient volatile URI rrdpNotifyUri;
+    private transient volatile byte[] subjectKeyIdentifier;
+    private transient volatile byte[] authorityKeyIdentifier;
+    private transient volatile ValidityPeriod validityPeriod;
+    private transient volatile URI[] crlDistributionPoints;
+    private transient volatile URI firstRsyncCrlDistributionPoint;
+
     protected AbstractX509CertificateWrapper(X509Certificate certificate) {
         Validate.notNull(certificate);
         this.certificate = certificate;
@@ -115,7 +132,12 @@ public abstract class AbstractX509CertificateWrapper implements Serializable {
     }
 
     public boolean isRoot() {
-        return X509CertificateUtil.isRoot(certificate);
+        Boolean result = root;
+        if (result == null) {
+            result = X509CertificateUtil.isRoot(certificate);
+            root = result;
+        }
+        return result;
     }
 
     public boolean isRouter() {
@@ -123,15 +145,30 @@ public abstract class AbstractX509CertificateWrapper implements Serializable {
     }
 
     public URI getManifestUri() {
-        return X509CertificateUtil.getManifestUri(certificate);
+        URI result = manifestUri;
+        if (result == null) {
+            result = orAbsent(X509CertificateUtil.getManifestUri(certificate), NO_URI);
+            manifestUri = result;
+        }
+        return absentAsNull(result, NO_URI);
     }
 
     public URI getRepositoryUri() {
-        return X509CertificateUtil.getRepositoryUri(certificate);
+        URI result = repositoryUri;
+        if (result == null) {
+            result = orAbsent(X509CertificateUtil.getRepositoryUri(certificate), NO_URI);
+            repositoryUri = result;
+        }
+        return absentAsNull(result, NO_URI);
     }
 
     public URI getRrdpNotifyUri() {
-        return X509CertificateUtil.getRrdpNotifyUri(certificate);
+        URI result = rrdpNotifyUri;
+        if (result == null) {
+            result = orAbsent(X509CertificateUtil.getRrdpNotifyUri(certificate), NO_URI);
+            rrdpNotifyUri = result;
+        }
+        return absentAsNull(result, NO_URI);
     }
 
     public boolean isObjectIssuer() {
@@ -139,11 +176,21 @@ public abstract class AbstractX509CertificateWrapper implements Serializable {
     }
 
     public byte[] getSubjectKeyIdentifier() {
-        return X509CertificateUtil.getSubjectKeyIdentifier(certificate);
+        byte[] result = subjectKeyIdentifier;
+        if (result == null) {
+            result = orAbsent(X509CertificateUtil.getSubjectKeyIdentifier(certificate), NO_KEY_IDENTIFIER);
+            subjectKeyIdentifier = result;
+        }
+        return result == NO_KEY_IDENTIFIER ? null : result.clone();
     }
 
     public byte[] getAuthorityKeyIdentifier() {
-        return X509CertificateUtil.getAuthorityKeyIdentifier(certificate);
+        byte[] result = authorityKeyIdentifier;
+        if (result == null) {
+            result = orAbsent(X509CertificateUtil.getAuthorityKeyIdentifier(certificate), NO_KEY_IDENTIFIER);
+            authorityKeyIdentifier = result;
+        }
+        return result == NO_KEY_IDENTIFIER ? null : result.clone();
     }
 
     public X500Principal getSubject() {
@@ -159,7 +206,12 @@ public abstract class AbstractX509CertificateWrapper implements Serializable {
     }
 
     public ValidityPeriod getValidityPeriod() {
-        return X509CertificateUtil.getValidityPeriod(certificate);
+        ValidityPeriod result = validityPeriod;
+        if (result == null) {
+            result = X509CertificateUtil.getValidityPeriod(certificate);
+            validityPeriod = result;
+        }
+        return result;
     }
 
     public BigInteger getSerialNumber() {
@@ -183,17 +235,35 @@ public abstract class AbstractX509CertificateWrapper implements Serializable {
     }
 
     public URI[] getCrlDistributionPoints() {
-        return X509CertificateUtil.getCrlDistributionPoints(certificate);
+        URI[] result = crlDistributionPoints;
+        if (result == null) {
+            result = orAbsent(X509CertificateUtil.getCrlDistributionPoints(certificate), NO_URIS);
+            crlDistributionPoints = result;
+        }
+        return result == NO_URIS ? null : result.clone();
     }
 
     public URI findFirstRsyncCrlDistributionPoint() {
-        return X509CertificateUtil.findFirstRsyncCrlDistributionPoint(certificate);
+        URI result = firstRsyncCrlDistributionPoint;
+        if (result == null) {
+            result = orAbsent(X509CertificateUtil.findFirstRsyncCrlDistributionPoint(certificate), NO_URI);
+            firstRsyncCrlDistributionPoint = result;
+        }
+        return absentAsNull(result, NO_URI);
     }
 
     public void verify(PublicKey publicKey) throws InvalidKeyException, SignatureException {
         X509CertificateUtil.verify(certificate, publicKey);
     }
 
+    private static <T> T orAbsent(T value, T absent) {
+        return value == null ? absent : value;
+    }
+
+    private static <T> T absentAsNull(T value, T absent) {
+        return value == absent ? null : value;
+    }
+
     protected boolean hasErrorInRevocationCheck(List<ValidationCheck> failures) {
         for (ValidationCheck validationCheck : failures) {
             if (ValidationString.CERT_NOT_REVOKED.equals(validationCheck.getKey()) && validationCheck.getStatus() == ValidationStatus.ERROR) {
@@ -32,6 +32,7 @@ package net.ripe.rpki.commons.crypto.x509cert;
 import net.ripe.ipresource.IpResourceSet;
 import net.ripe.ipresource.IpResourceType;
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import org.apache.commons.lang.Validate;
 
 import javax.security.auth.x500.X500Principal;
@@ -57,6 +58,8 @@ public abstract class GenericRpkiCertificateBuilder {
 
     private String signatureProvider = "SunRsaSign";
 
+    private AsyncSigner asyncSigner;
+
     public void withPublicKey(PublicKey publicKey) {
         this.publicKey = publicKey;
     }
@@ -115,6 +118,10 @@ public abstract class GenericRpkiCertificateBuilder {
         this.signatureProvider = signatureProvider;
     }
 
+    public void withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+    }
+
     protected X509ResourceCertificateBuilder createGenericRpkiCertificateBuilder() {
 
         X509ResourceCertificateBuilder builder = new X509ResourceCertificateBuilder();
@@ -143,6 +150,7 @@ public abstract class GenericRpkiCertificateBuilder {
         }
 
         builder.withSignatureProvider(signatureProvider);
+        builder.withSigner(asyncSigner);
 
         builder.withSubjectKeyIdentifier(true);
 
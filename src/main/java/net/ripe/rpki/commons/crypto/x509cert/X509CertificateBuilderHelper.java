@@ -34,7 +34,9 @@ import net.ripe.ipresource.IpResourceType;
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc8209.RouterExtensionEncoder;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
+import net.ripe.rpki.commons.crypto.util.ContentSignerFactory;
 import org.apache.commons.lang.Validate;
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.DERSequence;
@@ -57,7 +59,6 @@ import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 
 import javax.security.auth.x500.X500Principal;
 import java.math.BigInteger;
@@ -87,6 +88,8 @@ public final class X509CertificateBuilderHelper {
 
     private String signatureProvider = DEFAULT_SIGNATURE_PROVIDER;
 
+    private AsyncSigner asyncSigner;
+
     private String signatureAlgorithm = DEFAULT_SIGNATURE_ALGORITHM;
 
     private BigInteger serial;
@@ -129,6 +132,14 @@ public final class X509CertificateBuilderHelper {
         return this;
     }
 
+    /**
+     * Signs through <code>signer</code> instead of the signature provider. See {@link ContentSignerFactory}.
+     */
+    public X509CertificateBuilderHelper withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
     public X509CertificateBuilderHelper withSerial(BigInteger serial) {
         this.serial = serial;
         return this;
@@ -240,7 +251,7 @@ public final class X509CertificateBuilderHelper {
     public X509Certificate generateCertificate() {
         X509v3CertificateBuilder certificateGenerator = createCertificateGenerator();
         try {
-            ContentSigner signer = new JcaContentSignerBuilder(signatureAlgorithm).setProvider(signatureProvider).build(signingKeyPair.getPrivate());
+            ContentSigner signer = ContentSignerFactory.create(signatureAlgorithm, signatureProvider, asyncSigner, signingKeyPair.getPrivate());
             return new JcaX509CertificateConverter().getCertificate(certificateGenerator.build(signer));
         } catch (IllegalStateException | OperatorCreationException | CertificateException e) {
             throw new X509ResourceCertificateBuilderException(e);
@@ -31,16 +31,13 @@ package net.ripe.rpki.commons.crypto.x509cert;
 
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc8209.RouterExtensionEncoder;
+import net.ripe.rpki.commons.crypto.util.CryptoPrimitivePool;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import org.apache.commons.lang.ArrayUtils;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.ECPublicKey;
@@ -152,10 +149,9 @@ public abstract class X509CertificateParser<T extends AbstractX509CertificateWra
     }
 
     public static X509Certificate parseX509Certificate(byte[] encoded) {
-        try (InputStream input = new ByteArrayInputStream(encoded)) {
-            final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-            return (X509Certificate) factory.generateCertificate(input);
-        } catch (final CertificateException | IOException e) {
+        try {
+            return CryptoPrimitivePool.getDefault().generateCertificate(encoded);
+        } catch (final CertificateException e) {
             return null;
         }
     }
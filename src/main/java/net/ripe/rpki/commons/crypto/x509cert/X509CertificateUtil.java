@@ -35,6 +35,7 @@ import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionParser;
 import net.ripe.rpki.commons.crypto.rfc8209.RouterExtensionEncoder;
 import net.ripe.rpki.commons.crypto.util.Asn1Util;
+import net.ripe.rpki.commons.crypto.util.CryptoPrimitivePool;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import org.apache.commons.lang.Validate;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
@@ -61,12 +62,9 @@ import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.cert.CertificateEncodingException;
-import java.security.cert.CertificateException;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
 import java.security.cert.X509Extension;
@@ -74,8 +72,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER;
-
 public final class X509CertificateUtil {
 
     private X509CertificateUtil() {
@@ -323,11 +319,7 @@ public final class X509CertificateUtil {
     }
 
     public static void verify(X509Certificate certificate, PublicKey publicKey) throws InvalidKeyException, SignatureException {
-        try {
-            certificate.verify(publicKey, DEFAULT_SIGNATURE_PROVIDER);
-        } catch (CertificateException | NoSuchAlgorithmException | NoSuchProviderException e) {
-            throw new IllegalArgumentException(e);
-        }
+        CryptoPrimitivePool.getDefault().verify(certificate, publicKey);
     }
 
     public static List<String> getAsns(X509Certificate certificate) {
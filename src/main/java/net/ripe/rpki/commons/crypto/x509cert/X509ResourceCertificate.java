@@ -29,12 +29,12 @@
  */
 package net.ripe.rpki.commons.crypto.x509cert;
 
-import net.ripe.ipresource.IpResource;
 import net.ripe.ipresource.IpResourceSet;
 import net.ripe.ipresource.IpResourceType;
 import net.ripe.rpki.commons.crypto.crl.CrlLocator;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.rfc3779.AddressFamily;
+import net.ripe.rpki.commons.crypto.rfc3779.ImmutableResourceSet;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionEncoder;
 import net.ripe.rpki.commons.crypto.rfc3779.ResourceExtensionParser;
 import net.ripe.rpki.commons.validation.ValidationLocation;
@@ -46,6 +46,8 @@ import net.ripe.rpki.commons.validation.objectvalidators.ResourceValidatorFactor
 import net.ripe.rpki.commons.validation.objectvalidators.X509ResourceCertificateValidator;
 import org.apache.commons.lang.Validate;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.net.URI;
 import java.security.cert.X509Certificate;
 import java.util.EnumSet;
@@ -61,6 +63,8 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
 
     private final EnumSet<IpResourceType> inheritedResourceTypes;
     private final IpResourceSet resources;
+    // Shared with callers, rebuilt from the serialized resources on deserialization.
+    private transient ImmutableResourceSet immutableResources;
     private Boolean revoked;
 
 
@@ -93,12 +97,25 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
             }
         }
         Validate.isTrue(!inheritedResourceTypes.isEmpty() || !resources.isEmpty(), "empty resource set");
+        immutableResources = ImmutableResourceSet.of(resources);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        immutableResources = ImmutableResourceSet.of(resources);
     }
 
     public IpResourceSet getResources() {
         return new IpResourceSet(resources);
     }
 
+    /**
+     * @return the resources listed in this certificate, shared rather than copied
+     */
+    public ImmutableResourceSet getImmutableResources() {
+        return immutableResources;
+    }
+
     public EnumSet<IpResourceType> getInheritedResourceTypes() {
         return inheritedResourceTypes;
     }
@@ -182,19 +199,23 @@ public class X509ResourceCertificate extends X509GenericCertificate implements X
     }
 
     public IpResourceSet deriveResources(IpResourceSet parentResources) {
-        IpResourceSet result = new IpResourceSet(resources);
         if (inheritedResourceTypes.isEmpty()) {
-            return result;
+            return getResources();
         }
-        for (IpResource ipResource : parentResources) {
-            if (inheritedResourceTypes.contains(ipResource.getType())) {
-                result.add(ipResource);
-            }
+        return deriveResources(ImmutableResourceSet.of(parentResources)).toIpResourceSet();
+    }
+
+    /**
+     * @return the resources of this certificate, with the inherited resource types taken from the parent
+     */
+    public ImmutableResourceSet deriveResources(ImmutableResourceSet parentResources) {
+        if (inheritedResourceTypes.isEmpty()) {
+            return immutableResources;
         }
-        return result;
+        return immutableResources.union(parentResources.retainTypes(inheritedResourceTypes));
     }
 
     public boolean containsResources(IpResourceSet that) {
-        return resources.contains(that);
+        return immutableResources.contains(ImmutableResourceSet.of(that));
     }
 }
@@ -32,6 +32,7 @@ package net.ripe.rpki.commons.crypto.x509cert;
 import net.ripe.ipresource.IpResourceSet;
 import net.ripe.ipresource.IpResourceType;
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import org.apache.commons.lang.Validate;
 import org.bouncycastle.asn1.x509.PolicyInformation;
 
@@ -66,6 +67,11 @@ public class X509ResourceCertificateBuilder {
         return this;
     }
 
+    public X509ResourceCertificateBuilder withSigner(AsyncSigner signer) {
+        builderHelper.withSigner(signer);
+        return this;
+    }
+
     public X509ResourceCertificateBuilder withSerial(BigInteger serial) {
         builderHelper.withSerial(serial);
         return this;
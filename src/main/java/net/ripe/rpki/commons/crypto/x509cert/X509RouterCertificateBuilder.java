@@ -33,6 +33,7 @@ import net.ripe.ipresource.Asn;
 import net.ripe.ipresource.IpResourceSet;
 import net.ripe.ipresource.IpResourceType;
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import org.apache.commons.lang.Validate;
 import org.bouncycastle.asn1.x509.PolicyInformation;
 
@@ -65,6 +66,11 @@ public class X509RouterCertificateBuilder {
         return this;
     }
 
+    public X509RouterCertificateBuilder withSigner(AsyncSigner signer) {
+        builderHelper.withSigner(signer);
+        return this;
+    }
+
     public X509RouterCertificateBuilder withSerial(BigInteger serial) {
         builderHelper.withSerial(serial);
         return this;
@@ -30,7 +30,9 @@
 package net.ripe.rpki.commons.provisioning.cms;
 
 import net.ripe.rpki.commons.crypto.cms.RPKISignedDataGenerator;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
+import net.ripe.rpki.commons.crypto.util.ContentSignerFactory;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateUtil;
 import net.ripe.rpki.commons.provisioning.payload.AbstractProvisioningPayload;
@@ -55,7 +57,6 @@ import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.DigestCalculatorProvider;
 import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.joda.time.DateTimeUtils;
 
 import java.io.IOException;
@@ -85,6 +86,8 @@ public class ProvisioningCmsObjectBuilder {
 
     private String signatureProvider = X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER;
 
+    private AsyncSigner asyncSigner;
+
     private String payloadContent;
 
     public ProvisioningCmsObjectBuilder withCmsCertificate(X509Certificate cmsCertificate) {
@@ -102,6 +105,11 @@ public class ProvisioningCmsObjectBuilder {
         return this;
     }
 
+    public ProvisioningCmsObjectBuilder withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
     public ProvisioningCmsObjectBuilder withPayloadContent(AbstractProvisioningPayload payload) {
         this.payloadContent = PayloadParser.serialize(payload);
         return this;
@@ -148,7 +156,7 @@ public class ProvisioningCmsObjectBuilder {
     }
 
     private void addSignerInfo(RPKISignedDataGenerator generator, PrivateKey privateKey) throws OperatorCreationException {
-        final ContentSigner signer = new JcaContentSignerBuilder(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM).setProvider(signatureProvider).build(privateKey);
+        final ContentSigner signer = ContentSignerFactory.create(X509CertificateBuilderHelper.DEFAULT_SIGNATURE_ALGORITHM, signatureProvider, asyncSigner, privateKey);
         final DigestCalculatorProvider digestProvider = BouncyCastleUtil.DIGEST_CALCULATOR_PROVIDER;
         final byte[] ski = X509CertificateUtil.getSubjectKeyIdentifier(cmsCertificate);
         generator.addSignerInfoGenerator(
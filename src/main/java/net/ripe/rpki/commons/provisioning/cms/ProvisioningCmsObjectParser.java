@@ -31,6 +31,7 @@ package net.ripe.rpki.commons.provisioning.cms;
 
 import com.google.common.io.ByteSource;
 import net.ripe.rpki.commons.crypto.util.BouncyCastleUtil;
+import net.ripe.rpki.commons.crypto.util.CryptoPrimitivePool;
 import net.ripe.rpki.commons.crypto.x509cert.AbstractX509CertificateWrapperException;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateUtil;
 import net.ripe.rpki.commons.provisioning.payload.AbstractProvisioningPayload;
@@ -58,7 +59,6 @@ import org.bouncycastle.cms.SignerId;
 import org.bouncycastle.cms.SignerInformation;
 import org.bouncycastle.cms.SignerInformationStore;
 import org.bouncycastle.cms.SignerInformationVerifier;
-import org.bouncycastle.cms.jcajce.JcaSignerInfoVerifierBuilder;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.bc.BcDigestCalculatorProvider;
 import org.bouncycastle.util.StoreException;
@@ -440,8 +440,7 @@ public class ProvisioningCmsObjectParser {
     private void verifySignature(SignerInformation signer) {
         String errorMessage = null;
         try {
-            final SignerInformationVerifier verifier = new JcaSignerInfoVerifierBuilder(
-                BouncyCastleUtil.DIGEST_CALCULATOR_PROVIDER).build(cmsCertificate.getPublicKey());
+            final SignerInformationVerifier verifier = CryptoPrimitivePool.getDefault().signerInformationVerifier(cmsCertificate.getPublicKey());
 
             validationResult.rejectIfFalse(signer.verify(verifier), SIGNATURE_VERIFICATION);
         } catch (CMSException | OperatorCreationException e) {
@@ -30,6 +30,7 @@
 package net.ripe.rpki.commons.provisioning.x509;
 
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
 import net.ripe.rpki.commons.util.UTC;
 import org.bouncycastle.asn1.x509.KeyUsage;
@@ -56,6 +57,11 @@ public class ProvisioningCmsCertificateBuilder {
         return this;
     }
 
+    public ProvisioningCmsCertificateBuilder withSigner(AsyncSigner signer) {
+        builderHelper.withSigner(signer);
+        return this;
+    }
+
     public ProvisioningCmsCertificateBuilder withSerial(BigInteger serial) {
         builderHelper.withSerial(serial);
         return this;
@@ -30,6 +30,7 @@
 package net.ripe.rpki.commons.provisioning.x509;
 
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper;
 import net.ripe.rpki.commons.util.UTC;
 import org.apache.commons.lang.Validate;
@@ -51,6 +52,8 @@ public class ProvisioningIdentityCertificateBuilder {
     private X500Principal selfSigningSubject;
     private String signatureProvider = X509CertificateBuilderHelper.DEFAULT_SIGNATURE_PROVIDER;
 
+    private AsyncSigner asyncSigner;
+
 
     public ProvisioningIdentityCertificateBuilder() {
         builderHelper = new X509CertificateBuilderHelper();
@@ -76,6 +79,11 @@ public class ProvisioningIdentityCertificateBuilder {
         return this;
     }
 
+    public ProvisioningIdentityCertificateBuilder withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
     public ProvisioningIdentityCertificate build() {
         Validate.notNull(selfSigningKeyPair, "Self Signing KeyPair is required");
         Validate.notNull(selfSigningSubject, "Self Signing DN is required");
@@ -86,6 +94,7 @@ public class ProvisioningIdentityCertificateBuilder {
         builderHelper.withSubjectDN(selfSigningSubject);
         builderHelper.withIssuerDN(selfSigningSubject);
         builderHelper.withSignatureProvider(signatureProvider);
+        builderHelper.withSigner(asyncSigner);
         return new ProvisioningIdentityCertificate(builderHelper.generateCertificate());
     }
 
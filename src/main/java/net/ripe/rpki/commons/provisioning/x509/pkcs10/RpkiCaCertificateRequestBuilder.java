@@ -29,6 +29,8 @@
  */
 package net.ripe.rpki.commons.provisioning.x509.pkcs10;
 
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
+import net.ripe.rpki.commons.crypto.util.ContentSignerFactory;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateInformationAccessDescriptor;
 import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.DERSequence;
@@ -39,7 +41,6 @@ import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.Extensions;
 import org.bouncycastle.asn1.x509.KeyUsage;
 import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
 
@@ -68,6 +69,8 @@ public class RpkiCaCertificateRequestBuilder {
 
     private String signatureProvider = "SunRsaSign";
 
+    private AsyncSigner asyncSigner;
+
     public RpkiCaCertificateRequestBuilder withSubject(X500Principal subject) {
         this.subject = subject;
         return this;
@@ -98,6 +101,11 @@ public class RpkiCaCertificateRequestBuilder {
         return this;
     }
 
+    public RpkiCaCertificateRequestBuilder withSigner(AsyncSigner signer) {
+        this.asyncSigner = signer;
+        return this;
+    }
+
     /**
      * Default: SHA256withRSA
      *
@@ -112,7 +120,7 @@ public class RpkiCaCertificateRequestBuilder {
         try {
             Extensions extensions = createExtensions();
 
-            ContentSigner signer = new JcaContentSignerBuilder(signatureAlgorithm).setProvider(signatureProvider).build(keyPair.getPrivate());
+            ContentSigner signer = ContentSignerFactory.create(signatureAlgorithm, signatureProvider, asyncSigner, keyPair.getPrivate());
 
             JcaPKCS10CertificationRequestBuilder builder = new JcaPKCS10CertificationRequestBuilder(subject, keyPair.getPublic());
             builder.addAttribute(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest, extensions);
@@ -0,0 +1,233 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import org.apache.commons.lang.Validate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects validation checks from many threads at once.
+ * <p>
+ * Checks are kept in a number of {@link ValidationResult} stripes. All checks for a location end up in the same
+ * stripe, and each stripe is guarded by its own lock, so threads recording checks for different locations rarely
+ * contend. The stripes are only merged into a single {@link ValidationResult} when {@link #toValidationResult()} is
+ * called. Failures and warnings are counted as they are recorded, so {@link #hasFailures()} and
+ * {@link #hasWarnings()} do not need to look at the stored checks.
+ * <p>
+ * Typical use is to validate each object into its own {@link ValidationResult} on a worker thread and to
+ * {@link #addAll(ValidationResult) add} it to a shared instance of this class afterwards.
+ */
+public final class ConcurrentValidationResult {
+
+    private static final String STRIPE_LOCATION = "n/a";
+
+    private final ValidationResult[] stripes;
+
+    private final LongAdder failureCount = new LongAdder();
+
+    private final LongAdder warningCount = new LongAdder();
+
+    private ConcurrentValidationResult(int concurrencyLevel) {
+        Validate.isTrue(concurrencyLevel > 0, "concurrencyLevel must be positive");
+        int stripeCount = Integer.highestOneBit(concurrencyLevel);
+        if (stripeCount < concurrencyLevel) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new ValidationResult[stripeCount];
+        for (int i = 0; i < stripeCount; ++i) {
+            stripes[i] = ValidationResult.withLocation(STRIPE_LOCATION);
+        }
+    }
+
+    /**
+     * @return a new instance with a number of stripes suitable for the number of available processors.
+     */
+    public static ConcurrentValidationResult create() {
+        return withConcurrencyLevel(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param concurrencyLevel the expected number of threads recording checks at the same time. Rounded up to the
+     *                         next power of two to determine the number of stripes.
+     */
+    public static ConcurrentValidationResult withConcurrencyLevel(int concurrencyLevel) {
+        return new ConcurrentValidationResult(concurrencyLevel);
+    }
+
+    /**
+     * @see ValidationResult#withoutStoringPassingChecks()
+     */
+    public ConcurrentValidationResult withoutStoringPassingChecks() {
+        for (ValidationResult stripe : stripes) {
+            synchronized (stripe) {
+                stripe.withoutStoringPassingChecks();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @see ValidationResult#withCompactPassingChecks()
+     */
+    public ConcurrentValidationResult withCompactPassingChecks() {
+        for (ValidationResult stripe : stripes) {
+            synchronized (stripe) {
+                stripe.withCompactPassingChecks();
+            }
+        }
+        return this;
+    }
+
+    private ValidationResult stripeFor(ValidationLocation location) {
+        int h = location.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    public ConcurrentValidationResult pass(ValidationLocation location, String key, String... param) {
+        ValidationResult stripe = stripeFor(location);
+        synchronized (stripe) {
+            stripe.setLocation(location).pass(key, param);
+        }
+        return this;
+    }
+
+    public ConcurrentValidationResult warn(ValidationLocation location, String key, String... param) {
+        ValidationResult stripe = stripeFor(location);
+        synchronized (stripe) {
+            stripe.warnForLocation(location, key, param);
+        }
+        warningCount.increment();
+        return this;
+    }
+
+    public ConcurrentValidationResult error(ValidationLocation location, String key, String... param) {
+        ValidationResult stripe = stripeFor(location);
+        synchronized (stripe) {
+            stripe.rejectForLocation(location, key, param);
+        }
+        failureCount.increment();
+        return this;
+    }
+
+    public boolean warnIfFalse(ValidationLocation location, boolean condition, String key, String... param) {
+        Validate.notNull(key, "key is required");
+        if (condition) {
+            pass(location, key, param);
+        } else {
+            warn(location, key, param);
+        }
+        return condition;
+    }
+
+    public boolean warnIfTrue(ValidationLocation location, boolean condition, String key, String... param) {
+        return warnIfFalse(location, !condition, key, param);
+    }
+
+    public boolean rejectIfFalse(ValidationLocation location, boolean condition, String key, String... param) {
+        Validate.notNull(key, "key is required");
+        if (condition) {
+            pass(location, key, param);
+        } else {
+            error(location, key, param);
+        }
+        return condition;
+    }
+
+    public boolean rejectIfTrue(ValidationLocation location, boolean condition, String key, String... param) {
+        return rejectIfFalse(location, !condition, key, param);
+    }
+
+    /**
+     * Adds all checks of <code>that</code>, which must not be modified concurrently. Only the stripes for the
+     * locations in <code>that</code> are locked, one at a time.
+     * <p>
+     * A {@link ValidationResult#isStreaming() streaming} result does not keep its checks, so it cannot be added and
+     * is rejected.
+     */
+    public ConcurrentValidationResult addAll(ValidationResult that) {
+        Validate.isTrue(!that.isStreaming(), "cannot add a streaming validation result, its checks were forwarded to its listener");
+        for (ValidationLocation location : that.getValidatedLocations()) {
+            ValidationResult stripe = stripeFor(location);
+            synchronized (stripe) {
+                stripe.addAll(that, location);
+            }
+            failureCount.add(that.getFailures(location).size());
+            warningCount.add(that.getWarnings(location).size());
+        }
+        return this;
+    }
+
+    public boolean hasFailures() {
+        return failureCount.sum() > 0;
+    }
+
+    public boolean hasWarnings() {
+        return warningCount.sum() > 0;
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public long getWarningCount() {
+        return warningCount.sum();
+    }
+
+    public boolean hasFailureForLocation(ValidationLocation location) {
+        ValidationResult stripe = stripeFor(location);
+        synchronized (stripe) {
+            return stripe.hasFailureForLocation(location);
+        }
+    }
+
+    /**
+     * Merges all stripes into a new {@link ValidationResult}. Checks recorded concurrently with this call may or may
+     * not be included.
+     */
+    public ValidationResult toValidationResult() {
+        ValidationResult result = ValidationResult.withLocation(STRIPE_LOCATION);
+        synchronized (stripes[0]) {
+            if (!stripes[0].isStoringPassingChecks()) {
+                result.withoutStoringPassingChecks();
+            }
+            if (stripes[0].isCompactingPassingChecks()) {
+                result.withCompactPassingChecks();
+            }
+        }
+        for (ValidationResult stripe : stripes) {
+            synchronized (stripe) {
+                result.addAll(stripe);
+            }
+        }
+        return result;
+    }
+}
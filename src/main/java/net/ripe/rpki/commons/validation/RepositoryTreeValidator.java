@@ -0,0 +1,265 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCms;
+import net.ripe.rpki.commons.crypto.crl.CrlLocator;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.util.CertificateRepositoryObjectFactory;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
+import org.apache.commons.lang.Validate;
+import org.joda.time.DateTimeUtils;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static net.ripe.rpki.commons.validation.ValidationString.*;
+
+/**
+ * Validates the repository tree under a trust anchor certificate, top-down.
+ * <p>
+ * Each CA certificate is a publication point. The validator fetches its manifest and CRL from the
+ * {@link RepositoryObjectStore}, validates them, and then validates every object listed on the manifest. Child CA
+ * certificates become new publication points. Publication points are independent tasks in a {@link ForkJoinPool}, so
+ * large trees are spread over the worker threads by work stealing. Each publication point records its checks in its
+ * own {@link ValidationResult}, which is merged into a shared {@link ConcurrentValidationResult} when it is done.
+ * <p>
+ * The number of publication points validated at the same time is bounded by the parallelism of the pool. By default
+ * this is the {@link ForkJoinPool#commonPool() common pool}; use {@link #withPool(ForkJoinPool)} with a dedicated
+ * pool to choose another bound. Instances are immutable and safe to share between threads.
+ */
+public final class RepositoryTreeValidator {
+
+    private final RepositoryObjectStore store;
+
+    private final ValidationOptions options;
+
+    private final ForkJoinPool pool;
+
+    private RepositoryTreeValidator(RepositoryObjectStore store, ValidationOptions options, ForkJoinPool pool) {
+        this.store = store;
+        this.options = options;
+        this.pool = pool;
+    }
+
+    public static RepositoryTreeValidator of(RepositoryObjectStore store) {
+        Validate.notNull(store, "store is required");
+        return new RepositoryTreeValidator(store, ValidationOptions.strictValidation(), ForkJoinPool.commonPool());
+    }
+
+    public RepositoryTreeValidator withOptions(ValidationOptions options) {
+        Validate.notNull(options, "options are required");
+        return new RepositoryTreeValidator(store, options, pool);
+    }
+
+    /**
+     * @return a validator that runs in the given pool, and validates at most as many publication points at the same
+     * time as the parallelism of the pool.
+     */
+    public RepositoryTreeValidator withPool(ForkJoinPool pool) {
+        Validate.notNull(pool, "pool is required");
+        return new RepositoryTreeValidator(store, options, pool);
+    }
+
+    public ValidationOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Validates the trust anchor and all objects reachable from it. Returns when the whole tree has been validated.
+     *
+     * @param result receives the checks of all validated objects
+     * @return the valid objects, including the trust anchor, by URI
+     */
+    public Map<URI, CertificateRepositoryObject> validate(URI trustAnchorLocation, X509ResourceCertificate trustAnchor, ConcurrentValidationResult result) {
+        Validate.notNull(trustAnchorLocation, "trustAnchorLocation is required");
+        Validate.notNull(trustAnchor, "trustAnchor is required");
+        Validate.notNull(result, "result is required");
+        if (!options.isValidationTimeFixed()) {
+            // Read the clock once, so the whole tree is validated at the same instant
+            return withOptions(options.atValidationTime(DateTimeUtils.currentTimeMillis())).validate(trustAnchorLocation, trustAnchor, result);
+        }
+
+        Map<URI, CertificateRepositoryObject> validObjects = new ConcurrentHashMap<>();
+        CertificateRepositoryObjectValidationContext context = new CertificateRepositoryObjectValidationContext(trustAnchorLocation, trustAnchor, options);
+
+        ValidationResult trustAnchorResult = ValidationResult.withLocation(trustAnchorLocation);
+        trustAnchor.validate(trustAnchorLocation.toString(), context, (X509Crl) null, null, options, trustAnchorResult);
+        result.addAll(trustAnchorResult);
+        if (trustAnchorResult.hasFailures()) {
+            return validObjects;
+        }
+        validObjects.put(trustAnchorLocation, trustAnchor);
+
+        pool.invoke(new PublicationPointValidation(trustAnchorLocation, context, ConcurrentHashMap.newKeySet(), validObjects, result));
+        return validObjects;
+    }
+
+    private final class PublicationPointValidation extends RecursiveAction {
+        private final URI certificateLocation;
+        private final CertificateRepositoryObjectValidationContext context;
+        private final Set<URI> visitedManifests;
+        private final Map<URI, CertificateRepositoryObject> validObjects;
+        private final ConcurrentValidationResult results;
+
+        PublicationPointValidation(URI certificateLocation, CertificateRepositoryObjectValidationContext context, Set<URI> visitedManifests,
+                                   Map<URI, CertificateRepositoryObject> validObjects, ConcurrentValidationResult results) {
+            this.certificateLocation = certificateLocation;
+            this.context = context;
+            this.visitedManifests = visitedManifests;
+            this.validObjects = validObjects;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            ValidationResult result = ValidationResult.withLocation(certificateLocation);
+            List<PublicationPointValidation> children = new ArrayList<>();
+            try {
+                validatePublicationPoint(result, children);
+            } catch (RuntimeException e) {
+                result.error(VALIDATOR_OBJECT_PROCESSING_EXCEPTION, result.getCurrentLocation().getName());
+                children.clear();
+            } finally {
+                results.addAll(result);
+            }
+            invokeAll(children);
+        }
+
+        private void validatePublicationPoint(ValidationResult result, List<PublicationPointValidation> children) {
+            URI manifestUri = context.getManifestURI();
+            if (!result.rejectIfNull(manifestUri, VALIDATOR_CA_SHOULD_HAVE_MANIFEST)) {
+                return;
+            }
+            if (!result.rejectIfFalse(visitedManifests.add(manifestUri), VALIDATOR_CIRCULAR_REFERENCE, certificateLocation.toString(), manifestUri.toString())) {
+                return;
+            }
+
+            ValidationLocation manifestLocation = new ValidationLocation(manifestUri);
+            result.setLocation(manifestLocation);
+            CertificateRepositoryObject manifestObject = parse(fetch(manifestUri, result), result);
+            if (manifestObject == null || !result.rejectIfFalse(manifestObject instanceof ManifestCms, VALIDATOR_FETCHED_OBJECT_IS_MANIFEST)) {
+                return;
+            }
+            ManifestCms manifest = (ManifestCms) manifestObject;
+
+            URI crlUri = manifest.getCrlUri();
+            ValidationLocation crlLocation = new ValidationLocation(crlUri);
+            result.setLocation(crlLocation);
+            byte[] encodedCrl = fetch(crlUri, result);
+            CertificateRepositoryObject crlObject = parse(encodedCrl, result);
+            if (crlObject == null || !result.rejectIfFalse(crlObject instanceof X509Crl, VALIDATOR_FETCHED_OBJECT_IS_CRL)) {
+                return;
+            }
+            X509Crl crl = (X509Crl) crlObject;
+            crl.validate(crlUri.toString(), context, (CrlLocator) null, options, result);
+            if (result.hasFailureForCurrentLocation()) {
+                return;
+            }
+
+            result.setLocation(manifestLocation);
+            manifest.validate(manifestUri.toString(), context, crl, crlUri, options, result);
+            if (result.hasFailureForCurrentLocation()) {
+                return;
+            }
+
+            // The CRL is only valid when it is the one listed on the (now validated) manifest
+            URI repositoryUri = context.getRepositoryURI();
+            result.setLocation(crlLocation);
+            String crlFileName = findFileName(manifest, repositoryUri, crlUri);
+            if (!result.rejectIfNull(crlFileName, VALIDATOR_MANIFEST_DOES_NOT_CONTAIN_FILE, crlUri.toString())) {
+                return;
+            }
+            if (!result.rejectIfFalse(manifest.verifyFileContents(crlFileName, encodedCrl), VALIDATOR_MANIFEST_ENTRY_HASH_MATCHES)) {
+                return;
+            }
+            validObjects.put(crlUri, crl);
+            validObjects.put(manifestUri, manifest);
+
+            for (String fileName : manifest.getFileNames()) {
+                if (!fileName.equals(crlFileName)) {
+                    validateManifestEntry(manifest, fileName, repositoryUri.resolve(fileName), crl, crlUri, result, children);
+                }
+            }
+        }
+
+        private void validateManifestEntry(ManifestCms manifest, String fileName, URI uri, X509Crl crl, URI crlUri,
+                                           ValidationResult result, List<PublicationPointValidation> children) {
+            result.setLocation(new ValidationLocation(uri));
+            byte[] encoded = fetch(uri, result);
+            if (encoded == null || !result.rejectIfFalse(manifest.verifyFileContents(fileName, encoded), VALIDATOR_MANIFEST_ENTRY_HASH_MATCHES)) {
+                return;
+            }
+            CertificateRepositoryObject object = parse(encoded, result);
+            if (object == null) {
+                return;
+            }
+            object.validate(uri.toString(), context, crl, crlUri, options, result);
+            if (result.hasFailureForCurrentLocation()) {
+                return;
+            }
+            validObjects.put(uri, object);
+
+            if (object instanceof X509ResourceCertificate && ((X509ResourceCertificate) object).isCa()) {
+                X509ResourceCertificate certificate = (X509ResourceCertificate) object;
+                children.add(new PublicationPointValidation(uri, context.createChildContext(uri, certificate), visitedManifests, validObjects, results));
+            }
+        }
+
+        private byte[] fetch(URI uri, ValidationResult result) {
+            byte[] encoded = store.get(uri);
+            return result.rejectIfNull(encoded, VALIDATOR_REPOSITORY_OBJECT_NOT_FOUND, uri.toString(), "") ? encoded : null;
+        }
+
+        private CertificateRepositoryObject parse(byte[] encoded, ValidationResult result) {
+            if (encoded == null) {
+                return null;
+            }
+            return CertificateRepositoryObjectFactory.createCertificateRepositoryObject(encoded, result, options.getSignatureVerificationCache());
+        }
+
+        private String findFileName(ManifestCms manifest, URI repositoryUri, URI uri) {
+            for (String fileName : manifest.getFileNames()) {
+                if (repositoryUri.resolve(fileName).equals(uri)) {
+                    return fileName;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns validation check keys to small integer ids, so that passing checks can be tracked as bits instead of
+ * {@link ValidationCheck} objects. All keys defined in {@link ValidationString} are registered up front, other keys
+ * are assigned an id the first time they are seen.
+ * <p>
+ * Ids are only stable within a single JVM, so they must never be serialized.
+ */
+final class ValidationCheckKeys {
+
+    private static final String[] NO_PARAMS = {};
+
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    private static volatile String[] keys = new String[0];
+
+    private static volatile ValidationCheck[] passedChecks = new ValidationCheck[0];
+
+    static {
+        for (Field field : ValidationString.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                try {
+                    idOf((String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private ValidationCheckKeys() {
+        //Utility classes should not have a public or default constructor.
+    }
+
+    static int idOf(String key) {
+        Integer id = IDS.get(key);
+        return id != null ? id : register(key);
+    }
+
+    /**
+     * @return the id of the key, or -1 if the key was never registered.
+     */
+    static int findId(String key) {
+        Integer id = IDS.get(key);
+        return id != null ? id : -1;
+    }
+
+    static String keyOf(int id) {
+        return keys[id];
+    }
+
+    /**
+     * @return the shared, parameterless passed check for the key with the given id.
+     */
+    static ValidationCheck passedCheck(int id) {
+        return passedChecks[id];
+    }
+
+    static String[] keysOf(BitSet ids) {
+        String[] result = new String[ids.cardinality()];
+        int i = 0;
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result[i++] = keyOf(id);
+        }
+        return result;
+    }
+
+    private static synchronized int register(String key) {
+        Integer existing = IDS.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        int id = keys.length;
+        String[] newKeys = Arrays.copyOf(keys, id + 1);
+        newKeys[id] = key;
+        ValidationCheck[] newPassedChecks = Arrays.copyOf(passedChecks, id + 1);
+        newPassedChecks[id] = new ValidationCheck(ValidationStatus.PASSED, key, NO_PARAMS);
+
+        // Publish the arrays before the id, so any thread that can see the id can also resolve it.
+        keys = newKeys;
+        passedChecks = newPassedChecks;
+        IDS.put(key, id);
+        return id;
+    }
+}
@@ -30,6 +30,8 @@
 package net.ripe.rpki.commons.validation;
 
 
+import net.ripe.rpki.commons.crypto.util.SignatureVerificationCache;
+import org.joda.time.DateTimeUtils;
 import org.joda.time.Duration;
 
 /**
@@ -66,6 +68,22 @@ public class ValidationOptions {
      */
     private boolean allowOverclaimParentChild = false;
 
+    /**
+     * Cache consulted before verifying certificate and CRL signatures. Disabled by default, share one cache between
+     * the validations of a run to verify the CRL of a CA once instead of once for each child, or between runs to skip
+     * verifying unchanged certificates.
+     */
+    private SignatureVerificationCache signatureVerificationCache = SignatureVerificationCache.disabled();
+
+    /**
+     * Instant, in milliseconds since the epoch, at which validity times are checked. When not fixed the clock is read
+     * again for every object. Fix it to check a whole run against a single instant, which also makes runs
+     * reproducible.
+     */
+    private long validationTime;
+
+    private boolean validationTimeFixed = false;
+
     private ValidationOptions(Boolean strictManifestCRLValidityChecks, Duration crlMaxStalePeriod,
                               Duration manifestMaxStalePeriod) {
         this.strictManifestCRLValidityChecks = strictManifestCRLValidityChecks;
@@ -129,4 +147,43 @@ public class ValidationOptions {
     public void setStrictManifestCRLValidityChecks(boolean strictManifestCRLValidityChecks) {
         this.strictManifestCRLValidityChecks = strictManifestCRLValidityChecks;
     }
+
+    public SignatureVerificationCache getSignatureVerificationCache() {
+        return signatureVerificationCache;
+    }
+
+    public void setSignatureVerificationCache(SignatureVerificationCache signatureVerificationCache) {
+        this.signatureVerificationCache = signatureVerificationCache;
+    }
+
+    /**
+     * @return the fixed validation time, or the current time when it is not fixed, in milliseconds since the epoch.
+     */
+    public long getValidationTimeMillis() {
+        return validationTimeFixed ? validationTime : DateTimeUtils.currentTimeMillis();
+    }
+
+    public boolean isValidationTimeFixed() {
+        return validationTimeFixed;
+    }
+
+    public void setValidationTimeMillis(long validationTime) {
+        this.validationTime = validationTime;
+        this.validationTimeFixed = true;
+    }
+
+    public void clearValidationTime() {
+        this.validationTimeFixed = false;
+    }
+
+    /**
+     * @return a copy of these options with the validation time fixed at <code>validationTime</code>.
+     */
+    public ValidationOptions atValidationTime(long validationTime) {
+        ValidationOptions copy = new ValidationOptions(strictManifestCRLValidityChecks, crlMaxStalePeriod, manifestMaxStalePeriod);
+        copy.allowOverclaimParentChild = allowOverclaimParentChild;
+        copy.signatureVerificationCache = signatureVerificationCache;
+        copy.setValidationTimeMillis(validationTime);
+        return copy;
+    }
 }
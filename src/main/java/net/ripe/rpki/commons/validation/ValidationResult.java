@@ -34,9 +34,13 @@ import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.joda.time.DateTimeUtils;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -59,6 +63,16 @@ public final class ValidationResult implements Serializable {
 
     private boolean storingPassingChecks = true;
 
+    private boolean compactingPassingChecks = false;
+
+    private transient ValidationListener listener;
+
+    // Locations with failures that were forwarded to a listener instead of being stored. Like the listener, this
+    // runtime-only state is not serialized.
+    private transient Set<ValidationLocation> streamedFailureLocations = new HashSet<>();
+
+    private transient boolean streamedWarnings = false;
+
     private ValidationResult(ValidationLocation location) {
         setLocation(location);
     }
@@ -79,7 +93,7 @@ public final class ValidationResult implements Serializable {
         if (this.storingPassingChecks) {
             this.storingPassingChecks = false;
             for (ResultsPerLocation entry : this.results.values()) {
-                entry.passed.clear();
+                entry.clearPassed();
             }
         }
         return this;
@@ -89,13 +103,73 @@ public final class ValidationResult implements Serializable {
         return storingPassingChecks;
     }
 
+    /**
+     * Switch to a compact storage mode for passing checks. Instead of a {@link ValidationCheck} per passing check
+     * only the (interned) key is remembered per location, so parameters of passing checks are dropped and repeated
+     * passing checks for the same key and location are only reported once. {@link ValidationCheck} instances
+     * for passing checks are only materialised when requested through the accessors.
+     * <p>
+     * Errors and warnings are stored as before.
+     */
+    public ValidationResult withCompactPassingChecks() {
+        if (!this.compactingPassingChecks) {
+            this.compactingPassingChecks = true;
+            for (ResultsPerLocation entry : this.results.values()) {
+                entry.compactPassed();
+            }
+        }
+        return this;
+    }
+
+    public boolean isCompactingPassingChecks() {
+        return compactingPassingChecks;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        streamedFailureLocations = new HashSet<>();
+        if (compactingPassingChecks) {
+            for (ResultsPerLocation entry : results.values()) {
+                entry.compactPassed();
+            }
+        }
+    }
+
+    /**
+     * Forward all checks that are recorded from now on to the listener instead of storing them, so memory use no
+     * longer grows with the number of checks. Passing checks are only forwarded when
+     * {@link #isStoringPassingChecks() storing passing checks}.
+     * <p>
+     * Only the locations with failures, and whether there were any warnings, are remembered. So
+     * {@link #hasFailures()}, {@link #hasWarnings()} and {@link #hasFailureForLocation(ValidationLocation)} keep
+     * working, but the accessors returning checks only return checks that were stored before switching to streaming.
+     */
+    public ValidationResult streamingTo(ValidationListener listener) {
+        Validate.notNull(listener, "listener is required");
+        this.listener = listener;
+        return this;
+    }
+
+    public boolean isStreaming() {
+        return listener != null;
+    }
+
     public ValidationResult setLocation(ValidationLocation location) {
         currentLocation = location;
         return this;
     }
 
     private ResultsPerLocation getCurrentResults() {
-        return results.computeIfAbsent(currentLocation, (x) -> new ResultsPerLocation());
+        return getResults(currentLocation);
+    }
+
+    private ResultsPerLocation getResults(ValidationLocation location) {
+        ResultsPerLocation resultsPerLocation = results.get(location);
+        if (resultsPerLocation == null) {
+            resultsPerLocation = new ResultsPerLocation(compactingPassingChecks);
+            results.put(location, resultsPerLocation);
+        }
+        return resultsPerLocation;
     }
 
     public ValidationResult pass(String key) {
@@ -104,7 +178,11 @@ public final class ValidationResult implements Serializable {
 
     public ValidationResult pass(String key, String... param) {
         if (storingPassingChecks) {
-            getCurrentResults().passed.add(new ValidationCheck(ValidationStatus.PASSED, key, param));
+            if (listener != null) {
+                listener.onValidationCheck(currentLocation, new ValidationCheck(ValidationStatus.PASSED, key, param));
+            } else {
+                getCurrentResults().pass(key, param);
+            }
         }
         return this;
     }
@@ -114,7 +192,7 @@ public final class ValidationResult implements Serializable {
     }
 
     public ValidationResult warn(String key, String... param) {
-        getCurrentResults().warning.add(new ValidationCheck(ValidationStatus.WARNING, key, param));
+        addWarning(currentLocation, new ValidationCheck(ValidationStatus.WARNING, key, param));
         return this;
     }
 
@@ -123,10 +201,28 @@ public final class ValidationResult implements Serializable {
     }
 
     public ValidationResult error(String key, String... param) {
-        getCurrentResults().error.add(new ValidationCheck(ValidationStatus.ERROR, key, param));
+        addError(currentLocation, new ValidationCheck(ValidationStatus.ERROR, key, param));
         return this;
     }
 
+    private void addError(ValidationLocation location, ValidationCheck check) {
+        if (listener != null) {
+            streamedFailureLocations.add(location);
+            listener.onValidationCheck(location, check);
+        } else {
+            getResults(location).error.add(check);
+        }
+    }
+
+    private void addWarning(ValidationLocation location, ValidationCheck check) {
+        if (listener != null) {
+            streamedWarnings = true;
+            listener.onValidationCheck(location, check);
+        } else {
+            getResults(location).warning.add(check);
+        }
+    }
+
     public boolean warnIfFalse(boolean condition, String key) {
         return warnIfFalse(condition, key, EMPTY_PARAM);
     }
@@ -170,8 +266,7 @@ public final class ValidationResult implements Serializable {
     }
 
     public ValidationResult rejectForLocation(ValidationLocation location, String key, String... param) {
-        ResultsPerLocation resultsPerLocation = results.computeIfAbsent(location, (x) -> new ResultsPerLocation());
-        resultsPerLocation.error.add(new ValidationCheck(ValidationStatus.ERROR, key, param));
+        addError(location, new ValidationCheck(ValidationStatus.ERROR, key, param));
         return this;
     }
 
@@ -180,8 +275,7 @@ public final class ValidationResult implements Serializable {
     }
 
     public ValidationResult warnForLocation(ValidationLocation location, String key, String... param) {
-        ResultsPerLocation resultsPerLocation = results.computeIfAbsent(location, (x) -> new ResultsPerLocation());
-        resultsPerLocation.warning.add(new ValidationCheck(ValidationStatus.WARNING, key, param));
+        addWarning(location, new ValidationCheck(ValidationStatus.WARNING, key, param));
         return this;
     }
 
@@ -242,6 +336,9 @@ public final class ValidationResult implements Serializable {
     }
 
     public boolean hasFailures() {
+        if (!streamedFailureLocations.isEmpty()) {
+            return true;
+        }
         for (ResultsPerLocation checks: this.results.values()) {
             if (!checks.error.isEmpty()) {
                 return true;
@@ -251,6 +348,9 @@ public final class ValidationResult implements Serializable {
     }
 
     public boolean hasWarnings() {
+        if (streamedWarnings) {
+            return true;
+        }
         for (ResultsPerLocation checks: this.results.values()) {
             if (!checks.warning.isEmpty()) {
                 return true;
@@ -290,6 +390,9 @@ public final class ValidationResult implements Serializable {
     }
 
     public boolean hasFailureForLocation(ValidationLocation location) {
+        if (streamedFailureLocations.contains(location)) {
+            return true;
+        }
         ResultsPerLocation checks = results.get(location);
         return checks != null && !checks.error.isEmpty();
     }
@@ -312,7 +415,7 @@ public final class ValidationResult implements Serializable {
         if (resultsPerLocation != null) {
             allChecks.addAll(resultsPerLocation.error);
             allChecks.addAll(resultsPerLocation.warning);
-            allChecks.addAll(resultsPerLocation.passed);
+            resultsPerLocation.addPassedTo(allChecks);
         }
 
         return allChecks;
@@ -323,8 +426,22 @@ public final class ValidationResult implements Serializable {
     }
 
     public ValidationCheck getResult(ValidationLocation location, String checkKey) {
-        final List<ValidationCheck> allChecks = getAllValidationChecksForLocation(location);
-        for (ValidationCheck check : allChecks) {
+        ResultsPerLocation resultsPerLocation = results.get(location);
+        if (resultsPerLocation == null) {
+            return null;
+        }
+        ValidationCheck check = findByKey(resultsPerLocation.error, checkKey);
+        if (check == null) {
+            check = findByKey(resultsPerLocation.warning, checkKey);
+        }
+        if (check == null) {
+            check = resultsPerLocation.findPassed(checkKey);
+        }
+        return check;
+    }
+
+    private static ValidationCheck findByKey(List<ValidationCheck> checks, String checkKey) {
+        for (ValidationCheck check : checks) {
             if (check.getKey().equals(checkKey)) {
                 return check;
             }
@@ -347,19 +464,56 @@ public final class ValidationResult implements Serializable {
 
     public ValidationResult addAll(ValidationResult that) {
         for (Entry<ValidationLocation, ResultsPerLocation> resultsByLocation : that.results.entrySet()) {
-            ResultsPerLocation thatResults = resultsByLocation.getValue();
-            if (thatResults.error.isEmpty() && thatResults.warning.isEmpty() && (thatResults.passed.isEmpty() || !this.storingPassingChecks)) {
-                continue;
-            }
+            addAll(resultsByLocation.getKey(), resultsByLocation.getValue());
+        }
+        streamedFailureLocations.addAll(that.streamedFailureLocations);
+        streamedWarnings |= that.streamedWarnings;
+        return this;
+    }
+
+    /**
+     * Adds the checks of <code>that</code> for a single location only.
+     */
+    ValidationResult addAll(ValidationResult that, ValidationLocation location) {
+        ResultsPerLocation thatResults = that.results.get(location);
+        if (thatResults != null) {
+            addAll(location, thatResults);
+        }
+        if (that.streamedFailureLocations.contains(location)) {
+            streamedFailureLocations.add(location);
+        }
+        streamedWarnings |= that.streamedWarnings;
+        return this;
+    }
+
+    private void addAll(ValidationLocation location, ResultsPerLocation thatResults) {
+        if (thatResults.error.isEmpty() && thatResults.warning.isEmpty() && (!thatResults.hasPassed() || !this.storingPassingChecks)) {
+            return;
+        }
 
-            ResultsPerLocation thisResults = results.computeIfAbsent(resultsByLocation.getKey(), (x) -> new ResultsPerLocation());
-            thisResults.error.addAll(thatResults.error);
-            thisResults.warning.addAll(thatResults.warning);
+        if (listener != null) {
+            for (ValidationCheck check : thatResults.error) {
+                addError(location, check);
+            }
+            for (ValidationCheck check : thatResults.warning) {
+                addWarning(location, check);
+            }
             if (this.storingPassingChecks) {
-                thisResults.passed.addAll(thatResults.passed);
+                List<ValidationCheck> passed = new ArrayList<>();
+                thatResults.addPassedTo(passed);
+                for (ValidationCheck check : passed) {
+                    listener.onValidationCheck(location, check);
+                }
             }
+            return;
+        }
+
+        ResultsPerLocation thisResults = getResults(location);
+        thisResults.error.addAll(thatResults.error);
+        thisResults.warning.addAll(thatResults.warning);
+        if (this.storingPassingChecks) {
+            thisResults.addAllPassed(thatResults);
         }
-        return this;
     }
 
     private static final class ResultsPerLocation implements Serializable {
@@ -370,15 +524,102 @@ public final class ValidationResult implements Serializable {
         final List<ValidationCheck> warning = new ArrayList<>();
 
         // Average of 12-13 passed checks per location (min = 1, max = 18) as of 2020-07-08 on RIPE NCC trust anchor,
-        // we use a slightly higher initial capacity to avoid re-sizing.
-        final List<ValidationCheck> passed = new ArrayList<>(20);
+        // we use a slightly higher initial capacity to avoid re-sizing. Null when passing checks are compacted.
+        private List<ValidationCheck> passed;
+
+        // Ids of the keys of the passing checks (see ValidationCheckKeys) when passing checks are compacted, null
+        // otherwise. Ids are JVM specific, so the passing checks are always serialized as a list.
+        private transient BitSet passedKeys;
+
+        ResultsPerLocation(boolean compact) {
+            if (compact) {
+                passedKeys = new BitSet();
+            } else {
+                passed = new ArrayList<>(20);
+            }
+        }
+
+        void pass(String key, String[] params) {
+            if (passedKeys != null) {
+                passedKeys.set(ValidationCheckKeys.idOf(key));
+            } else {
+                passed.add(new ValidationCheck(ValidationStatus.PASSED, key, params));
+            }
+        }
+
+        boolean hasPassed() {
+            return passedKeys != null ? !passedKeys.isEmpty() : !passed.isEmpty();
+        }
+
+        void clearPassed() {
+            if (passedKeys != null) {
+                passedKeys.clear();
+            } else {
+                passed.clear();
+            }
+        }
+
+        void compactPassed() {
+            if (passedKeys == null) {
+                passedKeys = new BitSet();
+                for (ValidationCheck check : passed) {
+                    passedKeys.set(ValidationCheckKeys.idOf(check.getKey()));
+                }
+                passed = null;
+            }
+        }
+
+        void addAllPassed(ResultsPerLocation that) {
+            if (that.passedKeys != null) {
+                if (passedKeys != null) {
+                    passedKeys.or(that.passedKeys);
+                } else {
+                    that.addPassedTo(passed);
+                }
+            } else {
+                for (ValidationCheck check : that.passed) {
+                    pass(check.getKey(), check.getParams());
+                }
+            }
+        }
+
+        void addPassedTo(List<ValidationCheck> target) {
+            if (passedKeys != null) {
+                for (int id = passedKeys.nextSetBit(0); id >= 0; id = passedKeys.nextSetBit(id + 1)) {
+                    target.add(ValidationCheckKeys.passedCheck(id));
+                }
+            } else {
+                target.addAll(passed);
+            }
+        }
+
+        ValidationCheck findPassed(String key) {
+            if (passedKeys != null) {
+                int id = ValidationCheckKeys.findId(key);
+                return id >= 0 && passedKeys.get(id) ? ValidationCheckKeys.passedCheck(id) : null;
+            }
+            return findByKey(passed, key);
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            List<ValidationCheck> allPassed = passed;
+            if (passedKeys != null) {
+                allPassed = new ArrayList<>();
+                addPassedTo(allPassed);
+            }
+            ObjectOutputStream.PutField fields = out.putFields();
+            fields.put("error", error);
+            fields.put("warning", warning);
+            fields.put("passed", allPassed);
+            out.writeFields();
+        }
 
         @Override
         public String toString() {
             return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
                     .append("error", error)
                     .append("warning", warning)
-                    .append("passed", passed)
+                    .append("passed", passedKeys != null ? ValidationCheckKeys.keysOf(passedKeys) : passed)
                     .toString();
         }
     }
@@ -31,9 +31,11 @@ package net.ripe.rpki.commons.validation.objectvalidators;
 
 import com.google.common.collect.Lists;
 import net.ripe.ipresource.IpResourceSet;
+import net.ripe.rpki.commons.crypto.rfc3779.ImmutableResourceSet;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateObject;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509RouterCertificate;
+import net.ripe.rpki.commons.validation.ValidationOptions;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.commons.lang.builder.ToStringBuilder;
@@ -46,7 +48,9 @@ import java.util.List;
  * Represents the context used to validate an issued object. The context
  * contains the issuing certificate, its location, and the effective resource
  * set. The effective resource set must be used, in case the certificate
- * contains inherited IP resources.
+ * contains inherited IP resources. The context also carries the validation
+ * options, so objects that only see the context (such as CRL locators) use
+ * the same validation time.
  */
 public class CertificateRepositoryObjectValidationContext {
 
@@ -56,19 +60,34 @@ public class CertificateRepositoryObjectValidationContext {
 
     private final X509CertificateObject certificate;
 
-    private final IpResourceSet resources;
+    private final ImmutableResourceSet resources;
 
-    private IpResourceSet overclaiming = new IpResourceSet();
+    private final ValidationOptions options;
+
+    private ImmutableResourceSet overclaiming = ImmutableResourceSet.empty();
 
     public CertificateRepositoryObjectValidationContext(URI location, X509ResourceCertificate certificate) {
-        this(location, certificate, certificate.getResources(), Lists.newArrayList(certificate.getSubject().getName()));
+        this(location, certificate, ValidationOptions.strictValidation());
+    }
+
+    public CertificateRepositoryObjectValidationContext(URI location, X509ResourceCertificate certificate, ValidationOptions options) {
+        this(location, certificate, certificate.getImmutableResources(), Lists.newArrayList(certificate.getSubject().getName()), options);
     }
 
     public CertificateRepositoryObjectValidationContext(URI location, X509ResourceCertificate certificate, IpResourceSet resources, List<String> subjectChain) {
+        this(location, certificate, ImmutableResourceSet.of(resources), subjectChain);
+    }
+
+    public CertificateRepositoryObjectValidationContext(URI location, X509ResourceCertificate certificate, ImmutableResourceSet resources, List<String> subjectChain) {
+        this(location, certificate, resources, subjectChain, ValidationOptions.strictValidation());
+    }
+
+    public CertificateRepositoryObjectValidationContext(URI location, X509ResourceCertificate certificate, ImmutableResourceSet resources, List<String> subjectChain, ValidationOptions options) {
         this.location = location;
         this.certificate = certificate;
         this.resources = resources;
         this.subjectChain = subjectChain;
+        this.options = options;
     }
 
     public URI getLocation() {
@@ -97,6 +116,10 @@ public class CertificateRepositoryObjectValidationContext {
         return subjectChain;
     }
 
+    public ValidationOptions getOptions() {
+        return options;
+    }
+
     public URI getManifestURI() {
         return getCertificate().getManifestUri();
     }
@@ -114,28 +137,29 @@ public class CertificateRepositoryObjectValidationContext {
     }
 
     public void addOverclaiming(IpResourceSet overclaiming) {
-        this.overclaiming.addAll(overclaiming);
+        addOverclaiming(ImmutableResourceSet.of(overclaiming));
+    }
+
+    public void addOverclaiming(ImmutableResourceSet overclaiming) {
+        this.overclaiming = this.overclaiming.union(overclaiming);
     }
 
     public CertificateRepositoryObjectValidationContext createChildContext(URI childLocation, X509ResourceCertificate childCertificate) {
-        IpResourceSet effectiveResources = childCertificate.deriveResources(resources);
-        removeOverclaimingResources(effectiveResources);
+        ImmutableResourceSet effectiveResources = childCertificate.deriveResources(resources).difference(overclaiming);
         List<String> childSubjects = Lists.newArrayList(subjectChain);
         childSubjects.add(childCertificate.getSubject().getName());
-        return new CertificateRepositoryObjectValidationContext(childLocation, childCertificate, effectiveResources, childSubjects);
+        return new CertificateRepositoryObjectValidationContext(childLocation, childCertificate, effectiveResources, childSubjects, options);
     }
 
     public IpResourceSet getResources() {
-        IpResourceSet result = new IpResourceSet(resources);
-        removeOverclaimingResources(result);
-        return result;
+        return getImmutableResources().toIpResourceSet();
     }
 
-    private void removeOverclaimingResources(IpResourceSet resources) {
-        if (overclaiming.isEmpty() || resources.isEmpty()) {
-            return;
-        }
-        resources.removeAll(overclaiming);
+    /**
+     * @return the effective resources of this context, without the overclaiming resources
+     */
+    public ImmutableResourceSet getImmutableResources() {
+        return resources.difference(overclaiming);
     }
 
     @Override
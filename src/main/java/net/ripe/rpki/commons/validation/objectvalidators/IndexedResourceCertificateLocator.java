@@ -0,0 +1,167 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.objectvalidators;
+
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObjectFile;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import org.apache.commons.lang.Validate;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link ResourceCertificateLocator} backed by in-memory hash indexes: CA certificates by subject key identifier,
+ * and CRLs both by authority key identifier and by URI.
+ * <p>
+ * The indexes are filled incrementally, typically while the objects of a repository are parsed, and can be read and
+ * updated from multiple threads at the same time. Lookups are single hash map reads on prebuilt
+ * {@link CertificateRepositoryObjectFile}s. When two CRLs with the same authority key identifier are added the one
+ * with the highest CRL number is kept in the key identifier index.
+ */
+public final class IndexedResourceCertificateLocator implements ResourceCertificateLocator {
+
+    private final ConcurrentMap<ByteBuffer, CertificateRepositoryObjectFile<X509ResourceCertificate>> certificatesBySubjectKeyIdentifier = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<ByteBuffer, IndexedCrl> crlsByAuthorityKeyIdentifier = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<URI, CertificateRepositoryObjectFile<X509Crl>> crlsByUri = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a certificate that may be the parent of other certificates. Certificates without a subject key identifier
+     * can not be found and are ignored.
+     */
+    public IndexedResourceCertificateLocator add(URI location, X509ResourceCertificate certificate) {
+        Validate.notNull(location, "location is required");
+        Validate.notNull(certificate, "certificate is required");
+        byte[] subjectKeyIdentifier = certificate.getSubjectKeyIdentifier();
+        if (subjectKeyIdentifier != null) {
+            certificatesBySubjectKeyIdentifier.put(ByteBuffer.wrap(subjectKeyIdentifier),
+                    new CertificateRepositoryObjectFile<>(X509ResourceCertificate.class, location.toString(), certificate.getEncoded()));
+        }
+        return this;
+    }
+
+    public IndexedResourceCertificateLocator add(URI location, X509Crl crl) {
+        Validate.notNull(location, "location is required");
+        Validate.notNull(crl, "crl is required");
+        CertificateRepositoryObjectFile<X509Crl> file = new CertificateRepositoryObjectFile<>(X509Crl.class, location.toString(), crl.getEncoded());
+        crlsByUri.put(location, file);
+        byte[] authorityKeyIdentifier = crl.getAuthorityKeyIdentifier();
+        if (authorityKeyIdentifier != null) {
+            IndexedCrl added = new IndexedCrl(crl.getNumber(), file);
+            crlsByAuthorityKeyIdentifier.merge(ByteBuffer.wrap(authorityKeyIdentifier), added, (existing, candidate) -> candidate.isNewerThan(existing) ? candidate : existing);
+        }
+        return this;
+    }
+
+    public void removeCertificate(byte[] subjectKeyIdentifier) {
+        certificatesBySubjectKeyIdentifier.remove(ByteBuffer.wrap(subjectKeyIdentifier));
+    }
+
+    public void removeCrl(URI location) {
+        CertificateRepositoryObjectFile<X509Crl> removed = crlsByUri.remove(location);
+        if (removed != null) {
+            crlsByAuthorityKeyIdentifier.values().removeIf(indexed -> indexed.file == removed);
+        }
+    }
+
+    public void clear() {
+        certificatesBySubjectKeyIdentifier.clear();
+        crlsByAuthorityKeyIdentifier.clear();
+        crlsByUri.clear();
+    }
+
+    public int getCertificateCount() {
+        return certificatesBySubjectKeyIdentifier.size();
+    }
+
+    public int getCrlCount() {
+        return crlsByUri.size();
+    }
+
+    /**
+     * @return the certificate with a subject key identifier matching the authority key identifier of the certificate,
+     * or null when it is not known.
+     */
+    @Override
+    public CertificateRepositoryObjectFile<X509ResourceCertificate> findParent(X509ResourceCertificate certificate) {
+        return findCertificate(certificate.getAuthorityKeyIdentifier());
+    }
+
+    public CertificateRepositoryObjectFile<X509ResourceCertificate> findCertificate(byte[] subjectKeyIdentifier) {
+        return subjectKeyIdentifier == null ? null : certificatesBySubjectKeyIdentifier.get(ByteBuffer.wrap(subjectKeyIdentifier));
+    }
+
+    /**
+     * @return the CRL at the CRL distribution point of the certificate, or the most recent CRL issued by the
+     * certificate's issuer when the distribution point is not known.
+     */
+    @Override
+    public CertificateRepositoryObjectFile<X509Crl> findCrl(X509ResourceCertificate certificate) {
+        URI crlUri = certificate.getCrlUri();
+        if (crlUri != null) {
+            CertificateRepositoryObjectFile<X509Crl> result = crlsByUri.get(crlUri);
+            if (result != null) {
+                return result;
+            }
+        }
+        return findCrlByAuthorityKeyIdentifier(certificate.getAuthorityKeyIdentifier());
+    }
+
+    public CertificateRepositoryObjectFile<X509Crl> findCrl(URI location) {
+        return crlsByUri.get(location);
+    }
+
+    public CertificateRepositoryObjectFile<X509Crl> findCrlByAuthorityKeyIdentifier(byte[] authorityKeyIdentifier) {
+        if (authorityKeyIdentifier == null) {
+            return null;
+        }
+        IndexedCrl result = crlsByAuthorityKeyIdentifier.get(ByteBuffer.wrap(authorityKeyIdentifier));
+        return result == null ? null : result.file;
+    }
+
+    private static final class IndexedCrl {
+        private final BigInteger number;
+        private final CertificateRepositoryObjectFile<X509Crl> file;
+
+        private IndexedCrl(BigInteger number, CertificateRepositoryObjectFile<X509Crl> file) {
+            this.number = number;
+            this.file = file;
+        }
+
+        private boolean isNewerThan(IndexedCrl that) {
+            return number == null || that.number == null || number.compareTo(that.number) >= 0;
+        }
+    }
+}
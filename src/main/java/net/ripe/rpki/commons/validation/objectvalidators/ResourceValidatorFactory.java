@@ -31,6 +31,7 @@ package net.ripe.rpki.commons.validation.objectvalidators;
 
 import net.ripe.ipresource.IpResourceSet;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.rfc3779.ImmutableResourceSet;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
@@ -41,7 +42,7 @@ public class ResourceValidatorFactory {
             CertificateRepositoryObjectValidationContext context,
             ValidationOptions options, ValidationResult result, X509Crl crl) {
 
-        return new X509ResourceCertificateParentChildValidator(options, result, context.getCertificate(), crl, context.getResources());
+        return new X509ResourceCertificateParentChildValidator(options, result, context.getCertificate(), crl, context.getImmutableResources());
     }
 
     public static X509ResourceCertificateValidator getX509ResourceCertificateValidator(
@@ -51,7 +52,7 @@ public class ResourceValidatorFactory {
         if (options.isAllowOverclaimParentChild())
             return new X509ResourceCertificateParentChildLooseValidator(options, result, crl, context);
 
-        return new X509ResourceCertificateParentChildValidator(options, result, context.getCertificate(), crl, context.getResources());
+        return new X509ResourceCertificateParentChildValidator(options, result, context.getCertificate(), crl, context.getImmutableResources());
     }
 
     public static X509ResourceCertificateParentChildValidator getX509ResourceCertificateParentChildStrictValidator(
@@ -59,4 +60,10 @@ public class ResourceValidatorFactory {
             IpResourceSet resources, X509Crl crl) {
         return new X509ResourceCertificateParentChildValidator(options, result, parent, crl, resources);
     }
+
+    public static X509ResourceCertificateParentChildValidator getX509ResourceCertificateParentChildStrictValidator(
+            ValidationOptions options, ValidationResult result, X509ResourceCertificate parent,
+            ImmutableResourceSet resources, X509Crl crl) {
+        return new X509ResourceCertificateParentChildValidator(options, result, parent, crl, resources);
+    }
 }
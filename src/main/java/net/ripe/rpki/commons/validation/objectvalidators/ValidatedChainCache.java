@@ -0,0 +1,239 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.objectvalidators;
+
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.rfc3779.ImmutableResourceSet;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import org.apache.commons.lang.Validate;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of CA certificates that were validated as part of a complete chain to a trust anchor, keyed by
+ * subject key identifier. Least recently used entries are evicted first.
+ * <p>
+ * Each entry holds the certificate, its effective resources and the CRL it issued, which is everything
+ * {@link X509ResourceCertificateBottomUpValidator} needs to validate a child. Share one instance between validators
+ * so that the ancestors of many leaf certificates are parsed and verified only once. Entries expire when the
+ * certificate, its CRL or any of its cached ancestors expire, so changes to the ancestors are picked up at the latest
+ * when the CRLs they issued are due to be updated. Each entry also records the trust anchor of its chain and the
+ * encoded certificate and CRL, so that callers can check that a cached certificate still matches the repository and
+ * their trust anchors before using it. Instances are thread-safe.
+ */
+public final class ValidatedChainCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private static final ValidatedChainCache DISABLED = new ValidatedChainCache(0);
+
+    private final int maximumSize;
+
+    private final Map<ByteBuffer, CachedCertificate> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private ValidatedChainCache(final int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<ByteBuffer, CachedCertificate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CachedCertificate> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    public static ValidatedChainCache create() {
+        return withMaximumSize(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public static ValidatedChainCache withMaximumSize(int maximumSize) {
+        Validate.isTrue(maximumSize > 0, "maximumSize must be positive");
+        return new ValidatedChainCache(maximumSize);
+    }
+
+    /**
+     * @return a cache that never stores certificates, so every chain is validated completely.
+     */
+    public static ValidatedChainCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return the validated certificate with the subject key identifier, or null when it is not cached, expired at
+     * <code>now</code> or rejected by <code>current</code>. Expired and rejected entries are removed.
+     */
+    public CachedCertificate get(byte[] subjectKeyIdentifier, long now, Predicate<CachedCertificate> current) {
+        if (maximumSize == 0 || subjectKeyIdentifier == null) {
+            return null;
+        }
+        ByteBuffer key = ByteBuffer.wrap(subjectKeyIdentifier);
+        CachedCertificate result;
+        synchronized (entries) {
+            result = entries.get(key);
+        }
+        if (result != null && (result.getExpiresAt() <= now || !current.test(result))) {
+            synchronized (entries) {
+                entries.remove(key, result);
+            }
+            result = null;
+        }
+        if (result == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return result;
+    }
+
+    void put(CachedCertificate certificate) {
+        byte[] subjectKeyIdentifier = certificate.getCertificate().getSubjectKeyIdentifier();
+        if (maximumSize == 0 || subjectKeyIdentifier == null) {
+            return;
+        }
+        ByteBuffer key = ByteBuffer.wrap(subjectKeyIdentifier);
+        synchronized (entries) {
+            entries.put(key, certificate);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * A CA certificate with a validated chain to a trust anchor.
+     */
+    public static final class CachedCertificate {
+        private final X509ResourceCertificate certificate;
+        private final ValidationLocation location;
+        private final ImmutableResourceSet resources;
+        private final X509Crl crl;
+        private final X509ResourceCertificate trustAnchor;
+        private final CachedCertificate issuer;
+        private final byte[] encodedCertificate;
+        private final int chainLength;
+        private final long expiresAt;
+
+        CachedCertificate(X509ResourceCertificate certificate, ValidationLocation location, ImmutableResourceSet resources, X509Crl crl,
+                          X509ResourceCertificate trustAnchor, CachedCertificate issuer, int chainLength, long parentExpiresAt) {
+            this.certificate = certificate;
+            this.location = location;
+            this.resources = resources;
+            this.crl = crl;
+            this.trustAnchor = trustAnchor;
+            this.issuer = issuer;
+            this.encodedCertificate = certificate.getEncoded();
+            this.chainLength = chainLength;
+            this.expiresAt = Math.min(parentExpiresAt,
+                    Math.min(certificate.getValidityPeriod().getNotValidAfter().getMillis(), crl.getNextUpdateTime().getMillis()));
+        }
+
+        /**
+         * @return true when the encoded certificate and CRL are the ones that were validated for this entry.
+         */
+        public boolean matches(byte[] encodedCertificate, byte[] encodedCrl) {
+            return sameBytes(this.encodedCertificate, encodedCertificate) && sameBytes(crl.getEncoded(), encodedCrl);
+        }
+
+        private static boolean sameBytes(byte[] cached, byte[] located) {
+            // Arrays.equals returns early on a different length, so a changed CRL is usually rejected without a scan
+            return cached == located || Arrays.equals(cached, located);
+        }
+
+        public X509ResourceCertificate getCertificate() {
+            return certificate;
+        }
+
+        public ValidationLocation getLocation() {
+            return location;
+        }
+
+        /**
+         * @return the effective resources of the certificate, with inherited resources resolved.
+         */
+        public ImmutableResourceSet getResources() {
+            return resources;
+        }
+
+        /**
+         * @return the CRL issued by the certificate.
+         */
+        public X509Crl getCrl() {
+            return crl;
+        }
+
+        public X509ResourceCertificate getTrustAnchor() {
+            return trustAnchor;
+        }
+
+        /**
+         * @return the entry of the issuer of the certificate, or null when the certificate is the trust anchor.
+         */
+        public CachedCertificate getIssuer() {
+            return issuer;
+        }
+
+        /**
+         * @return the number of certificates from the trust anchor up to and including this certificate.
+         */
+        public int getChainLength() {
+            return chainLength;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -31,14 +31,11 @@ package net.ripe.rpki.commons.validation.objectvalidators;
 
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
 import net.ripe.rpki.commons.crypto.x509cert.AbstractX509CertificateWrapper;
-import net.ripe.rpki.commons.util.UTC;
 import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import org.joda.time.DateTime;
 
-import java.security.InvalidKeyException;
-import java.security.SignatureException;
 import java.util.Arrays;
 
 import static net.ripe.rpki.commons.validation.ValidationString.*;
@@ -91,14 +88,10 @@ public abstract class X509CertificateParentChildValidator<T extends AbstractX509
     private void verifySignature() {
         result.rejectIfFalse(parent.isCa(), ISSUER_IS_CA);
 
-        boolean errorOccurred = false;
-        try {
-            child.verify(parent.getPublicKey()); // signed with issuer's public key
-        } catch (SignatureException | InvalidKeyException e) {
-            errorOccurred = true;
-        }
+        // signed with issuer's public key
+        boolean signatureValid = options.getSignatureVerificationCache().isValid(child.getEncoded(), parent.getPublicKey(), child::verify);
 
-        result.rejectIfTrue(errorOccurred, SIGNATURE_VALID);
+        result.rejectIfFalse(signatureValid, SIGNATURE_VALID);
     }
 
     private void verifyCrl() {
@@ -107,23 +100,18 @@ public abstract class X509CertificateParentChildValidator<T extends AbstractX509
             return;
         }
 
-        boolean errorOccurred = false;
-        try {
-            crl.verify(parent.getPublicKey());
-        } catch (SignatureException e) {
-            errorOccurred = true;
-        }
+        boolean signatureValid = options.getSignatureVerificationCache().isValid(crl.getEncoded(), parent.getPublicKey(), crl::verify);
 
-        result.rejectIfTrue(errorOccurred, CRL_SIGNATURE_VALID);
+        result.rejectIfFalse(signatureValid, CRL_SIGNATURE_VALID);
         result.rejectIfTrue(crl.isRevoked(child.getCertificate()), CERT_NOT_REVOKED);
     }
 
     protected void verifyValidity() {
-        final DateTime now = UTC.dateTime();
+        final long now = options.getValidationTimeMillis();
         final DateTime notValidBefore = child.getValidityPeriod().getNotValidBefore();
         final DateTime notValidAfter = child.getValidityPeriod().getNotValidAfter();
-        result.rejectIfTrue(now.isBefore(notValidBefore), NOT_VALID_BEFORE, notValidBefore.toString());
-        result.rejectIfTrue(now.isAfter(notValidAfter), NOT_VALID_AFTER, notValidAfter.toString());
+        result.rejectIfTrue(now < notValidBefore.getMillis(), NOT_VALID_BEFORE, notValidBefore.toString());
+        result.rejectIfTrue(now > notValidAfter.getMillis(), NOT_VALID_AFTER, notValidAfter.toString());
     }
 
     private void verifyIssuer() {
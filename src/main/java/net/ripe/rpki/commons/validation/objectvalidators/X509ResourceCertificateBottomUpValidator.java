@@ -29,15 +29,17 @@
  */
 package net.ripe.rpki.commons.validation.objectvalidators;
 
-import net.ripe.ipresource.IpResourceSet;
 import net.ripe.rpki.commons.crypto.CertificateRepositoryObjectFile;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.rfc3779.ImmutableResourceSet;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
 import net.ripe.rpki.commons.validation.ValidationLocation;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.objectvalidators.ValidatedChainCache.CachedCertificate;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -56,6 +58,7 @@ public class X509ResourceCertificateBottomUpValidator implements X509ResourceCer
     private ValidationOptions options;
     private ValidationResult result;
     private ValidationLocation location;
+    private ValidatedChainCache chainCache;
 
 
     public X509ResourceCertificateBottomUpValidator(ResourceCertificateLocator locator, X509ResourceCertificate... trustAnchors) {
@@ -67,11 +70,21 @@ public class X509ResourceCertificateBottomUpValidator implements X509ResourceCer
     }
 
     public X509ResourceCertificateBottomUpValidator(ValidationOptions options, ValidationResult result, ResourceCertificateLocator locator, Collection<X509ResourceCertificate> trustAnchors) {
+        this(options, result, locator, trustAnchors, ValidatedChainCache.disabled());
+    }
+
+    /**
+     * @param chainCache shared cache of validated ancestors. Validation of a chain stops at the first cached ancestor
+     *                   whose certificate and CRL still match the ones found by the locator, and the ancestors of a
+     *                   chain without failures are added to the cache.
+     */
+    public X509ResourceCertificateBottomUpValidator(ValidationOptions options, ValidationResult result, ResourceCertificateLocator locator, Collection<X509ResourceCertificate> trustAnchors, ValidatedChainCache chainCache) {
         this.options = options;
         this.result = result;
         this.location = new ValidationLocation("unknown.cer");
         this.locator = locator;
         this.trustAnchors = trustAnchors;
+        this.chainCache = chainCache;
     }
 
     @Override
@@ -84,24 +97,50 @@ public class X509ResourceCertificateBottomUpValidator implements X509ResourceCer
         this.location = new ValidationLocation(location);
         this.certificate = certificate;
 
-        buildCertificationList();
+        CachedCertificate cachedAncestor = buildCertificationList();
         if (result.hasFailures()) {
             // stop validation: certificate chain too long
             return;
         }
 
-        checkTrustAnchor();
-
-        X509ResourceCertificate parent = certificates.get(0).getCertificate();
-        certificates.remove(0); // No need to validate the root (1st parent) certificate against itself
-
-        IpResourceSet resources = parent.getResources();
+        X509ResourceCertificate parent;
+        ValidationLocation parentLocation;
+        ImmutableResourceSet resources;
+        X509ResourceCertificate trustAnchor;
+        CachedCertificate issuer;
+        int chainLength;
+        long expiresAt;
+        if (cachedAncestor == null) {
+            checkTrustAnchor();
+
+            parent = certificates.get(0).getCertificate();
+            parentLocation = certificates.get(0).getLocation();
+            certificates.remove(0); // No need to validate the root (1st parent) certificate against itself
+
+            resources = parent.getImmutableResources();
+            trustAnchor = parent;
+            issuer = null;
+            chainLength = 1;
+            expiresAt = Long.MAX_VALUE;
+        } else {
+            checkTrustAnchor(cachedAncestor.getTrustAnchor());
+
+            parent = cachedAncestor.getCertificate();
+            parentLocation = cachedAncestor.getLocation();
+            resources = cachedAncestor.getResources();
+            trustAnchor = cachedAncestor.getTrustAnchor();
+            issuer = cachedAncestor;
+            chainLength = cachedAncestor.getChainLength();
+            expiresAt = cachedAncestor.getExpiresAt();
+        }
 
+        List<CachedCertificate> validatedAncestors = new ArrayList<>();
         for (CertificateWithLocation certificateWithLocation : certificates) {
             String childLocation = certificateWithLocation.getLocation().getName();
             X509ResourceCertificate child = certificateWithLocation.getCertificate();
 
-            X509Crl crl = getCRL(child, result);
+            boolean parentCached = cachedAncestor != null && parent == cachedAncestor.getCertificate();
+            X509Crl crl = parentCached ? cachedAncestor.getCrl() : getCRL(child, result);
             if (result.hasFailures()) {
                 // stop validation: crl cannot be parsed
                 return;
@@ -110,24 +149,47 @@ public class X509ResourceCertificateBottomUpValidator implements X509ResourceCer
             X509ResourceCertificateParentChildValidator validator = ResourceValidatorFactory.getX509ResourceCertificateParentChildStrictValidator(options, result, parent, resources, crl);
             validator.validate(childLocation, child);
 
+            if (crl != null && !parentCached) {
+                CachedCertificate validated = new CachedCertificate(parent, parentLocation, resources, crl, trustAnchor, issuer, chainLength, expiresAt);
+                validatedAncestors.add(validated);
+                issuer = validated;
+                expiresAt = validated.getExpiresAt();
+            }
+            chainLength++;
+
             resources = child.deriveResources(resources);
             parent = child;
+            parentLocation = certificateWithLocation.getLocation();
+        }
+
+        if (!result.hasFailures()) {
+            for (CachedCertificate validated : validatedAncestors) {
+                chainCache.put(validated);
+            }
         }
     }
 
-    private void buildCertificationList() {
+    private CachedCertificate buildCertificationList() {
         certificates.add(0, new CertificateWithLocation(this.certificate, this.location));
         result.setLocation(this.location);
         if (!result.rejectIfFalse(certificates.size() <= MAX_CHAIN_LENGTH, CERT_CHAIN_LENGTH, Integer.valueOf(MAX_CHAIN_LENGTH).toString())) {
-            return;
+            return null;
         }
 
+        long now = options.getValidationTimeMillis();
         X509ResourceCertificate cert = this.certificate;
         while (!cert.isRoot()) {
+            X509ResourceCertificate child = cert;
+            CachedCertificate cachedParent = chainCache.get(cert.getAuthorityKeyIdentifier(), now, cached -> isCurrent(cached, child));
+            if (cachedParent != null) {
+                result.rejectIfFalse(cachedParent.getChainLength() + certificates.size() <= MAX_CHAIN_LENGTH, CERT_CHAIN_LENGTH, Integer.valueOf(MAX_CHAIN_LENGTH).toString());
+                return cachedParent;
+            }
+
             CertificateRepositoryObjectFile<X509ResourceCertificate> parent = locator.findParent(cert);
 
             if (!result.rejectIfNull(parent, CERT_CHAIN_COMPLETE)) {
-                return;
+                return null;
             }
 
             ValidationLocation parentLocation = new ValidationLocation(parent.getName());
@@ -136,16 +198,30 @@ public class X509ResourceCertificateBottomUpValidator implements X509ResourceCer
             X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
             parser.parse(result, parent.getContent());
             if (result.hasFailures()) {
-                return;
+                return null;
             }
 
             cert = parser.getCertificate();
             certificates.add(0, new CertificateWithLocation(cert, parentLocation));
             if (!result.rejectIfFalse(certificates.size() <= MAX_CHAIN_LENGTH, CERT_CHAIN_LENGTH, Integer.valueOf(MAX_CHAIN_LENGTH).toString())) {
-                return;
+                return null;
             }
         }
+        return null;
+    }
 
+    /**
+     * A cached certificate is only used when its chain ends in one of our trust anchors, and when the certificate and
+     * the CRL it issued are still the ones found by the locator, so a reissued certificate or a new CRL is validated
+     * again. Its ancestors were checked when it was cached, and the entry expires with them.
+     */
+    private boolean isCurrent(CachedCertificate cached, X509ResourceCertificate child) {
+        if ((trustAnchors != null) && (trustAnchors.size() > 0) && !trustAnchors.contains(cached.getTrustAnchor())) {
+            return false;
+        }
+        CertificateRepositoryObjectFile<X509ResourceCertificate> parentFile = locator.findParent(child);
+        CertificateRepositoryObjectFile<X509Crl> crlFile = locator.findCrl(child);
+        return parentFile != null && crlFile != null && cached.matches(parentFile.getContent(), crlFile.getContent());
     }
 
     private X509Crl getCRL(X509ResourceCertificate certificate, ValidationResult validationResult) {
@@ -157,8 +233,12 @@ public class X509ResourceCertificateBottomUpValidator implements X509ResourceCer
     }
 
     private void checkTrustAnchor() {
+        checkTrustAnchor(certificates.get(0).getCertificate());
+    }
+
+    private void checkTrustAnchor(X509ResourceCertificate root) {
         if ((trustAnchors != null) && (trustAnchors.size() > 0)) {
-            result.rejectIfFalse(trustAnchors.contains(certificates.get(0).getCertificate()), ROOT_IS_TA);
+            result.rejectIfFalse(trustAnchors.contains(root), ROOT_IS_TA);
         }
     }
 
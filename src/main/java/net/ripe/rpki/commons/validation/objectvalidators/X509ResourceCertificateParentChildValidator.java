@@ -31,6 +31,7 @@ package net.ripe.rpki.commons.validation.objectvalidators;
 
 import net.ripe.ipresource.IpResourceSet;
 import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.rfc3779.ImmutableResourceSet;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
@@ -40,9 +41,13 @@ import static net.ripe.rpki.commons.validation.ValidationString.*;
 
 public class X509ResourceCertificateParentChildValidator extends X509CertificateParentChildValidator<X509ResourceCertificate> implements X509ResourceCertificateValidator {
 
-    private IpResourceSet resources;
+    private final ImmutableResourceSet resources;
 
     public X509ResourceCertificateParentChildValidator(ValidationOptions options, ValidationResult result, X509ResourceCertificate parent, X509Crl crl, IpResourceSet resources) {
+        this(options, result, parent, crl, ImmutableResourceSet.of(resources));
+    }
+
+    public X509ResourceCertificateParentChildValidator(ValidationOptions options, ValidationResult result, X509ResourceCertificate parent, X509Crl crl, ImmutableResourceSet resources) {
         super(options, result, parent, crl);
         this.resources = resources;
     }
@@ -56,14 +61,13 @@ public class X509ResourceCertificateParentChildValidator extends X509Certificate
     private void verifyResources() {
         final ValidationResult result = getValidationResult();
         final X509ResourceCertificate child = getChild();
-        final IpResourceSet childResourceSet = child.deriveResources(resources);
+        final ImmutableResourceSet childResourceSet = child.deriveResources(resources);
 
         if (child.isRoot()) {
             result.rejectIfTrue(child.isResourceSetInherited(), ROOT_INHERITS_RESOURCES);
         } else {
             if (!resources.contains(childResourceSet)) {
-                final IpResourceSet overclaiming = new IpResourceSet(childResourceSet);
-                overclaiming.removeAll(resources);
+                final ImmutableResourceSet overclaiming = childResourceSet.difference(resources);
                 result.rejectIfFalse(overclaiming.isEmpty(), RESOURCE_RANGE, overclaiming.toString());
             }
         }
@@ -0,0 +1,294 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.Ipv4Address;
+import org.apache.commons.lang.Validate;
+
+import java.util.Arrays;
+
+/**
+ * Immutable index of allowed routes for route origin validation. Gives the same results as
+ * {@link RouteOriginValidationPolicy#validateAnnouncedRoute(net.ripe.ipresource.etree.NestedIntervalMap, AnnouncedRoute)}
+ * but without allocating objects for each lookup.
+ * <p>
+ * The allowed routes are stored in a path compressed binary trie per address family. Nodes are only created for the
+ * prefixes of the allowed routes and for the points where these prefixes branch. Both nodes and routes are stored in
+ * parallel primitive arrays. Addresses are stored left aligned in a pair of <code>long</code>s, so IPv4 prefixes use
+ * the upper 32 bits of the first <code>long</code> only.
+ * <p>
+ * Instances are safe to share between threads.
+ */
+public final class AllowedRouteIndex {
+
+    private static final int NONE = -1;
+
+    private final Trie ipv4;
+
+    private final Trie ipv6;
+
+    private AllowedRouteIndex(Trie ipv4, Trie ipv6) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+    }
+
+    public static AllowedRouteIndex of(Iterable<? extends AllowedRoute> allowedRoutes) {
+        TrieBuilder ipv4 = new TrieBuilder();
+        TrieBuilder ipv6 = new TrieBuilder();
+        for (AllowedRoute allowedRoute : allowedRoutes) {
+            IpRange prefix = allowedRoute.getPrefix();
+            Validate.isTrue(prefix.isLegalPrefix(), "allowed route prefix must be a legal prefix");
+            TrieBuilder builder = prefix.getType() == IpResourceType.IPv4 ? ipv4 : ipv6;
+            builder.add(high(prefix), low(prefix), prefix.getPrefixLength(), allowedRoute);
+        }
+        return new AllowedRouteIndex(ipv4.build(), ipv6.build());
+    }
+
+    /**
+     * @return the number of allowed routes in this index.
+     */
+    public int size() {
+        return ipv4.asns.length + ipv6.asns.length;
+    }
+
+    public RouteValidityState validate(AnnouncedRoute announcedRoute) {
+        IpRange prefix = announcedRoute.getPrefix();
+        Trie trie = prefix.getType() == IpResourceType.IPv4 ? ipv4 : ipv6;
+        return trie.validate(high(prefix), low(prefix), prefix.getPrefixLength(), (int) announcedRoute.getOriginAsn().longValue());
+    }
+
+    static long high(IpRange prefix) {
+        if (prefix.getType() == IpResourceType.IPv4) {
+            return ((Ipv4Address) prefix.getStart()).longValue() << 32;
+        }
+        return prefix.getStart().getValue().shiftRight(Long.SIZE).longValue();
+    }
+
+    static long low(IpRange prefix) {
+        if (prefix.getType() == IpResourceType.IPv4) {
+            return 0L;
+        }
+        return prefix.getStart().getValue().longValue();
+    }
+
+    static int bitAt(long high, long low, int position) {
+        return (int) (position < Long.SIZE ? high >>> (63 - position) : low >>> (127 - position)) & 1;
+    }
+
+    static int commonPrefixLength(long high1, long low1, long high2, long low2) {
+        long difference = high1 ^ high2;
+        if (difference != 0) {
+            return Long.numberOfLeadingZeros(difference);
+        }
+        return Long.SIZE + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    static long maskHigh(long high, int length) {
+        return length == 0 ? 0L : length >= Long.SIZE ? high : high & (-1L << (Long.SIZE - length));
+    }
+
+    static long maskLow(long low, int length) {
+        return length <= Long.SIZE ? 0L : low & (-1L << (2 * Long.SIZE - length));
+    }
+
+    /**
+     * Flattened, immutable trie. The routes of node <code>n</code> are stored at the indexes
+     * <code>routeStart[n]</code> (inclusive) to <code>routeStart[n + 1]</code> (exclusive), in the order in which they
+     * were added.
+     */
+    private static final class Trie {
+        private final int root;
+        private final long[] nodeHigh;
+        private final long[] nodeLow;
+        private final byte[] nodeLength;
+        private final int[] left;
+        private final int[] right;
+        private final int[] routeStart;
+        private final int[] asns;
+        private final byte[] maximumLengths;
+
+        private Trie(int root, long[] nodeHigh, long[] nodeLow, byte[] nodeLength, int[] left, int[] right, int[] routeStart, int[] asns, byte[] maximumLengths) {
+            this.root = root;
+            this.nodeHigh = nodeHigh;
+            this.nodeLow = nodeLow;
+            this.nodeLength = nodeLength;
+            this.left = left;
+            this.right = right;
+            this.routeStart = routeStart;
+            this.asns = asns;
+            this.maximumLengths = maximumLengths;
+        }
+
+        RouteValidityState validate(long high, long low, int length, int originAsn) {
+            RouteValidityState result = RouteValidityState.UNKNOWN;
+            int node = root;
+            while (node != NONE) {
+                int nodeLen = nodeLength[node] & 0xff;
+                if (nodeLen > length || commonPrefixLength(high, low, nodeHigh[node], nodeLow[node]) < nodeLen) {
+                    break;
+                }
+                // Every route stored on this node covers the announced prefix, so the route is never unknown.
+                for (int i = routeStart[node]; i < routeStart[node + 1]; ++i) {
+                    if (asns[i] != originAsn) {
+                        result = RouteValidityState.INVALID_ASN;
+                    } else if (length > (maximumLengths[i] & 0xff)) {
+                        result = RouteValidityState.INVALID_LENGTH;
+                    } else {
+                        return RouteValidityState.VALID;
+                    }
+                }
+                if (nodeLen == length) {
+                    break;
+                }
+                node = bitAt(high, low, nodeLen) == 0 ? left[node] : right[node];
+            }
+            return result;
+        }
+    }
+
+    private static final class TrieBuilder {
+        private int root = NONE;
+        private int nodeCount;
+        private long[] nodeHigh = new long[16];
+        private long[] nodeLow = new long[16];
+        private byte[] nodeLength = new byte[16];
+        private int[] left = new int[16];
+        private int[] right = new int[16];
+
+        private int routeCount;
+        private int[] routeNode = new int[16];
+        private int[] asns = new int[16];
+        private byte[] maximumLengths = new byte[16];
+
+        void add(long high, long low, int length, AllowedRoute allowedRoute) {
+            int node = insert(high, low, length);
+            if (routeCount == asns.length) {
+                int capacity = 2 * routeCount;
+                routeNode = Arrays.copyOf(routeNode, capacity);
+                asns = Arrays.copyOf(asns, capacity);
+                maximumLengths = Arrays.copyOf(maximumLengths, capacity);
+            }
+            routeNode[routeCount] = node;
+            asns[routeCount] = (int) allowedRoute.getAsn().longValue();
+            maximumLengths[routeCount] = (byte) allowedRoute.getMaximumLength();
+            routeCount++;
+        }
+
+        private int insert(long high, long low, int length) {
+            int parent = NONE;
+            int side = 0;
+            int node = root;
+            while (true) {
+                if (node == NONE) {
+                    int leaf = newNode(high, low, length);
+                    link(parent, side, leaf);
+                    return leaf;
+                }
+                int nodeLen = nodeLength[node] & 0xff;
+                int common = Math.min(commonPrefixLength(high, low, nodeHigh[node], nodeLow[node]), Math.min(length, nodeLen));
+                if (common == nodeLen) {
+                    if (length == nodeLen) {
+                        return node;
+                    }
+                    parent = node;
+                    side = bitAt(high, low, nodeLen);
+                    node = side == 0 ? left[node] : right[node];
+                } else if (common == length) {
+                    // New prefix covers the existing node
+                    int inserted = newNode(high, low, length);
+                    link(inserted, bitAt(nodeHigh[node], nodeLow[node], length), node);
+                    link(parent, side, inserted);
+                    return inserted;
+                } else {
+                    // Prefixes diverge after the common bits, add a branching node without routes
+                    int branch = newNode(maskHigh(high, common), maskLow(low, common), common);
+                    int inserted = newNode(high, low, length);
+                    link(branch, bitAt(nodeHigh[node], nodeLow[node], common), node);
+                    link(branch, bitAt(high, low, common), inserted);
+                    link(parent, side, branch);
+                    return inserted;
+                }
+            }
+        }
+
+        private void link(int parent, int side, int child) {
+            if (parent == NONE) {
+                root = child;
+            } else if (side == 0) {
+                left[parent] = child;
+            } else {
+                right[parent] = child;
+            }
+        }
+
+        private int newNode(long high, long low, int length) {
+            if (nodeCount == nodeHigh.length) {
+                int capacity = 2 * nodeCount;
+                nodeHigh = Arrays.copyOf(nodeHigh, capacity);
+                nodeLow = Arrays.copyOf(nodeLow, capacity);
+                nodeLength = Arrays.copyOf(nodeLength, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+            }
+            int node = nodeCount++;
+            nodeHigh[node] = maskHigh(high, length);
+            nodeLow[node] = maskLow(low, length);
+            nodeLength[node] = (byte) length;
+            left[node] = NONE;
+            right[node] = NONE;
+            return node;
+        }
+
+        Trie build() {
+            // Stable counting sort of the routes by node, so routes for the same prefix keep their order.
+            int[] routeStart = new int[nodeCount + 1];
+            for (int i = 0; i < routeCount; ++i) {
+                routeStart[routeNode[i] + 1]++;
+            }
+            for (int n = 0; n < nodeCount; ++n) {
+                routeStart[n + 1] += routeStart[n];
+            }
+            int[] next = Arrays.copyOf(routeStart, nodeCount);
+            int[] sortedAsns = new int[routeCount];
+            byte[] sortedMaximumLengths = new byte[routeCount];
+            for (int i = 0; i < routeCount; ++i) {
+                int target = next[routeNode[i]]++;
+                sortedAsns[target] = asns[i];
+                sortedMaximumLengths[target] = maximumLengths[i];
+            }
+            return new Trie(root,
+                    Arrays.copyOf(nodeHigh, nodeCount), Arrays.copyOf(nodeLow, nodeCount), Arrays.copyOf(nodeLength, nodeCount),
+                    Arrays.copyOf(left, nodeCount), Arrays.copyOf(right, nodeCount),
+                    routeStart, sortedAsns, sortedMaximumLengths);
+        }
+    }
+}
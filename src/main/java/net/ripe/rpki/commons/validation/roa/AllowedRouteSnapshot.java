@@ -0,0 +1,331 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.Ipv4Address;
+import net.ripe.ipresource.Ipv6Address;
+import org.apache.commons.lang.Validate;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteIndex.bitAt;
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteIndex.commonPrefixLength;
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteIndex.high;
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteIndex.low;
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteIndex.maskHigh;
+import static net.ripe.rpki.commons.validation.roa.AllowedRouteIndex.maskLow;
+
+/**
+ * Immutable set of allowed routes that can be updated cheaply. Gives the same validation results as
+ * {@link AllowedRouteIndex}.
+ * <p>
+ * The allowed routes are stored in a persistent path compressed binary trie per address family. Adding or removing
+ * an allowed route only copies the nodes on the path to its prefix, all other nodes are shared with the original
+ * snapshot. Routes for the same prefix keep the order in which they were added.
+ */
+public final class AllowedRouteSnapshot {
+
+    private static final AllowedRouteSnapshot EMPTY = new AllowedRouteSnapshot(null, null, 0);
+
+    private static final AllowedRoute[] NO_ROUTES = new AllowedRoute[0];
+
+    private final Node ipv4;
+
+    private final Node ipv6;
+
+    private final int size;
+
+    private AllowedRouteSnapshot(Node ipv4, Node ipv6, int size) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+        this.size = size;
+    }
+
+    public static AllowedRouteSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static AllowedRouteSnapshot of(Iterable<? extends AllowedRoute> allowedRoutes) {
+        return EMPTY.withAllowedRoutes(allowedRoutes);
+    }
+
+    /**
+     * @return the number of allowed routes in this snapshot.
+     */
+    public int size() {
+        return size;
+    }
+
+    public AllowedRouteSnapshot withAllowedRoutes(Iterable<? extends AllowedRoute> allowedRoutes) {
+        Node v4 = ipv4;
+        Node v6 = ipv6;
+        int count = size;
+        for (AllowedRoute allowedRoute : allowedRoutes) {
+            IpRange prefix = allowedRoute.getPrefix();
+            Validate.isTrue(prefix.isLegalPrefix(), "allowed route prefix must be a legal prefix");
+            if (prefix.getType() == IpResourceType.IPv4) {
+                v4 = insert(v4, high(prefix), low(prefix), prefix.getPrefixLength(), allowedRoute);
+            } else {
+                v6 = insert(v6, high(prefix), low(prefix), prefix.getPrefixLength(), allowedRoute);
+            }
+            count++;
+        }
+        return count == size ? this : new AllowedRouteSnapshot(v4, v6, count);
+    }
+
+    /**
+     * Removes one occurrence of each of the allowed routes. Allowed routes that are not part of this snapshot are
+     * ignored.
+     */
+    public AllowedRouteSnapshot withoutAllowedRoutes(Iterable<? extends AllowedRoute> allowedRoutes) {
+        Node v4 = ipv4;
+        Node v6 = ipv6;
+        int count = size;
+        for (AllowedRoute allowedRoute : allowedRoutes) {
+            IpRange prefix = allowedRoute.getPrefix();
+            if (!prefix.isLegalPrefix()) {
+                continue;
+            }
+            Node root = prefix.getType() == IpResourceType.IPv4 ? v4 : v6;
+            Node updated = remove(root, high(prefix), low(prefix), prefix.getPrefixLength(), allowedRoute);
+            if (updated == root) {
+                continue;
+            }
+            if (prefix.getType() == IpResourceType.IPv4) {
+                v4 = updated;
+            } else {
+                v6 = updated;
+            }
+            count--;
+        }
+        return v4 == ipv4 && v6 == ipv6 ? this : new AllowedRouteSnapshot(v4, v6, count);
+    }
+
+    public RouteValidityState validate(AnnouncedRoute announcedRoute) {
+        IpRange prefix = announcedRoute.getPrefix();
+        long high = high(prefix);
+        long low = low(prefix);
+        int length = prefix.getPrefixLength();
+        long originAsn = announcedRoute.getOriginAsn().longValue();
+
+        RouteValidityState result = RouteValidityState.UNKNOWN;
+        Node node = prefix.getType() == IpResourceType.IPv4 ? ipv4 : ipv6;
+        while (node != null && node.covers(high, low, length)) {
+            for (AllowedRoute route : node.routes) {
+                if (route.getAsn().longValue() != originAsn) {
+                    result = RouteValidityState.INVALID_ASN;
+                } else if (length > route.getMaximumLength()) {
+                    result = RouteValidityState.INVALID_LENGTH;
+                } else {
+                    return RouteValidityState.VALID;
+                }
+            }
+            if (node.length == length) {
+                break;
+            }
+            node = node.child(bitAt(high, low, node.length));
+        }
+        return result;
+    }
+
+    /**
+     * @return all allowed routes, ordered by prefix. Routes for the same prefix are in the order they were added.
+     */
+    public List<AllowedRoute> getAllowedRoutes() {
+        List<AllowedRoute> result = new ArrayList<>(size);
+        collect(ipv4, result);
+        collect(ipv6, result);
+        return result;
+    }
+
+    /**
+     * @return an {@link AllowedRouteIndex} with the same allowed routes, for example for bulk validation.
+     */
+    public AllowedRouteIndex toAllowedRouteIndex() {
+        return AllowedRouteIndex.of(getAllowedRoutes());
+    }
+
+    /**
+     * Compares the tries of both snapshots, skipping the subtrees they share. Every announced route that validates
+     * differently against the two snapshots is covered by one of the returned prefixes.
+     *
+     * @return the prefixes of the trie regions that differ between this and the other snapshot.
+     */
+    public List<IpRange> changedPrefixes(AllowedRouteSnapshot other) {
+        List<IpRange> result = new ArrayList<>();
+        diff(IpResourceType.IPv4, ipv4, other.ipv4, result);
+        diff(IpResourceType.IPv6, ipv6, other.ipv6, result);
+        return result;
+    }
+
+    private static void diff(IpResourceType type, Node a, Node b, List<IpRange> result) {
+        if (a == b) {
+            return;
+        }
+        if (a == null || b == null) {
+            result.add(toPrefix(type, a == null ? b : a));
+            return;
+        }
+        if (a.length == b.length && a.high == b.high && a.low == b.low) {
+            if (!Arrays.equals(a.routes, b.routes)) {
+                result.add(toPrefix(type, a));
+            } else {
+                diff(type, a.left, b.left, result);
+                diff(type, a.right, b.right, result);
+            }
+            return;
+        }
+        Node shorter = a.length <= b.length ? a : b;
+        Node longer = shorter == a ? b : a;
+        if (shorter.routes.length > 0 || !shorter.covers(longer.high, longer.low, longer.length)) {
+            result.add(toPrefix(type, a));
+            result.add(toPrefix(type, b));
+            return;
+        }
+        // Branching node only present on one side, continue below it
+        int side = bitAt(longer.high, longer.low, shorter.length);
+        diff(type, shorter.child(side), longer, result);
+        diff(type, shorter.child(1 - side), null, result);
+    }
+
+    private static IpRange toPrefix(IpResourceType type, Node node) {
+        if (type == IpResourceType.IPv4) {
+            return IpRange.prefix(new Ipv4Address(node.high >>> 32), node.length);
+        }
+        BigInteger value = new BigInteger(1, toBytes(node.high, node.low));
+        return IpRange.prefix(new Ipv6Address(value), node.length);
+    }
+
+    private static byte[] toBytes(long high, long low) {
+        byte[] result = new byte[2 * Long.BYTES];
+        for (int i = 0; i < Long.BYTES; ++i) {
+            result[i] = (byte) (high >>> (56 - 8 * i));
+            result[Long.BYTES + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return result;
+    }
+
+    private static void collect(Node node, List<AllowedRoute> result) {
+        if (node != null) {
+            result.addAll(Arrays.asList(node.routes));
+            collect(node.left, result);
+            collect(node.right, result);
+        }
+    }
+
+    private static Node insert(Node node, long high, long low, int length, AllowedRoute allowedRoute) {
+        if (node == null) {
+            return new Node(high, low, length, null, null, new AllowedRoute[]{allowedRoute});
+        }
+        int common = Math.min(commonPrefixLength(high, low, node.high, node.low), Math.min(length, node.length));
+        if (common == node.length) {
+            if (length == node.length) {
+                AllowedRoute[] routes = Arrays.copyOf(node.routes, node.routes.length + 1);
+                routes[node.routes.length] = allowedRoute;
+                return new Node(node.high, node.low, node.length, node.left, node.right, routes);
+            }
+            int side = bitAt(high, low, node.length);
+            return node.withChild(side, insert(node.child(side), high, low, length, allowedRoute));
+        }
+        Node leaf = new Node(high, low, length, null, null, new AllowedRoute[]{allowedRoute});
+        if (common == length) {
+            // New prefix covers the existing node
+            return leaf.withChild(bitAt(node.high, node.low, length), node);
+        }
+        // Prefixes diverge after the common bits, add a branching node without routes
+        Node branch = new Node(high, low, common, null, null, NO_ROUTES);
+        return branch.withChild(bitAt(node.high, node.low, common), node).withChild(bitAt(high, low, common), leaf);
+    }
+
+    private static Node remove(Node node, long high, long low, int length, AllowedRoute allowedRoute) {
+        if (node == null || !node.covers(high, low, length)) {
+            return node;
+        }
+        if (node.length == length) {
+            int index = Arrays.asList(node.routes).indexOf(allowedRoute);
+            if (index < 0) {
+                return node;
+            }
+            AllowedRoute[] routes = new AllowedRoute[node.routes.length - 1];
+            System.arraycopy(node.routes, 0, routes, 0, index);
+            System.arraycopy(node.routes, index + 1, routes, index, routes.length - index);
+            return compact(new Node(node.high, node.low, node.length, node.left, node.right, routes));
+        }
+        int side = bitAt(high, low, node.length);
+        Node child = node.child(side);
+        Node updated = remove(child, high, low, length, allowedRoute);
+        return updated == child ? node : compact(node.withChild(side, updated));
+    }
+
+    /**
+     * Nodes without routes are only needed where two prefixes branch.
+     */
+    private static Node compact(Node node) {
+        if (node.routes.length > 0 || (node.left != null && node.right != null)) {
+            return node;
+        }
+        return node.left != null ? node.left : node.right;
+    }
+
+    static final class Node {
+        final long high;
+        final long low;
+        final int length;
+        final Node left;
+        final Node right;
+        final AllowedRoute[] routes;
+
+        Node(long high, long low, int length, Node left, Node right, AllowedRoute[] routes) {
+            this.high = maskHigh(high, length);
+            this.low = maskLow(low, length);
+            this.length = length;
+            this.left = left;
+            this.right = right;
+            this.routes = routes;
+        }
+
+        boolean covers(long high, long low, int length) {
+            return this.length <= length && commonPrefixLength(high, low, this.high, this.low) >= this.length;
+        }
+
+        Node child(int side) {
+            return side == 0 ? left : right;
+        }
+
+        Node withChild(int side, Node child) {
+            return side == 0 ? new Node(high, low, length, child, right, routes) : new Node(high, low, length, left, child, routes);
+        }
+    }
+}
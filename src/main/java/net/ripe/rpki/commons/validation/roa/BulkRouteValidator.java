@@ -0,0 +1,180 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import org.apache.commons.lang.Validate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Validates large numbers of announced routes against an {@link AllowedRouteIndex} in parallel.
+ * <p>
+ * Results are returned as a <code>byte</code> array aligned with the input order, holding the
+ * {@link RouteValidityState#ordinal() ordinal} of the validity state of each route. Use {@link #stateOf(byte)} to
+ * convert these back. Alternatively results can be streamed to a consumer as they are determined.
+ * <p>
+ * By default work is done in the {@link ForkJoinPool#commonPool() common pool}. Instances are immutable and safe to
+ * share between threads.
+ */
+public final class BulkRouteValidator {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final RouteValidityState[] STATES = RouteValidityState.values();
+
+    private final AllowedRouteIndex allowedRoutes;
+
+    private final ForkJoinPool pool;
+
+    private final int batchSize;
+
+    private BulkRouteValidator(AllowedRouteIndex allowedRoutes, ForkJoinPool pool, int batchSize) {
+        this.allowedRoutes = allowedRoutes;
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    public static BulkRouteValidator of(AllowedRouteIndex allowedRoutes) {
+        Validate.notNull(allowedRoutes, "allowedRoutes is required");
+        return new BulkRouteValidator(allowedRoutes, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @return a validator that runs in the given pool.
+     */
+    public BulkRouteValidator withPool(ForkJoinPool pool) {
+        Validate.notNull(pool, "pool is required");
+        return new BulkRouteValidator(allowedRoutes, pool, batchSize);
+    }
+
+    /**
+     * @return a validator that does not split the work in parts smaller than <code>batchSize</code> routes.
+     */
+    public BulkRouteValidator withBatchSize(int batchSize) {
+        Validate.isTrue(batchSize > 0, "batchSize must be positive");
+        return new BulkRouteValidator(allowedRoutes, pool, batchSize);
+    }
+
+    public AllowedRouteIndex getAllowedRoutes() {
+        return allowedRoutes;
+    }
+
+    public static RouteValidityState stateOf(byte ordinal) {
+        return STATES[ordinal];
+    }
+
+    /**
+     * @return the validity state ordinals of the announced routes, in iteration order.
+     */
+    public byte[] validate(Collection<? extends AnnouncedRoute> announcedRoutes) {
+        if (announcedRoutes instanceof List && announcedRoutes instanceof RandomAccess) {
+            List<? extends AnnouncedRoute> list = (List<? extends AnnouncedRoute>) announcedRoutes;
+            byte[] result = new byte[list.size()];
+            pool.invoke(new ListValidation(list, result, 0, result.length));
+            return result;
+        }
+        return validate(announcedRoutes.toArray(new AnnouncedRoute[0]));
+    }
+
+    /**
+     * @return the validity state ordinals of the announced routes, in encounter order.
+     */
+    public byte[] validate(Stream<? extends AnnouncedRoute> announcedRoutes) {
+        return validate(announcedRoutes.toArray(AnnouncedRoute[]::new));
+    }
+
+    /**
+     * @return the validity state ordinals of the announced routes, in encounter order.
+     */
+    public byte[] validate(Spliterator<? extends AnnouncedRoute> announcedRoutes) {
+        return validate(StreamSupport.stream(announcedRoutes, false));
+    }
+
+    /**
+     * @return the validity state ordinals of the announced routes, in array order.
+     */
+    public byte[] validate(AnnouncedRoute[] announcedRoutes) {
+        return validate(Arrays.asList(announcedRoutes));
+    }
+
+    /**
+     * Validates the announced routes in parallel and passes each route with its validity state to the consumer. The
+     * consumer is called from multiple threads and in no particular order, so it must be thread-safe. Returns when all
+     * routes have been validated.
+     */
+    public void validate(Stream<? extends AnnouncedRoute> announcedRoutes, BiConsumer<? super AnnouncedRoute, ? super RouteValidityState> consumer) {
+        Validate.notNull(consumer, "consumer is required");
+        Stream<? extends AnnouncedRoute> parallel = announcedRoutes.parallel();
+        pool.invoke(ForkJoinTask.adapt(() -> parallel.forEach(route -> consumer.accept(route, allowedRoutes.validate(route)))));
+    }
+
+    /**
+     * @see #validate(Stream, BiConsumer)
+     */
+    public void validate(Spliterator<? extends AnnouncedRoute> announcedRoutes, BiConsumer<? super AnnouncedRoute, ? super RouteValidityState> consumer) {
+        validate(StreamSupport.stream(announcedRoutes, true), consumer);
+    }
+
+    private final class ListValidation extends RecursiveAction {
+        private final List<? extends AnnouncedRoute> routes;
+        private final byte[] result;
+        private final int from;
+        private final int to;
+
+        ListValidation(List<? extends AnnouncedRoute> routes, byte[] result, int from, int to) {
+            this.routes = routes;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                for (int i = from; i < to; ++i) {
+                    result[i] = (byte) allowedRoutes.validate(routes.get(i)).ordinal();
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ListValidation(routes, result, from, middle), new ListValidation(routes, result, middle, to));
+            }
+        }
+    }
+}
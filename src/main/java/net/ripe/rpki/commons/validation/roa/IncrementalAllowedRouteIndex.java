@@ -0,0 +1,109 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.rpki.commons.crypto.cms.roa.Roa;
+import org.apache.commons.lang.Validate;
+
+import java.util.Collections;
+
+/**
+ * Allowed route index that is updated in place, for example while applying RRDP deltas.
+ * <p>
+ * Updates take time proportional to the number of changed allowed routes. Readers call {@link #snapshot()} and keep
+ * using the returned {@link AllowedRouteSnapshot}, which is never affected by later updates. Each update, including
+ * {@link #update(Iterable, Iterable)}, becomes visible to readers atomically.
+ */
+public final class IncrementalAllowedRouteIndex {
+
+    private volatile AllowedRouteSnapshot current;
+
+    private IncrementalAllowedRouteIndex(AllowedRouteSnapshot current) {
+        this.current = current;
+    }
+
+    public static IncrementalAllowedRouteIndex create() {
+        return new IncrementalAllowedRouteIndex(AllowedRouteSnapshot.empty());
+    }
+
+    public static IncrementalAllowedRouteIndex of(Iterable<? extends AllowedRoute> allowedRoutes) {
+        return new IncrementalAllowedRouteIndex(AllowedRouteSnapshot.of(allowedRoutes));
+    }
+
+    /**
+     * @return the current, immutable, set of allowed routes.
+     */
+    public AllowedRouteSnapshot snapshot() {
+        return current;
+    }
+
+    public RouteValidityState validate(AnnouncedRoute announcedRoute) {
+        return current.validate(announcedRoute);
+    }
+
+    public void add(AllowedRoute allowedRoute) {
+        update(Collections.<AllowedRoute>emptyList(), Collections.singletonList(allowedRoute));
+    }
+
+    public void addAll(Iterable<? extends AllowedRoute> allowedRoutes) {
+        update(Collections.<AllowedRoute>emptyList(), allowedRoutes);
+    }
+
+    public void add(Roa roa) {
+        addAll(AllowedRoute.fromRoas(Collections.singletonList(roa)));
+    }
+
+    /**
+     * Removes one occurrence of the allowed route, if present.
+     */
+    public void remove(AllowedRoute allowedRoute) {
+        update(Collections.singletonList(allowedRoute), Collections.<AllowedRoute>emptyList());
+    }
+
+    public void removeAll(Iterable<? extends AllowedRoute> allowedRoutes) {
+        update(allowedRoutes, Collections.<AllowedRoute>emptyList());
+    }
+
+    public void remove(Roa roa) {
+        removeAll(AllowedRoute.fromRoas(Collections.singletonList(roa)));
+    }
+
+    /**
+     * Removes and then adds allowed routes as a single update.
+     *
+     * @return the snapshot after the update.
+     */
+    public synchronized AllowedRouteSnapshot update(Iterable<? extends AllowedRoute> removed, Iterable<? extends AllowedRoute> added) {
+        Validate.notNull(removed, "removed is required");
+        Validate.notNull(added, "added is required");
+        current = current.withoutAllowedRoutes(removed).withAllowedRoutes(added);
+        return current;
+    }
+}
@@ -58,6 +58,14 @@ public class RouteOriginValidationPolicy {
         return result;
     }
 
+    public static AllowedRouteIndex allowedRoutesToIndex(Iterable<? extends AllowedRoute> allowedRoutes) {
+        return AllowedRouteIndex.of(allowedRoutes);
+    }
+
+    public RouteValidityState validateAnnouncedRoute(AllowedRouteIndex allowedRoutes, AnnouncedRoute announcedRoute) {
+        return allowedRoutes.validate(announcedRoute);
+    }
+
     public RouteValidityState validateAnnouncedRoute(NestedIntervalMap<IpResource, ? extends Iterable<? extends AllowedRoute>> allowedRoutes, AnnouncedRoute announcedRoute) {
         RouteValidityState result = RouteValidityState.UNKNOWN;
         for (Iterable<? extends AllowedRoute> routes : allowedRoutes.findExactAndAllLessSpecific(announcedRoute.getPrefix())) {
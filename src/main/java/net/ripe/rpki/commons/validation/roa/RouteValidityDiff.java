@@ -0,0 +1,97 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.etree.IpResourceIntervalStrategy;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Determines which announced routes change validity state when the allowed routes change.
+ * <p>
+ * Only the announced routes below the prefixes that differ between the two {@link AllowedRouteSnapshot}s are
+ * validated again, so the cost depends on the size of the change and not on the size of the routing table.
+ */
+public final class RouteValidityDiff {
+
+    private final NestedIntervalMap<IpResource, List<AnnouncedRoute>> announcedRoutes;
+
+    private RouteValidityDiff(NestedIntervalMap<IpResource, List<AnnouncedRoute>> announcedRoutes) {
+        this.announcedRoutes = announcedRoutes;
+    }
+
+    public static RouteValidityDiff of(Iterable<? extends AnnouncedRoute> announcedRoutes) {
+        NestedIntervalMap<IpResource, List<AnnouncedRoute>> result = new NestedIntervalMap<IpResource, List<AnnouncedRoute>>(IpResourceIntervalStrategy.getInstance());
+        for (AnnouncedRoute announcedRoute : announcedRoutes) {
+            List<AnnouncedRoute> routes = result.findExact(announcedRoute.getPrefix());
+            if (routes == null) {
+                routes = new ArrayList<AnnouncedRoute>();
+                result.put(announcedRoute.getPrefix(), routes);
+            }
+            routes.add(announcedRoute);
+        }
+        return new RouteValidityDiff(result);
+    }
+
+    /**
+     * @return the announced routes that validate differently against <code>before</code> and <code>after</code>.
+     */
+    public List<RouteValidityChange> changes(AllowedRouteSnapshot before, AllowedRouteSnapshot after) {
+        Set<AnnouncedRoute> affected = new LinkedHashSet<AnnouncedRoute>();
+        for (IpRange prefix : before.changedPrefixes(after)) {
+            for (List<AnnouncedRoute> routes : announcedRoutes.findExactAndAllMoreSpecific(prefix)) {
+                affected.addAll(routes);
+            }
+        }
+
+        List<RouteValidityChange> result = new ArrayList<RouteValidityChange>();
+        for (AnnouncedRoute announcedRoute : affected) {
+            RouteValidityState oldState = before.validate(announcedRoute);
+            RouteValidityState newState = after.validate(announcedRoute);
+            if (oldState != newState) {
+                result.add(new RouteValidityChange(announcedRoute, oldState, newState));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the announced routes that change validity state when the VRP delta is applied to <code>before</code>.
+     */
+    public List<RouteValidityChange> changes(AllowedRouteSnapshot before, Iterable<? extends AllowedRoute> removed, Iterable<? extends AllowedRoute> added) {
+        return changes(before, before.withoutAllowedRoutes(removed).withAllowedRoutes(added));
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.benchmark;
+
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsBuilder;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsParser;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsTest;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlBuilder;
+import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest;
+import net.ripe.rpki.commons.util.UTC;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses synthetic manifests and CRLs with many entries, generated with the builders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LargeObjectBenchmark {
+
+    @Param({"100", "10000"})
+    private int entries;
+
+    private byte[] manifest;
+
+    private byte[] crl;
+
+    private X509Crl parsedCrl;
+
+    @Setup
+    public void setUp() {
+        ManifestCmsBuilder manifestBuilder = ManifestCmsTest.getRootManifestBuilder();
+        for (int i = 0; i < entries; ++i) {
+            manifestBuilder.addFile("object-" + i + ".roa", ("contents of object " + i).getBytes(StandardCharsets.US_ASCII));
+        }
+        manifest = manifestBuilder.build(ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate()).getEncoded();
+
+        X509CrlBuilder crlBuilder = X509CrlTest.getCrlBuilder();
+        DateTime revocationTime = UTC.dateTime().minusDays(1);
+        for (int i = 0; i < entries; ++i) {
+            crlBuilder.addEntry(BigInteger.valueOf(1000L + 7L * i), revocationTime);
+        }
+        crl = crlBuilder.build(KeyPairFactoryTest.TEST_KEY_PAIR.getPrivate()).getEncoded();
+        parsedCrl = new X509Crl(crl);
+    }
+
+    @Benchmark
+    public Object parseLargeManifest() {
+        ManifestCmsParser parser = new ManifestCmsParser();
+        parser.parse(ValidationResult.withLocation("benchmark.mft"), manifest);
+        return parser.getManifestCms();
+    }
+
+    @Benchmark
+    public Object parseLargeCrl() {
+        return X509Crl.parseDerEncoded(crl, ValidationResult.withLocation("benchmark.crl"));
+    }
+
+    @Benchmark
+    public Object lookupRevokedCertificateInLargeCrl() {
+        return parsedCrl.getRevokedCertificate(BigInteger.valueOf(1000L + 7L * (entries / 2)));
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.benchmark;
+
+import com.google.common.io.Files;
+import net.ripe.rpki.commons.crypto.cms.ghostbuster.GhostbustersCmsParser;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsParser;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParser;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateParser;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the conformance and interop fixtures from <code>src/test/resources</code>, one benchmark per object type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    private static final String PATH_TO_BBN_OBJECTS = "src/test/resources/conformance/root/";
+
+    private static final String PATH_TO_INTEROP_OBJECTS = "src/test/resources/interop/";
+
+    private byte[] roa;
+    private byte[] rpkidRoa;
+    private byte[] manifest;
+    private byte[] certificate;
+    private byte[] crl;
+    private byte[] ghostbusters;
+
+    @Setup
+    public void setUp() throws IOException {
+        roa = read(PATH_TO_BBN_OBJECTS + "goodROANothingWrong.roa");
+        rpkidRoa = read(PATH_TO_INTEROP_OBJECTS + "rpkid-objects/nI2bsx18I5mlex8lBpY0WSJUYio.roa");
+        manifest = read(PATH_TO_BBN_OBJECTS + "root.mft");
+        certificate = read(PATH_TO_BBN_OBJECTS + "../root.cer");
+        crl = read(PATH_TO_BBN_OBJECTS + "root.crl");
+        ghostbusters = read(PATH_TO_BBN_OBJECTS + "goodRealGbrNothingIsWrong.gbr");
+    }
+
+    static byte[] read(String path) throws IOException {
+        return Files.toByteArray(new File(path));
+    }
+
+    @Benchmark
+    public Object parseRoa() {
+        RoaCmsParser parser = new RoaCmsParser();
+        parser.parse(ValidationResult.withLocation("benchmark.roa"), roa);
+        return parser.getRoaCms();
+    }
+
+    @Benchmark
+    public Object parseRpkidRoa() {
+        RoaCmsParser parser = new RoaCmsParser();
+        parser.parse(ValidationResult.withLocation("benchmark.roa"), rpkidRoa);
+        return parser.getRoaCms();
+    }
+
+    @Benchmark
+    public Object parseManifest() {
+        ManifestCmsParser parser = new ManifestCmsParser();
+        parser.parse(ValidationResult.withLocation("benchmark.mft"), manifest);
+        return parser.getManifestCms();
+    }
+
+    @Benchmark
+    public Object parseResourceCertificate() {
+        X509ResourceCertificateParser parser = new X509ResourceCertificateParser();
+        parser.parse(ValidationResult.withLocation("benchmark.cer"), certificate);
+        return parser.getCertificate();
+    }
+
+    @Benchmark
+    public Object parseCrl() {
+        return X509Crl.parseDerEncoded(crl, ValidationResult.withLocation("benchmark.crl"));
+    }
+
+    @Benchmark
+    public Object parseGhostbusters() {
+        GhostbustersCmsParser parser = new GhostbustersCmsParser();
+        parser.parse(ValidationResult.withLocation("benchmark.gbr"), ghostbusters);
+        return parser.getGhostbustersCms();
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.cms;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectBatchSigner.Item;
+import net.ripe.rpki.commons.crypto.cms.RpkiSignedObjectBatchSigner.Result;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsParser;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsTest;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsBuilder;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParser;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsTest;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import net.ripe.rpki.commons.crypto.util.AsyncSigner;
+import net.ripe.rpki.commons.crypto.util.PipelinedSigner;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
+import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
+import static org.junit.Assert.*;
+
+public class RpkiSignedObjectBatchSignerTest {
+
+    private ExecutorService executor;
+
+    private RpkiSignedObjectBatchSigner subject;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        subject = RpkiSignedObjectBatchSigner.create().withExecutor(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldSignRoasAndManifestInOrder() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(new Item(i + ".roa", roaBuilder(i), TEST_KEY_PAIR.getPrivate()));
+        }
+        items.add(new Item("ca.mft", ManifestCmsTest.getRootManifestBuilder(), ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate()));
+
+        List<Result> results = subject.sign(items);
+
+        assertEquals(21, results.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i + ".roa", results.get(i).getName());
+            assertEquals(new Asn(i), parseRoa(results.get(i)).getAsn());
+            assertTrue(results.get(i).getSigningTimeNanos() > 0);
+        }
+        ManifestCmsParser parser = new ManifestCmsParser();
+        parser.parse(ValidationResult.withLocation("ca.mft"), results.get(20).getEncoded());
+        assertTrue(parser.isSuccess());
+    }
+
+    @Test
+    public void shouldSignWithoutVerification() {
+        List<Result> results = subject.withoutVerification().sign(Collections.singletonList(new Item("0.roa", roaBuilder(0), TEST_KEY_PAIR.getPrivate())));
+
+        assertFalse(subject.withoutVerification().isVerifying());
+        assertEquals(new Asn(0), parseRoa(results.get(0)).getAsn());
+    }
+
+    @Test
+    public void shouldSubmitBatchToSignerAtOnce() {
+        PipelinedSigner pipelined = new PipelinedSigner(DEFAULT_SIGNATURE_PROVIDER, executor, 8);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        AsyncSigner signer = new AsyncSigner() {
+            @Override
+            public CompletableFuture<byte[]> sign(String algorithm, PrivateKey privateKey, byte[] toBeSigned) {
+                return pipelined.sign(algorithm, privateKey, toBeSigned);
+            }
+
+            @Override
+            public List<CompletableFuture<byte[]>> signAll(String algorithm, List<Request> requests) {
+                batchSizes.add(requests.size());
+                return AsyncSigner.super.signAll(algorithm, requests);
+            }
+        };
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new Item(i + ".roa", roaBuilder(i), TEST_KEY_PAIR.getPrivate()));
+        }
+        items.add(new Item("ca.mft", ManifestCmsTest.getRootManifestBuilder(), ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate()));
+
+        List<Result> results = subject.withSigner(signer).sign(items);
+
+        assertEquals(Collections.singletonList(11), batchSizes);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(new Asn(i), parseRoa(results.get(i)).getAsn());
+        }
+        ManifestCmsParser parser = new ManifestCmsParser();
+        parser.parse(ValidationResult.withLocation("ca.mft"), results.get(10).getEncoded());
+        assertTrue(parser.isSuccess());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailBatchWhenSignedObjectSignedThroughSignerDoesNotVerify() {
+        AsyncSigner signer = new PipelinedSigner(DEFAULT_SIGNATURE_PROVIDER, executor, 8);
+        subject.withSigner(signer).sign(Collections.singletonList(new Item("0.roa", roaBuilder(0), SECOND_TEST_KEY_PAIR.getPrivate())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailBatchWhenSignedObjectDoesNotVerify() {
+        // Signed with a key that does not match the EE certificate
+        subject.sign(Collections.singletonList(new Item("0.roa", roaBuilder(0), SECOND_TEST_KEY_PAIR.getPrivate())));
+    }
+
+    private RoaCmsBuilder roaBuilder(int asn) {
+        List<RoaPrefix> prefixes = Collections.singletonList(new RoaPrefix(IpRange.parse("10." + asn + ".0.0/16"), 24));
+        return new RoaCmsBuilder()
+                .withCertificate(RoaCmsTest.createCertificate(prefixes))
+                .withAsn(new Asn(asn))
+                .withPrefixes(prefixes)
+                .withSignatureProvider(DEFAULT_SIGNATURE_PROVIDER);
+    }
+
+    private RoaCms parseRoa(Result result) {
+        RoaCmsParser parser = new RoaCmsParser();
+        parser.parse(ValidationResult.withLocation(result.getName()), result.getEncoded());
+        return parser.getRoaCms();
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.cms.manifest;
+
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestFileVerifier.Outcome;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ManifestFileVerifierTest {
+
+    private Path directory;
+
+    private ManifestFileVerifier subject = ManifestFileVerifier.create();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("manifest-file-verifier");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void shouldReportOutcomePerEntry() throws IOException {
+        ManifestCmsBuilder builder = ManifestCmsTest.getRootManifestBuilder();
+        builder.addFile("match.roa", new byte[]{1, 2, 3});
+        builder.addFile("mismatch.roa", new byte[]{4, 5, 6});
+        builder.addFile("missing.roa", new byte[]{7, 8, 9});
+        builder.addFile("..", new byte[0]);
+        ManifestCms manifest = builder.build(ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate());
+        Files.write(directory.resolve("match.roa"), new byte[]{1, 2, 3});
+        Files.write(directory.resolve("mismatch.roa"), new byte[]{4, 5});
+
+        Map<String, Outcome> outcomes = subject.verify(manifest, directory);
+
+        assertEquals(Outcome.MATCH, outcomes.get("match.roa"));
+        assertEquals(Outcome.MISMATCH, outcomes.get("mismatch.roa"));
+        assertEquals(Outcome.MISSING, outcomes.get("missing.roa"));
+        assertEquals(Outcome.MISSING, outcomes.get(".."));
+        assertFalse(ManifestFileVerifier.allMatch(outcomes));
+    }
+
+    @Test
+    public void shouldVerifyManyFilesInParallel() throws IOException {
+        ManifestCmsBuilder builder = ManifestCmsTest.getRootManifestBuilder();
+        for (int i = 0; i < 500; i++) {
+            byte[] contents = ("object " + i).getBytes("US-ASCII");
+            builder.addFile(i + ".roa", contents);
+            Files.write(directory.resolve(i + ".roa"), contents);
+        }
+        ManifestCms manifest = builder.build(ManifestCmsTest.MANIFEST_KEY_PAIR.getPrivate());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<String, Outcome> outcomes = subject.withPool(pool).verify(manifest, directory::resolve);
+
+            assertEquals(500, outcomes.size());
+            assertTrue(ManifestFileVerifier.allMatch(outcomes));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldHashLargeFilesThroughMemoryMapping() throws IOException {
+        byte[] contents = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(contents);
+        Path file = directory.resolve("large.cer");
+        Files.write(file, contents);
+
+        assertArrayEquals(ManifestCms.hashContents(contents), ManifestFileVerifier.hash(file));
+    }
+}
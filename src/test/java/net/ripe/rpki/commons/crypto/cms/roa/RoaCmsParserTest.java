@@ -32,6 +32,7 @@ package net.ripe.rpki.commons.crypto.cms.roa;
 import net.ripe.ipresource.Asn;
 import net.ripe.ipresource.IpRange;
 import net.ripe.ipresource.IpResourceType;
+import net.ripe.rpki.commons.crypto.util.SignatureVerificationCache;
 import org.bouncycastle.asn1.BERTags;
 import org.junit.Before;
 import org.junit.Test;
@@ -161,4 +162,19 @@ public class RoaCmsParserTest {
         assertEquals(ipv4Prefixes, roa.getPrefixes());
     }
 
+    @Test
+    public void shouldSkipVerifyingKnownValidSignature() {
+        SignatureVerificationCache cache = SignatureVerificationCache.create();
+        byte[] encoded = RoaCmsTest.createRoaCms(allPrefixes).getEncoded();
+
+        for (int i = 0; i < 2; ++i) {
+            RoaCmsParser roaParser = new RoaCmsParser();
+            roaParser.setSignatureVerificationCache(cache);
+            roaParser.parse("roa.roa", encoded);
+            assertTrue(roaParser.isSuccess());
+        }
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
 }
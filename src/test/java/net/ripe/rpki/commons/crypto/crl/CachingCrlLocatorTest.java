@@ -0,0 +1,192 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.crl;
+
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import net.ripe.rpki.commons.validation.ValidationLocation;
+import net.ripe.rpki.commons.validation.ValidationOptions;
+import net.ripe.rpki.commons.validation.ValidationResult;
+import net.ripe.rpki.commons.validation.ValidationString;
+import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CachingCrlLocatorTest {
+
+    private static final URI CRL_URI = URI.create("rsync://host/ca/ca.crl");
+
+    private CrlLocator delegate;
+    private CertificateRepositoryObjectValidationContext context;
+    private X509Crl crl;
+
+    private CachingCrlLocator subject;
+
+    @Before
+    public void setUp() {
+        delegate = mock(CrlLocator.class);
+        context = new CertificateRepositoryObjectValidationContext(URI.create("rsync://host/ta.cer"), X509ResourceCertificateTest.createSelfSignedCaResourceCertificate());
+        crl = X509CrlTest.createCrl();
+        when(delegate.getCrl(eq(CRL_URI), any(CertificateRepositoryObjectValidationContext.class), any(ValidationResult.class))).thenAnswer(invocation -> {
+            ValidationResult result = (ValidationResult) invocation.getArguments()[2];
+            result.pass(ValidationString.CRL_SIGNATURE_VALID);
+            return crl;
+        });
+        subject = new CachingCrlLocator(delegate, 2);
+    }
+
+    @Test
+    public void shouldLocateCrlOnceAndAddItsChecksForEachCaller() {
+        ValidationResult first = ValidationResult.withLocation("first.roa");
+        ValidationResult second = ValidationResult.withLocation("second.roa");
+
+        assertSame(crl, subject.getCrl(CRL_URI, context, first));
+        assertSame(crl, subject.getCrl(CRL_URI, context, second));
+
+        verify(delegate, times(1)).getCrl(eq(CRL_URI), eq(context), any(ValidationResult.class));
+        assertNotNull(first.getResult(new ValidationLocation("first.roa"), ValidationString.CRL_SIGNATURE_VALID));
+        assertNotNull(second.getResult(new ValidationLocation("second.roa"), ValidationString.CRL_SIGNATURE_VALID));
+        assertEquals(new ValidationLocation("second.roa"), second.getCurrentLocation());
+        assertEquals(1, subject.getHitCount());
+        assertEquals(1, subject.getMissCount());
+    }
+
+    @Test
+    public void shouldLocateCrlAgainBeforeItsThisUpdateTime() {
+        subject.getCrl(CRL_URI, context, ValidationResult.withLocation(CRL_URI));
+
+        ValidationOptions options = ValidationOptions.strictValidation().atValidationTime(crl.getThisUpdateTime().getMillis() - 1);
+        CertificateRepositoryObjectValidationContext earlier = new CertificateRepositoryObjectValidationContext(context.getLocation(), context.getCertificate(), options);
+        assertSame(crl, subject.getCrl(CRL_URI, earlier, ValidationResult.withLocation(CRL_URI)));
+
+        verify(delegate, times(2)).getCrl(eq(CRL_URI), eq(context), any(ValidationResult.class));
+        assertEquals(0, subject.getHitCount());
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void shouldLocateCrlAgainForOtherIssuerCertificate() {
+        subject.getCrl(CRL_URI, context, ValidationResult.withLocation(CRL_URI));
+
+        // Same key, so same subject key identifier, but different resources
+        X509ResourceCertificate reissued = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate(IpResourceSet.parse("10.0.0.0/8"));
+        CertificateRepositoryObjectValidationContext other = new CertificateRepositoryObjectValidationContext(context.getLocation(), reissued);
+        subject.getCrl(CRL_URI, other, ValidationResult.withLocation(CRL_URI));
+
+        verify(delegate, times(1)).getCrl(eq(CRL_URI), eq(other), any(ValidationResult.class));
+        assertEquals(0, subject.getHitCount());
+    }
+
+    @Test
+    public void shouldNotCacheCrlWithWarnings() {
+        URI stale = URI.create("rsync://host/ca/stale.crl");
+        when(delegate.getCrl(eq(stale), any(CertificateRepositoryObjectValidationContext.class), any(ValidationResult.class))).thenAnswer(invocation -> {
+            ((ValidationResult) invocation.getArguments()[2]).warn(ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW);
+            return crl;
+        });
+
+        ValidationResult result = ValidationResult.withLocation(stale);
+        subject.getCrl(stale, context, result);
+
+        assertEquals(1, result.getWarnings().size());
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void shouldNotCacheCrlWithFailures() {
+        URI rejected = URI.create("rsync://host/ca/rejected.crl");
+        when(delegate.getCrl(eq(rejected), any(CertificateRepositoryObjectValidationContext.class), any(ValidationResult.class))).thenAnswer(invocation -> {
+            ((ValidationResult) invocation.getArguments()[2]).error(ValidationString.CRL_SIGNATURE_VALID);
+            return crl;
+        });
+
+        subject.getCrl(rejected, context, ValidationResult.withLocation(rejected));
+
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void shouldNotCacheMissingCrl() {
+        URI missing = URI.create("rsync://host/ca/missing.crl");
+
+        assertNull(subject.getCrl(missing, context, ValidationResult.withLocation(missing)));
+        assertNull(subject.getCrl(missing, context, ValidationResult.withLocation(missing)));
+
+        verify(delegate, times(2)).getCrl(eq(missing), eq(context), any(ValidationResult.class));
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void shouldEvictCrlAfterNextUpdateTime() {
+        subject.getCrl(CRL_URI, context, ValidationResult.withLocation(CRL_URI));
+
+        ValidationOptions options = ValidationOptions.strictValidation().atValidationTime(crl.getNextUpdateTime().getMillis());
+        CertificateRepositoryObjectValidationContext later = new CertificateRepositoryObjectValidationContext(context.getLocation(), context.getCertificate(), options);
+        subject.getCrl(CRL_URI, later, ValidationResult.withLocation(CRL_URI));
+
+        verify(delegate, times(2)).getCrl(eq(CRL_URI), eq(context), any(ValidationResult.class));
+        assertEquals(1, subject.getEvictionCount());
+    }
+
+    @Test
+    public void shouldEvictCrlWhenNewerCrlIsOffered() {
+        subject.getCrl(CRL_URI, context, ValidationResult.withLocation(CRL_URI));
+
+        assertFalse(subject.update(CRL_URI, crl));
+        assertFalse(subject.update(URI.create("rsync://host/other.crl"), crl));
+        assertEquals(1, subject.size());
+
+        X509Crl newer = X509CrlTest.getCrlBuilder().withNumber(BigInteger.valueOf(11)).build(TEST_KEY_PAIR.getPrivate());
+        assertTrue(subject.update(CRL_URI, newer));
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void shouldBoundNumberOfCachedCrls() {
+        for (int i = 0; i < 3; i++) {
+            URI uri = URI.create("rsync://host/ca/" + i + ".crl");
+            when(delegate.getCrl(eq(uri), any(CertificateRepositoryObjectValidationContext.class), any(ValidationResult.class))).thenReturn(crl);
+            subject.getCrl(uri, context, ValidationResult.withLocation(uri));
+        }
+
+        assertEquals(2, subject.size());
+        assertEquals(1, subject.getEvictionCount());
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.crl;
+
+import net.ripe.rpki.commons.util.UTC;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
+import static org.junit.Assert.*;
+
+public class IncrementalX509CrlBuilderTest {
+
+    private static final DateTime NOW = UTC.dateTime().withMillisOfSecond(0);
+
+    private static final BigInteger LARGE_SERIAL = BigInteger.ONE.shiftLeft(100).add(BigInteger.TEN);
+
+    private IncrementalX509CrlBuilder subject;
+
+    private X509CrlBuilder reference;
+
+    @Before
+    public void setUp() {
+        subject = new IncrementalX509CrlBuilder()
+                .withIssuerDN(new X500Principal("CN=issuer"))
+                .withThisUpdateTime(NOW)
+                .withNextUpdateTime(NOW.plusHours(8))
+                .withNumber(BigInteger.TEN)
+                .withAuthorityKeyIdentifier(TEST_KEY_PAIR.getPublic());
+        reference = X509CrlTest.getCrlBuilder()
+                .withThisUpdateTime(NOW)
+                .withNextUpdateTime(NOW.plusHours(8));
+    }
+
+    @Test
+    public void shouldEncodeLikeX509CrlBuilder() {
+        assertArrayEquals(reference.build(TEST_KEY_PAIR.getPrivate()).getEncoded(), subject.build(TEST_KEY_PAIR.getPrivate()).getEncoded());
+
+        for (int i = 1; i <= 200; i++) {
+            subject.addEntry(BigInteger.valueOf(i * 7919L), NOW.minusDays(i));
+            reference.addEntry(BigInteger.valueOf(i * 7919L), NOW.minusDays(i));
+        }
+        subject.addEntry(LARGE_SERIAL, NOW.plusYears(40));
+        reference.addEntry(LARGE_SERIAL, NOW.plusYears(40));
+
+        X509Crl crl = subject.build(TEST_KEY_PAIR.getPrivate());
+
+        assertArrayEquals(reference.build(TEST_KEY_PAIR.getPrivate()).getEncoded(), crl.getEncoded());
+        assertEquals(201, crl.getRevokedCertificates().size());
+    }
+
+    @Test
+    public void shouldReuseEntriesOfPreviousCrl() throws Exception {
+        subject.addEntry(BigInteger.ONE, NOW.minusDays(1)).addEntry(LARGE_SERIAL, NOW.minusDays(2));
+        X509Crl previous = subject.build(TEST_KEY_PAIR.getPrivate());
+
+        IncrementalX509CrlBuilder next = new IncrementalX509CrlBuilder()
+                .withIssuerDN(new X500Principal("CN=issuer"))
+                .withThisUpdateTime(NOW.plusHours(1))
+                .withNextUpdateTime(NOW.plusHours(9))
+                .withNumber(BigInteger.valueOf(11))
+                .withAuthorityKeyIdentifier(TEST_KEY_PAIR.getPublic())
+                .withEntriesOf(previous)
+                .addEntry(BigInteger.valueOf(2), NOW);
+        assertTrue(next.removeEntry(BigInteger.ONE));
+        assertFalse(next.removeEntry(BigInteger.ONE));
+
+        X509Crl crl = next.build(TEST_KEY_PAIR.getPrivate());
+        crl.verify(TEST_KEY_PAIR.getPublic());
+
+        assertEquals(2, next.size());
+        assertEquals(BigInteger.valueOf(11), crl.getNumber());
+        assertFalse(crl.isRevoked(BigInteger.ONE));
+        assertEquals(new X509Crl.Entry(BigInteger.valueOf(2), NOW), crl.getRevokedCertificate(BigInteger.valueOf(2)));
+        assertEquals(new X509Crl.Entry(LARGE_SERIAL, NOW.minusDays(2)), crl.getRevokedCertificate(LARGE_SERIAL));
+        assertEquals(new X509Crl.Entry(LARGE_SERIAL, NOW.minusDays(2)), next.getRevokedCertificate(LARGE_SERIAL));
+    }
+
+    @Test
+    public void shouldCheckEntriesAgainstCrl() {
+        subject.addEntry(BigInteger.ONE, NOW).addEntry(LARGE_SERIAL, NOW);
+        X509Crl crl = subject.addEntry(BigInteger.valueOf(-5), NOW).build(TEST_KEY_PAIR.getPrivate());
+
+        subject.removeEntry(BigInteger.valueOf(-5));
+        assertTrue(subject.isSatisfiedByEntries(crl));
+
+        subject.addEntry(BigInteger.valueOf(3), NOW);
+        assertFalse(subject.isSatisfiedByEntries(crl));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateEntries() {
+        subject.addEntry(BigInteger.ONE, NOW).addEntry(BigInteger.ONE, NOW);
+    }
+
+    @Test
+    public void shouldNotAddAnyEntriesOfCrlWithDuplicate() throws Exception {
+        X509Crl previous = subject.addEntry(BigInteger.ONE, NOW).addEntry(LARGE_SERIAL, NOW).build(TEST_KEY_PAIR.getPrivate());
+        subject.removeEntry(BigInteger.ONE);
+        X509Crl expected = subject.build(TEST_KEY_PAIR.getPrivate());
+
+        try {
+            subject.withEntriesOf(previous);
+            fail("duplicate entry accepted");
+        } catch (IllegalArgumentException expectedException) {
+            // expected
+        }
+
+        assertEquals(1, subject.size());
+        assertArrayEquals(expected.getEncoded(), subject.build(TEST_KEY_PAIR.getPrivate()).getEncoded());
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.crl;
+
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import org.apache.commons.lang.Validate;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.cert.X509CRL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
+import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
+import static org.junit.Assert.*;
+
+public class X509CrlIndexTest {
+
+    private static final DateTime REVOCATION_TIME = new DateTime(2020, 3, 1, 12, 30, 15, DateTimeZone.UTC);
+
+    @Test
+    public void shouldIndexEmptyCrl() {
+        X509CrlIndex index = X509CrlIndex.parse(X509CrlTest.createCrl().getEncoded());
+
+        assertTrue(index.isEmpty());
+        assertFalse(index.isRevoked(BigInteger.ONE));
+        assertNull(index.getRevokedCertificate(BigInteger.ONE));
+        assertFalse(index.entries().iterator().hasNext());
+    }
+
+    @Test
+    public void shouldAgreeWithJcaForSmallAndLargeSerials() {
+        Random random = new Random(42);
+        List<BigInteger> serials = new ArrayList<>();
+        X509CrlBuilder builder = X509CrlTest.getCrlBuilder();
+        for (int i = 0; i < 500; i++) {
+            BigInteger serial = new BigInteger(i % 3 == 0 ? 159 : 40, random).add(BigInteger.ONE);
+            if (!serials.contains(serial)) {
+                serials.add(serial);
+                builder.addEntry(serial, REVOCATION_TIME.plusSeconds(i));
+            }
+        }
+        serials.add(BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE));
+        builder.addEntry(BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE), REVOCATION_TIME);
+        serials.add(BigInteger.ONE.shiftLeft(63));
+        builder.addEntry(BigInteger.ONE.shiftLeft(63), REVOCATION_TIME);
+        X509Crl crl = builder.build(TEST_KEY_PAIR.getPrivate());
+        X509CRL jcaCrl = crl.getCrl();
+
+        X509CrlIndex index = X509CrlIndex.parse(crl.getEncoded());
+
+        assertEquals(serials.size(), index.size());
+        for (BigInteger serial : serials) {
+            assertTrue(index.isRevoked(serial));
+            assertEquals(new X509Crl.Entry(jcaCrl.getRevokedCertificate(serial)), index.getRevokedCertificate(serial));
+            assertFalse(index.isRevoked(serial.add(BigInteger.valueOf(1L << 20))));
+        }
+        assertEquals(new TreeSet<>(serials), serialsOf(index));
+    }
+
+    @Test
+    public void shouldIndexEntriesThatAreNotInSerialOrder() throws Exception {
+        X509v2CRLBuilder generator = new X509v2CRLBuilder(new X500Name("CN=issuer"), REVOCATION_TIME.toDate());
+        generator.setNextUpdate(REVOCATION_TIME.plusHours(8).toDate());
+        List<BigInteger> serials = Arrays.asList(BigInteger.valueOf(300), BigInteger.valueOf(5), new BigInteger("123456789012345678901234567890"), BigInteger.valueOf(-7), BigInteger.valueOf(70000));
+        for (BigInteger serial : serials) {
+            generator.addCRLEntry(serial, REVOCATION_TIME.toDate(), 0);
+        }
+        byte[] encoded = generator.build(new JcaContentSignerBuilder(DEFAULT_SIGNATURE_ALGORITHM).build(TEST_KEY_PAIR.getPrivate())).getEncoded();
+
+        X509CrlIndex index = X509CrlIndex.parse(encoded);
+
+        for (BigInteger serial : serials) {
+            assertTrue(index.isRevoked(serial));
+            assertEquals(new X509Crl.Entry(serial, REVOCATION_TIME), index.getRevokedCertificate(serial));
+        }
+        assertTrue(index.isRevoked(-7L));
+        assertTrue(index.isRevoked(70000L));
+        assertFalse(index.isRevoked(6L));
+        List<BigInteger> iterated = new ArrayList<>();
+        for (X509Crl.Entry entry : index.entries()) {
+            iterated.add(entry.getSerialNumber());
+        }
+        assertEquals(new ArrayList<>(new TreeSet<>(serials)), iterated);
+    }
+
+    @Test
+    public void shouldBackX509CrlRevocationQueries() {
+        X509Crl crl = X509CrlTest.getCrlBuilder().addEntry(BigInteger.TEN, REVOCATION_TIME).build(TEST_KEY_PAIR.getPrivate());
+
+        assertTrue(crl.isRevoked(BigInteger.TEN));
+        assertFalse(crl.isRevoked(BigInteger.ONE));
+        assertEquals(new X509Crl.Entry(BigInteger.TEN, REVOCATION_TIME), crl.getRevokedCertificate(BigInteger.TEN));
+        assertEquals(1, crl.getRevokedCertificates().size());
+        assertSame(crl.getIndex(), crl.getIndex());
+    }
+
+    @Test
+    public void shouldOnlyRevokeCertificatesOfTheCrlIssuer() {
+        X509Crl crl = X509CrlTest.getCrlBuilder().addEntry(BigInteger.TEN, REVOCATION_TIME).build(TEST_KEY_PAIR.getPrivate());
+        X509ResourceCertificate issued = X509ResourceCertificateTest.createSelfSignedCaResourceCertificateBuilder()
+                .withIssuerDN(crl.getIssuer()).withSerial(BigInteger.TEN).withResources(IpResourceSet.parse("10.0.0.0/8")).build();
+        X509ResourceCertificate otherIssuer = X509ResourceCertificateTest.createSelfSignedCaResourceCertificateBuilder()
+                .withIssuerDN(new X500Principal("CN=other")).withSerial(BigInteger.TEN).withResources(IpResourceSet.parse("10.0.0.0/8")).build();
+
+        assertTrue(crl.isRevoked(issued.getCertificate()));
+        assertFalse(crl.isRevoked(otherIssuer.getCertificate()));
+    }
+
+    @Test
+    public void shouldIndexSerialsWithRedundantLeadingZeroOctetsByValue() {
+        byte[] revoked = der(0x30,
+                entry(new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 5}),
+                entry(new byte[]{0, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff}),
+                entry(new byte[]{0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0}),
+                entry(new byte[]{3}));
+        byte[] tbs = der(0x30, der(0x02, new byte[]{1}), der(0x30), der(0x30), der(0x17, "200301123015Z".getBytes()), revoked);
+        X509CrlIndex index = X509CrlIndex.parse(der(0x30, tbs, der(0x30), der(0x03, new byte[]{0})));
+
+        BigInteger largeSerial = BigInteger.ONE.shiftLeft(64);
+        BigInteger maxLong = BigInteger.valueOf(Long.MAX_VALUE);
+        assertTrue(index.isRevoked(5L));
+        assertTrue(index.isRevoked(BigInteger.valueOf(5)));
+        assertTrue(index.isRevoked(Long.MAX_VALUE));
+        assertTrue(index.isRevoked(largeSerial));
+        assertEquals(new X509Crl.Entry(BigInteger.valueOf(5), REVOCATION_TIME), index.getRevokedCertificate(BigInteger.valueOf(5)));
+        assertTrue(index.containsAll(Arrays.asList(BigInteger.valueOf(3), BigInteger.valueOf(5), maxLong, largeSerial)));
+        assertEquals(new TreeSet<>(Arrays.asList(BigInteger.valueOf(3), BigInteger.valueOf(5), maxLong, largeSerial)), serialsOf(index));
+
+        List<BigInteger> encodedSerials = new ArrayList<>();
+        index.forEachEncodedEntry((serial, encoded) -> encodedSerials.add(serial));
+        assertEquals(Arrays.asList(BigInteger.valueOf(3), BigInteger.valueOf(5), maxLong, largeSerial), encodedSerials);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTruncatedEncoding() {
+        byte[] encoded = X509CrlTest.createCrl().getEncoded();
+        X509CrlIndex.parse(Arrays.copyOf(encoded, 40));
+    }
+
+    private static byte[] entry(byte[] serial) {
+        return der(0x30, der(0x02, serial), der(0x17, "200301123015Z".getBytes()));
+    }
+
+    private static byte[] der(int tag, byte[]... elements) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] element : elements) {
+            content.write(element, 0, element.length);
+        }
+        Validate.isTrue(content.size() <= 0xff, "test encodings use at most one length octet");
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        result.write(tag);
+        if (content.size() >= 0x80) {
+            result.write(0x81);
+        }
+        result.write(content.size());
+        result.write(content.toByteArray(), 0, content.size());
+        return result.toByteArray();
+    }
+
+    private static TreeSet<BigInteger> serialsOf(X509CrlIndex index) {
+        TreeSet<BigInteger> result = new TreeSet<>();
+        BigInteger previous = null;
+        for (X509Crl.Entry entry : index.entries()) {
+            assertTrue(previous == null || previous.compareTo(entry.getSerialNumber()) < 0);
+            previous = entry.getSerialNumber();
+            result.add(entry.getSerialNumber());
+        }
+        return result;
+    }
+}
@@ -120,9 +120,26 @@ public class X509CrlTest {
         assertEquals(ValidationString.CRL_SIGNATURE_VALID, result.getFailures(rootMftCrlValidationLocation).get(0).getKey());
     }
 
+    @Test
+    public void shouldCheckValidityTimesAgainstFixedValidationTime() {
+        X509Crl subject = createCrl();
+        ValidationResult result = ValidationResult.withLocation(ROOT_MANIFEST_CRL_LOCATION);
+        ValidationOptions options = ValidationOptions.strictValidation().atValidationTime(subject.getNextUpdateTime().plusMinutes(1).getMillis());
+
+        X509ResourceCertificate selfSignedCaResourceCertificate = createSelfSignedCaResourceCertificate();
+        CertificateRepositoryObjectValidationContext context = new CertificateRepositoryObjectValidationContext(ROOT_MANIFEST_CRL_LOCATION, selfSignedCaResourceCertificate);
+
+        subject.validate(ROOT_MANIFEST_CRL_LOCATION.toString(), context, mock(CrlLocator.class), options, result);
+
+        assertTrue(options.isValidationTimeFixed());
+        assertEquals(ValidationString.CRL_NEXT_UPDATE_BEFORE_NOW, result.getFailures(new ValidationLocation(ROOT_MANIFEST_CRL_LOCATION)).get(0).getKey());
+    }
+
     @Test
     public void shouldBePastValidityTime() {
         X509Crl subject = createCrl();
         assertFalse(subject.isPastValidityTime());
+        assertFalse(subject.isPastValidityTime(ValidationOptions.strictValidation().atValidationTime(subject.getNextUpdateTime().getMillis())));
+        assertTrue(subject.isPastValidityTime(ValidationOptions.strictValidation().atValidationTime(subject.getNextUpdateTime().getMillis() + 1)));
     }
 }
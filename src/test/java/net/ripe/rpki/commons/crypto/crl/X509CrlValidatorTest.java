@@ -32,6 +32,7 @@ package net.ripe.rpki.commons.crypto.crl;
 import net.ripe.ipresource.IpResourceSet;
 import net.ripe.rpki.commons.crypto.ValidityPeriod;
 import net.ripe.rpki.commons.crypto.util.PregeneratedKeyPairFactory;
+import net.ripe.rpki.commons.crypto.util.SignatureVerificationCache;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateBuilder;
 import net.ripe.rpki.commons.util.UTC;
@@ -105,6 +106,44 @@ public class X509CrlValidatorTest {
         assertEquals(new ValidationCheck(ValidationStatus.ERROR, CRL_SIGNATURE_VALID), result.getResult(new ValidationLocation("location"), CRL_SIGNATURE_VALID));
     }
 
+    @Test
+    public void shouldUseSignatureVerificationCache() {
+        SignatureVerificationCache cache = SignatureVerificationCache.create();
+        options.setSignatureVerificationCache(cache);
+        X509Crl crl = getRootCRL().build(ROOT_KEY_PAIR.getPrivate());
+        X509Crl invalid = getRootCRL().build(FIRST_CHILD_KEY_PAIR.getPrivate());
+
+        subject.validate("location", crl);
+        subject.validate("location", crl);
+        assertFalse(result.hasFailures());
+
+        subject.validate("invalid", invalid);
+        subject.validate("invalid", invalid);
+        assertEquals(new ValidationCheck(ValidationStatus.ERROR, CRL_SIGNATURE_VALID), result.getResult(new ValidationLocation("invalid"), CRL_SIGNATURE_VALID));
+
+        assertEquals(3, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void shouldUseSignatureVerificationCacheCachingFailures() {
+        SignatureVerificationCache cache = SignatureVerificationCache.cachingFailures(SignatureVerificationCache.DEFAULT_MAXIMUM_SIZE);
+        options.setSignatureVerificationCache(cache);
+        X509Crl crl = getRootCRL().build(ROOT_KEY_PAIR.getPrivate());
+        X509Crl invalid = getRootCRL().build(FIRST_CHILD_KEY_PAIR.getPrivate());
+
+        subject.validate("location", crl);
+        subject.validate("location", crl);
+        assertFalse(result.hasFailures());
+
+        subject.validate("invalid", invalid);
+        subject.validate("invalid", invalid);
+        assertEquals(new ValidationCheck(ValidationStatus.ERROR, CRL_SIGNATURE_VALID), result.getResult(new ValidationLocation("invalid"), CRL_SIGNATURE_VALID));
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+    }
+
     @Test
     public void shouldRejectWhenThisUpdateInFuture() {
         DateTime now = UTC.dateTime().withMillisOfSecond(0);
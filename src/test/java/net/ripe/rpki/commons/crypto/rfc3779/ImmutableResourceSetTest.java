@@ -0,0 +1,130 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.rfc3779;
+
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.IpResourceRange;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.ipresource.IpResourceType;
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ImmutableResourceSetTest {
+
+    @Test
+    public void shouldNormaliseOverlappingAndAdjacentRanges() {
+        ImmutableResourceSet subject = ImmutableResourceSet.of(IpResource.parse("10.0.0.0/9"), IpResource.parse("AS3"), IpResource.parse("10.128.0.0/9"), IpResource.parse("AS1-AS2"), IpResource.parse("10.1.0.0/16"));
+
+        assertEquals(2, subject.rangeCount());
+        assertEquals(IpResourceSet.parse("AS1-AS3, 10.0.0.0/8"), subject.toIpResourceSet());
+        assertEquals(ImmutableResourceSet.of(IpResourceSet.parse("AS1-AS3, 10.0.0.0/8")), subject);
+        assertEquals("AS1-AS3, 10.0.0.0/8", subject.toString());
+    }
+
+    @Test
+    public void shouldHandleBoundariesOfTheAddressSpace() {
+        ImmutableResourceSet all = ImmutableResourceSet.of(IpResourceSet.parse("AS0-AS4294967295, 0.0.0.0/0, ::/0"));
+        ImmutableResourceSet some = ImmutableResourceSet.of(IpResourceSet.parse("AS0, AS4294967295, 0.0.0.0/32, 255.255.255.255/32, ::/128, ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff/128, 0:0:0:1::/64"));
+
+        assertTrue(all.contains(some));
+        assertFalse(some.contains(all));
+        assertEquals(some, all.intersection(some));
+        assertEquals(all, all.union(some));
+        assertEquals(expected(IpResourceSet.parse("AS0-AS4294967295, 0.0.0.0/0, ::/0"), IpResourceSet.parse("AS0, AS4294967295, 0.0.0.0/32, 255.255.255.255/32, ::/128, ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff/128, 0:0:0:1::/64")),
+                all.difference(some).toIpResourceSet());
+        assertTrue(some.difference(all).isEmpty());
+    }
+
+    @Test
+    public void shouldAgreeWithIpResourceSet() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            IpResourceSet a = randomSet(random);
+            IpResourceSet b = randomSet(random);
+            ImmutableResourceSet compactA = ImmutableResourceSet.of(a);
+            ImmutableResourceSet compactB = ImmutableResourceSet.of(b);
+
+            assertEquals(a, compactA.toIpResourceSet());
+            assertEquals(a.contains(b), compactA.contains(compactB));
+            assertEquals(expected(a, b), compactA.difference(compactB).toIpResourceSet());
+
+            IpResourceSet intersection = new IpResourceSet(a);
+            intersection.retainAll(b);
+            assertEquals(intersection, compactA.intersection(compactB).toIpResourceSet());
+
+            IpResourceSet union = new IpResourceSet(a);
+            union.addAll(b);
+            assertEquals(union, compactA.union(compactB).toIpResourceSet());
+            assertEquals(compactA.union(compactB), compactB.union(compactA));
+        }
+    }
+
+    @Test
+    public void shouldRetainTypes() {
+        ImmutableResourceSet subject = ImmutableResourceSet.of(IpResourceSet.parse("AS1, 10.0.0.0/8, 2001:db8::/32"));
+
+        assertEquals(IpResourceSet.parse("AS1, 2001:db8::/32"), subject.retainTypes(EnumSet.of(IpResourceType.ASN, IpResourceType.IPv6)).toIpResourceSet());
+        assertFalse(subject.retainTypes(EnumSet.of(IpResourceType.IPv4)).containsType(IpResourceType.ASN));
+        assertTrue(subject.retainTypes(EnumSet.noneOf(IpResourceType.class)).isEmpty());
+    }
+
+    @Test
+    public void shouldBeSerializable() {
+        ImmutableResourceSet subject = ImmutableResourceSet.of(IpResourceSet.parse("AS1, 10.0.0.0/8, 2001:db8::/32"));
+
+        assertEquals(subject, SerializationUtils.clone(subject));
+    }
+
+    private static IpResourceSet expected(IpResourceSet a, IpResourceSet b) {
+        IpResourceSet result = new IpResourceSet(a);
+        result.removeAll(b);
+        return result;
+    }
+
+    private static IpResourceSet randomSet(Random random) {
+        IpResourceSet result = new IpResourceSet();
+        int count = random.nextInt(8);
+        for (int i = 0; i < count; i++) {
+            IpResourceType type = IpResourceType.values()[random.nextInt(3)];
+            int bits = type == IpResourceType.IPv6 ? 12 : 10;
+            BigInteger offset = type == IpResourceType.IPv6 ? BigInteger.ONE.shiftLeft(100) : BigInteger.ZERO;
+            BigInteger start = new BigInteger(bits, random);
+            BigInteger end = start.add(new BigInteger(bits - 3, random));
+            result.add(IpResourceRange.assemble(offset.add(start), offset.add(end), type));
+        }
+        return result;
+    }
+}
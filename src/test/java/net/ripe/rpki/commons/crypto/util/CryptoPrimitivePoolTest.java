@@ -0,0 +1,114 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import org.junit.Test;
+
+import java.security.SignatureException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.SECOND_TEST_KEY_PAIR;
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.TEST_KEY_PAIR;
+import static org.junit.Assert.*;
+
+public class CryptoPrimitivePoolTest {
+
+    private final CryptoPrimitivePool subject = CryptoPrimitivePool.withProviders(null, "SunRsaSign");
+
+    @Test
+    public void shouldDecodeCertificatesCrlsAndKeys() throws Exception {
+        X509ResourceCertificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate();
+        X509Crl crl = X509CrlTest.createCrl();
+
+        assertEquals(certificate.getCertificate(), subject.generateCertificate(certificate.getEncoded()));
+        assertEquals(crl.getCrl(), subject.generateCrl(crl.getEncoded()));
+        assertEquals(TEST_KEY_PAIR.getPublic(), subject.generateRsaPublicKey(TEST_KEY_PAIR.getPublic().getEncoded()));
+        assertEquals(TEST_KEY_PAIR.getPrivate(), subject.generateRsaPrivateKey(TEST_KEY_PAIR.getPrivate().getEncoded()));
+    }
+
+    @Test
+    public void shouldVerifyCertificateSignature() throws Exception {
+        X509Certificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate().getCertificate();
+
+        subject.verify(certificate, TEST_KEY_PAIR.getPublic());
+        try {
+            subject.verify(certificate, SECOND_TEST_KEY_PAIR.getPublic());
+            fail("signature must not verify with other key");
+        } catch (SignatureException expected) {
+        }
+    }
+
+    @Test
+    public void shouldVerifyCrlSignature() throws Exception {
+        X509CRL crl = X509CrlTest.createCrl().getCrl();
+
+        subject.verify(crl, TEST_KEY_PAIR.getPublic());
+        try {
+            subject.verify(crl, SECOND_TEST_KEY_PAIR.getPublic());
+            fail("signature must not verify with other key");
+        } catch (SignatureException expected) {
+        }
+    }
+
+    @Test
+    public void shouldVerifyFromManyThreads() throws Exception {
+        X509Certificate certificate = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate().getCertificate();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; ++i) {
+                futures.add(executor.submit(() -> {
+                    subject.verify(certificate, TEST_KEY_PAIR.getPublic());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownProvider() throws Exception {
+        CryptoPrimitivePool.withProviders("NoSuchProvider", "SunRsaSign").generateCrl(X509CrlTest.createCrl().getEncoded());
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
+import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
+import static org.junit.Assert.*;
+
+public class PipelinedSignerTest {
+
+    private ExecutorService executor;
+
+    private PipelinedSigner subject;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        subject = new PipelinedSigner(DEFAULT_SIGNATURE_PROVIDER, executor, 2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldSignAllBlobs() throws Exception {
+        List<byte[]> blobs = Arrays.asList("first".getBytes(StandardCharsets.US_ASCII), "second".getBytes(StandardCharsets.US_ASCII), "third".getBytes(StandardCharsets.US_ASCII));
+
+        List<CompletableFuture<byte[]>> signatures = new ArrayList<>();
+        for (byte[] blob : blobs) {
+            signatures.add(subject.sign(DEFAULT_SIGNATURE_ALGORITHM, TEST_KEY_PAIR.getPrivate(), blob));
+        }
+
+        assertEquals(3, signatures.size());
+        for (int i = 0; i < blobs.size(); i++) {
+            Signature verifier = Signature.getInstance(DEFAULT_SIGNATURE_ALGORITHM);
+            verifier.initVerify(TEST_KEY_PAIR.getPublic());
+            verifier.update(blobs.get(i));
+            assertTrue(verifier.verify(signatures.get(i).join()));
+        }
+    }
+
+    @Test(expected = CompletionException.class)
+    public void shouldCompleteExceptionallyForUnknownAlgorithm() {
+        subject.sign("NONEwithUNKNOWN", TEST_KEY_PAIR.getPrivate(), new byte[0]).join();
+    }
+
+    @Test
+    public void shouldSignThroughSignerOfBuilder() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        AsyncSigner signer = (String algorithm, PrivateKey privateKey, byte[] toBeSigned) -> {
+            count.incrementAndGet();
+            return subject.sign(algorithm, privateKey, toBeSigned);
+        };
+
+        X509Crl crl = X509CrlTest.getCrlBuilder().withSigner(signer).build(TEST_KEY_PAIR.getPrivate());
+
+        crl.verify(TEST_KEY_PAIR.getPublic());
+        assertEquals(1, count.get());
+    }
+}
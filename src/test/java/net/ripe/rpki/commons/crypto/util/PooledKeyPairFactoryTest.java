@@ -0,0 +1,140 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class PooledKeyPairFactoryTest {
+
+    private final BlockingKeyPairFactory source = new BlockingKeyPairFactory();
+
+    private PooledKeyPairFactory subject;
+
+    @After
+    public void tearDown() {
+        source.release.countDown();
+        if (subject != null) {
+            subject.close();
+        }
+    }
+
+    @Test
+    public void shouldPreGenerateKeyPairsUpToHighWaterMark() throws InterruptedException {
+        source.release.countDown();
+        subject = new PooledKeyPairFactory(source, 5, 2, 0);
+
+        waitForPoolSize(5);
+        assertSame(KeyPairFactoryTest.TEST_KEY_PAIR, subject.generate());
+
+        assertEquals(1, subject.getPooledCount());
+        assertEquals(0, subject.getFallbackCount());
+        assertTrue(subject.getPoolSize() <= subject.getHighWaterMark());
+    }
+
+    @Test
+    public void shouldGenerateSynchronouslyWhenPoolIsEmpty() {
+        subject = new PooledKeyPairFactory(source, 5, 1, 0);
+
+        assertSame(KeyPairFactoryTest.TEST_KEY_PAIR, subject.generate());
+
+        assertEquals(0, subject.getPooledCount());
+        assertEquals(1, subject.getFallbackCount());
+        assertEquals(0, subject.getWaitTimeNanos());
+    }
+
+    @Test
+    public void shouldWaitForPreGeneratedKeyPair() throws InterruptedException {
+        subject = new PooledKeyPairFactory(source, 5, 1, 10_000);
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            source.release.countDown();
+        });
+        releaser.start();
+
+        assertSame(KeyPairFactoryTest.TEST_KEY_PAIR, subject.generate());
+        releaser.join();
+
+        assertEquals(1, subject.getPooledCount());
+        assertEquals(0, subject.getFallbackCount());
+        assertTrue(subject.getWaitTimeNanos() > 0);
+    }
+
+    @Test
+    public void shouldGenerateSynchronouslyAfterClose() {
+        subject = new PooledKeyPairFactory(source, 5, 1, 10_000);
+        subject.close();
+        source.release.countDown();
+
+        assertSame(KeyPairFactoryTest.TEST_KEY_PAIR, subject.generate());
+        assertEquals(1, subject.getFallbackCount());
+    }
+
+    private void waitForPoolSize(int size) throws InterruptedException {
+        for (int i = 0; i < 1000 && subject.getPoolSize() < size; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, subject.getPoolSize());
+    }
+
+    /**
+     * Returns the same key pair to keep the test fast. Background threads wait until the factory is released.
+     */
+    private static class BlockingKeyPairFactory extends KeyPairFactory {
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingKeyPairFactory() {
+            super("SunRsaSign");
+        }
+
+        @Override
+        public KeyPair generate() {
+            if (Thread.currentThread().getName().startsWith("key-pair-pool-")) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new KeyPairFactoryException(e);
+                }
+            }
+            return KeyPairFactoryTest.TEST_KEY_PAIR;
+        }
+    }
+}
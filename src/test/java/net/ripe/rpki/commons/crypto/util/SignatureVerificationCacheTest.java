@@ -0,0 +1,139 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.crypto.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SignatureVerificationCacheTest {
+
+    private static final PublicKey KEY = PregeneratedKeyPairFactory.getInstance().generate().getPublic();
+    private static final PublicKey OTHER_KEY = PregeneratedKeyPairFactory.getInstance().generate().getPublic();
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    @Test
+    public void shouldCacheSuccessfulVerificationPerObjectAndKey() {
+        SignatureVerificationCache subject = SignatureVerificationCache.create();
+
+        assertTrue(subject.isValid(new byte[]{1}, KEY, this::accept));
+        assertTrue(subject.isValid(new byte[]{1}, KEY, this::accept));
+        assertFalse(subject.isValid(new byte[]{2}, KEY, this::reject));
+        assertFalse(subject.isValid(new byte[]{2}, KEY, this::reject));
+        assertFalse(subject.isValid(new byte[]{1}, OTHER_KEY, this::reject));
+
+        assertEquals(4, verifications.get());
+        assertEquals(4, subject.getMissCount());
+        assertEquals(1, subject.getHitCount());
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void shouldCacheFailedVerificationWhenEnabled() throws IOException {
+        SignatureVerificationCache subject = SignatureVerificationCache.cachingFailures(10);
+
+        assertFalse(subject.isValid(new byte[]{1}, KEY, this::reject));
+        assertFalse(subject.isValid(new byte[]{1}, KEY, this::accept));
+        assertFalse(subject.isKnownValid(new byte[]{1}, KEY));
+        assertTrue(subject.isValid(new byte[]{2}, KEY, this::accept));
+        assertEquals(2, verifications.get());
+        assertEquals(2, subject.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        subject.writeTo(out);
+        SignatureVerificationCache restored = SignatureVerificationCache.cachingFailures(10);
+        restored.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(1, restored.size());
+        assertTrue(restored.isKnownValid(new byte[]{2}, KEY));
+    }
+
+    @Test
+    public void shouldRestoreWrittenVerifications() throws IOException {
+        SignatureVerificationCache original = SignatureVerificationCache.create();
+        original.markValid(new byte[]{1}, KEY);
+        original.markValid(new byte[]{2}, OTHER_KEY);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        original.writeTo(out);
+
+        SignatureVerificationCache subject = SignatureVerificationCache.create();
+        subject.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, subject.size());
+        assertTrue(subject.isKnownValid(new byte[]{1}, KEY));
+        assertTrue(subject.isKnownValid(new byte[]{2}, OTHER_KEY));
+        assertFalse(subject.isKnownValid(new byte[]{2}, KEY));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        SignatureVerificationCache subject = SignatureVerificationCache.withMaximumSize(2);
+
+        subject.isValid(new byte[]{1}, KEY, this::accept);
+        subject.isValid(new byte[]{2}, KEY, this::accept);
+        subject.isValid(new byte[]{1}, KEY, this::accept);
+        subject.isValid(new byte[]{3}, KEY, this::accept);
+        assertEquals(3, verifications.get());
+
+        subject.isValid(new byte[]{1}, KEY, this::accept);
+        assertEquals(3, verifications.get());
+        subject.isValid(new byte[]{2}, KEY, this::accept);
+        assertEquals(4, verifications.get());
+        assertEquals(2, subject.size());
+    }
+
+    @Test
+    public void shouldAlwaysVerifyWhenDisabled() {
+        SignatureVerificationCache subject = SignatureVerificationCache.disabled();
+
+        assertTrue(subject.isValid(new byte[]{1}, KEY, this::accept));
+        assertTrue(subject.isValid(new byte[]{1}, KEY, this::accept));
+
+        assertEquals(2, verifications.get());
+        assertEquals(0, subject.size());
+    }
+
+    private void accept(PublicKey publicKey) {
+        verifications.incrementAndGet();
+    }
+
+    private void reject(PublicKey publicKey) throws SignatureException {
+        verifications.incrementAndGet();
+        throw new SignatureException("invalid");
+    }
+}
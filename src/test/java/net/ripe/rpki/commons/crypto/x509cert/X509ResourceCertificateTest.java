@@ -42,6 +42,7 @@ import net.ripe.rpki.commons.validation.ValidationOptions;
 import net.ripe.rpki.commons.validation.ValidationResult;
 import net.ripe.rpki.commons.validation.ValidationString;
 import net.ripe.rpki.commons.validation.objectvalidators.CertificateRepositoryObjectValidationContext;
+import org.apache.commons.lang.SerializationUtils;
 import org.bouncycastle.asn1.x509.KeyUsage;
 import org.joda.time.DateTime;
 import org.junit.Before;
@@ -52,6 +53,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import javax.security.auth.x500.X500Principal;
+import java.io.ObjectStreamClass;
 import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -61,6 +63,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.SignatureException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Random;
 
@@ -162,6 +165,43 @@ public class X509ResourceCertificateTest {
         new X509ResourceCertificate(null);
     }
 
+    @Test
+    public void shouldKeepDerivedValuesAfterSerialization() {
+        X509ResourceCertificate subject = createSelfSignedCaResourceCertificate(TEST_RESOURCE_SET);
+        byte[] ski = subject.getSubjectKeyIdentifier();
+        URI manifestUri = subject.getManifestUri();
+        ValidityPeriod validityPeriod = subject.getValidityPeriod();
+
+        X509ResourceCertificate copy = (X509ResourceCertificate) SerializationUtils.clone(subject);
+
+        assertArrayEquals(ski, copy.getSubjectKeyIdentifier());
+        assertEquals(manifestUri, copy.getManifestUri());
+        assertEquals(validityPeriod, copy.getValidityPeriod());
+        assertEquals(subject.getRepositoryUri(), copy.getRepositoryUri());
+        assertEquals(subject.isRoot(), copy.isRoot());
+        assertNull(copy.findFirstRsyncCrlDistributionPoint());
+        assertEquals(subject.getImmutableResources(), copy.getImmutableResources());
+    }
+
+    @Test
+    public void shouldKeepSerializedFormCompatible() {
+        ObjectStreamClass serializedForm = ObjectStreamClass.lookup(X509ResourceCertificate.class);
+
+        assertEquals(2L, serializedForm.getSerialVersionUID());
+        assertEquals(IpResourceSet.class, serializedForm.getField("resources").getType());
+    }
+
+    @Test
+    public void shouldNotExposeCachedKeyIdentifiers() {
+        X509ResourceCertificate subject = createSelfSignedCaResourceCertificate(TEST_RESOURCE_SET);
+        byte[] ski = subject.getSubjectKeyIdentifier();
+        ski[0] ^= 1;
+
+        assertFalse(Arrays.equals(ski, subject.getSubjectKeyIdentifier()));
+        assertArrayEquals(subject.getAuthorityKeyIdentifier(), subject.getAuthorityKeyIdentifier());
+        assertNotSame(subject.getAuthorityKeyIdentifier(), subject.getAuthorityKeyIdentifier());
+    }
+
     @Test
     public void shouldHaveCertificate() {
         assertNotNull(createSelfSignedCaResourceCertificate(TEST_RESOURCE_SET).getCertificate());
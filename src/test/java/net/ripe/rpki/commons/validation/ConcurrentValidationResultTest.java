@@ -0,0 +1,126 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentValidationResultTest {
+
+    private static final ValidationLocation FIRST_LOCATION = new ValidationLocation("firstValidatedObject");
+
+    private static final ValidationLocation SECOND_LOCATION = new ValidationLocation("secondValidatedObject");
+
+    @Test
+    public void shouldTrackFailuresAndWarnings() {
+        ConcurrentValidationResult result = ConcurrentValidationResult.withConcurrencyLevel(3);
+        assertFalse(result.hasFailures());
+        assertFalse(result.hasWarnings());
+
+        assertTrue(result.rejectIfFalse(FIRST_LOCATION, true, "A"));
+        assertFalse(result.warnIfTrue(FIRST_LOCATION, true, "B"));
+        assertFalse(result.hasFailures());
+        assertTrue(result.hasWarnings());
+
+        assertFalse(result.rejectIfTrue(SECOND_LOCATION, true, "C", "param"));
+        assertTrue(result.hasFailures());
+        assertEquals(1, result.getFailureCount());
+        assertEquals(1, result.getWarningCount());
+        assertFalse(result.hasFailureForLocation(FIRST_LOCATION));
+        assertTrue(result.hasFailureForLocation(SECOND_LOCATION));
+
+        ValidationResult merged = result.toValidationResult();
+        assertEquals(2, merged.getAllValidationChecksForLocation(FIRST_LOCATION).size());
+        assertEquals(new ValidationCheck(ValidationStatus.ERROR, "C", "param"), merged.getFailures(SECOND_LOCATION).get(0));
+    }
+
+    @Test
+    public void shouldAddAllChecksFromValidationResult() {
+        ValidationResult source = ValidationResult.withLocation(FIRST_LOCATION);
+        source.pass("passed");
+        source.warn("warning");
+        source.setLocation(SECOND_LOCATION).error("error");
+
+        ConcurrentValidationResult result = ConcurrentValidationResult.create().withoutStoringPassingChecks();
+        result.addAll(source);
+
+        assertEquals(1, result.getFailureCount());
+        assertEquals(1, result.getWarningCount());
+        ValidationResult merged = result.toValidationResult();
+        assertFalse(merged.isStoringPassingChecks());
+        assertEquals(1, merged.getAllValidationChecksForLocation(FIRST_LOCATION).size());
+        assertEquals(1, merged.getAllValidationChecksForLocation(SECOND_LOCATION).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectStreamingValidationResult() {
+        ValidationResult source = ValidationResult.withLocation(FIRST_LOCATION).streamingTo((location, check) -> { });
+        source.error("error");
+
+        ConcurrentValidationResult.create().addAll(source);
+    }
+
+    @Test
+    public void shouldCollectChecksFromManyThreads() throws Exception {
+        final ConcurrentValidationResult result = ConcurrentValidationResult.withConcurrencyLevel(4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; ++i) {
+                final ValidationLocation location = new ValidationLocation("object-" + i);
+                final boolean valid = i % 10 != 0;
+                futures.add(executor.submit(() -> {
+                    ValidationResult local = ValidationResult.withLocation(location);
+                    local.rejectIfFalse(valid, "valid");
+                    result.addAll(local);
+                    result.pass(location, "counted");
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100, result.getFailureCount());
+        ValidationResult merged = result.toValidationResult();
+        assertEquals(1000, merged.getValidatedLocations().size());
+        assertEquals(100, merged.getFailuresForAllLocations().size());
+        assertEquals(2, merged.getAllValidationChecksForLocation(new ValidationLocation("object-5")).size());
+    }
+}
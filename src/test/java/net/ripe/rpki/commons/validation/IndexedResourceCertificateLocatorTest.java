@@ -0,0 +1,141 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.rpki.commons.crypto.crl.X509Crl;
+import net.ripe.rpki.commons.crypto.crl.X509CrlTest;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
+import net.ripe.rpki.commons.validation.objectvalidators.IndexedResourceCertificateLocator;
+import net.ripe.rpki.commons.validation.objectvalidators.X509ResourceCertificateBottomUpValidator;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.stream.IntStream;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
+import static net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest.*;
+import static org.junit.Assert.*;
+
+public class IndexedResourceCertificateLocatorTest {
+
+    private static final URI ROOT_URI = URI.create("rsync://host/root.cer");
+    private static final URI CRL_URI = URI.create("rsync://host/root/root.crl");
+
+    private X509ResourceCertificate root;
+    private X509ResourceCertificate child;
+    private X509Crl crl;
+
+    private IndexedResourceCertificateLocator subject;
+
+    @Before
+    public void setUp() {
+        root = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate();
+        child = createSelfSignedCaCertificateBuilder()
+                .withSubjectDN(new X500Principal("CN=child"))
+                .withSerial(BigInteger.valueOf(901))
+                .withPublicKey(SECOND_TEST_KEY_PAIR.getPublic())
+                .withSigningKeyPair(TEST_KEY_PAIR)
+                .withResources(IpResourceSet.parse("10.0.0.0/16, AS21212"))
+                .withCrlDistributionPoints(CRL_URI)
+                .build();
+        crl = createCrl(BigInteger.TEN);
+        subject = new IndexedResourceCertificateLocator();
+    }
+
+    @Test
+    public void shouldFindParentBySubjectKeyIdentifier() {
+        assertNull(subject.findParent(child));
+
+        subject.add(ROOT_URI, root).add(URI.create("rsync://host/child.cer"), child);
+
+        assertEquals(ROOT_URI.toString(), subject.findParent(child).getName());
+        assertArrayEquals(root.getEncoded(), subject.findParent(child).getContent());
+        assertEquals(2, subject.getCertificateCount());
+    }
+
+    @Test
+    public void shouldFindCrlByDistributionPointOrIssuer() {
+        URI otherLocation = URI.create("rsync://host/elsewhere/root.crl");
+        subject.add(otherLocation, crl);
+        assertEquals(otherLocation.toString(), subject.findCrl(child).getName());
+
+        subject.add(CRL_URI, crl);
+        assertEquals(CRL_URI.toString(), subject.findCrl(child).getName());
+        assertEquals(otherLocation.toString(), subject.findCrl(otherLocation).getName());
+    }
+
+    @Test
+    public void shouldKeepMostRecentCrlPerIssuer() {
+        URI newer = URI.create("rsync://host/newer.crl");
+        URI older = URI.create("rsync://host/older.crl");
+
+        subject.add(newer, crl).add(older, createCrl(BigInteger.ONE));
+        assertEquals(newer.toString(), subject.findCrlByAuthorityKeyIdentifier(root.getSubjectKeyIdentifier()).getName());
+
+        subject.removeCrl(newer);
+        assertNull(subject.findCrlByAuthorityKeyIdentifier(root.getSubjectKeyIdentifier()));
+        assertEquals(1, subject.getCrlCount());
+    }
+
+    @Test
+    public void shouldLocateChainForBottomUpValidation() {
+        subject.add(ROOT_URI, root).add(CRL_URI, crl);
+
+        X509ResourceCertificateBottomUpValidator validator = new X509ResourceCertificateBottomUpValidator(subject, root);
+        validator.validate("child.cer", child);
+
+        assertFalse(validator.getValidationResult().getFailuresForAllLocations().toString(), validator.getValidationResult().hasFailures());
+    }
+
+    @Test
+    public void shouldSupportConcurrentUpdatesAndLookups() {
+        subject.add(ROOT_URI, root);
+
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+            subject.add(URI.create("rsync://host/" + i + ".crl"), crl);
+            assertNotNull(subject.findParent(child));
+            assertNotNull(subject.findCrl(child));
+        });
+
+        assertEquals(1000, subject.getCrlCount());
+    }
+
+    private X509Crl createCrl(BigInteger number) {
+        return X509CrlTest.getCrlBuilder()
+                .withIssuerDN(TEST_SELF_SIGNED_CERTIFICATE_NAME)
+                .withNumber(number)
+                .build(TEST_KEY_PAIR.getPrivate());
+    }
+}
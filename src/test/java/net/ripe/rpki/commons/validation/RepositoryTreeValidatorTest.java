@@ -0,0 +1,320 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceSet;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.rpki.commons.crypto.CertificateRepositoryObject;
+import net.ripe.rpki.commons.crypto.ValidityPeriod;
+import net.ripe.rpki.commons.crypto.cms.manifest.ManifestCmsBuilder;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsBuilder;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import net.ripe.rpki.commons.crypto.crl.X509CrlBuilder;
+import net.ripe.rpki.commons.crypto.x509cert.X509CertificateInformationAccessDescriptor;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateBuilder;
+import net.ripe.rpki.commons.util.UTC;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.security.KeyPair;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static net.ripe.rpki.commons.crypto.util.KeyPairFactoryTest.*;
+import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
+import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateInformationAccessDescriptor.*;
+import static org.junit.Assert.*;
+
+public class RepositoryTreeValidatorTest {
+
+    private static final URI TA_URI = URI.create("rsync://repo/ta.cer");
+    private static final URI TA_REPOSITORY = URI.create("rsync://repo/ta/");
+    private static final X500Principal TA_NAME = new X500Principal("CN=TA");
+
+    private static final KeyPair TA_KEY_PAIR = getKeyPair("tree-ta");
+    private static final KeyPair CA_KEY_PAIR = getKeyPair("tree-ca");
+    private static final KeyPair EE_KEY_PAIR = getKeyPair("tree-ee");
+
+    private final DateTime now = UTC.dateTime();
+
+    private final Map<URI, byte[]> objects = new HashMap<>();
+
+    private X509ResourceCertificate trustAnchor;
+
+    private BigInteger serial = BigInteger.ONE;
+
+    @Before
+    public void setUp() {
+        trustAnchor = certificate(TA_NAME, TA_KEY_PAIR, TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, null, null, IpResourceSet.parse("AS1-AS100, 10.0.0.0/8"));
+        objects.put(TA_URI, trustAnchor.getEncoded());
+    }
+
+    @Test
+    public void shouldValidateAllObjectsInTheTree() {
+        ManifestCmsBuilder taManifest = publicationPoint(TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, TA_URI);
+        URI caRepository = URI.create("rsync://repo/ca/");
+        URI caUri = TA_REPOSITORY.resolve("ca.cer");
+        X500Principal caName = new X500Principal("CN=CA");
+        publish(taManifest, caUri, certificate(TA_NAME, TA_KEY_PAIR, caName, CA_KEY_PAIR, caRepository, TA_REPOSITORY.resolve("ta.crl"), TA_URI, IpResourceSet.parse("AS1, 10.1.0.0/16")).getEncoded());
+        publishManifest(taManifest, TA_REPOSITORY);
+
+        ManifestCmsBuilder caManifest = publicationPoint(caName, CA_KEY_PAIR, caRepository, caUri);
+        publish(caManifest, caRepository.resolve("roa.roa"), roa(caName, CA_KEY_PAIR, caRepository, caUri).getEncoded());
+        publishManifest(caManifest, caRepository);
+
+        ConcurrentValidationResult result = ConcurrentValidationResult.create();
+        Map<URI, CertificateRepositoryObject> validObjects = RepositoryTreeValidator.of(objects::get).validate(TA_URI, trustAnchor, result);
+
+        assertFalse(result.toValidationResult().getFailuresForAllLocations().toString(), result.hasFailures());
+        assertEquals(objects.keySet(), validObjects.keySet());
+    }
+
+    @Test
+    public void shouldReportMissingAndModifiedObjectsAndContinue() {
+        ManifestCmsBuilder taManifest = publicationPoint(TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, TA_URI);
+        URI firstCaUri = TA_REPOSITORY.resolve("first.cer");
+        URI secondCaUri = TA_REPOSITORY.resolve("second.cer");
+        URI thirdCaUri = TA_REPOSITORY.resolve("third.cer");
+        for (String name : new String[]{"first", "second", "third"}) {
+            URI caUri = TA_REPOSITORY.resolve(name + ".cer");
+            URI caRepository = TA_REPOSITORY.resolve(name + "/");
+            X500Principal caName = new X500Principal("CN=" + name);
+            publish(taManifest, caUri, certificate(TA_NAME, TA_KEY_PAIR, caName, CA_KEY_PAIR, caRepository, TA_REPOSITORY.resolve("ta.crl"), TA_URI, IpResourceSet.parse("AS1, 10.1.0.0/16")).getEncoded());
+            publishManifest(publicationPoint(caName, CA_KEY_PAIR, caRepository, caUri), caRepository);
+        }
+        publishManifest(taManifest, TA_REPOSITORY);
+        objects.remove(firstCaUri);
+        objects.put(secondCaUri, objects.get(thirdCaUri));
+
+        ConcurrentValidationResult result = ConcurrentValidationResult.create();
+        Map<URI, CertificateRepositoryObject> validObjects = RepositoryTreeValidator.of(objects::get).validate(TA_URI, trustAnchor, result);
+
+        assertTrue(result.hasFailureForLocation(new ValidationLocation(firstCaUri)));
+        assertTrue(result.hasFailureForLocation(new ValidationLocation(secondCaUri)));
+        assertEquals(2, result.getFailureCount());
+        assertTrue(validObjects.containsKey(thirdCaUri));
+        assertTrue(validObjects.containsKey(URI.create("rsync://repo/ta/third/ca.mft")));
+        assertFalse(validObjects.containsKey(firstCaUri));
+        assertFalse(validObjects.containsKey(secondCaUri));
+        assertFalse(validObjects.containsKey(URI.create("rsync://repo/ta/second/ca.mft")));
+    }
+
+    @Test
+    public void shouldRejectCrlThatDoesNotMatchManifest() {
+        ManifestCmsBuilder taManifest = publicationPoint(TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, TA_URI);
+        URI caRepository = URI.create("rsync://repo/ca/");
+        URI caUri = TA_REPOSITORY.resolve("ca.cer");
+        X500Principal caName = new X500Principal("CN=CA");
+        publish(taManifest, caUri, certificate(TA_NAME, TA_KEY_PAIR, caName, CA_KEY_PAIR, caRepository, TA_REPOSITORY.resolve("ta.crl"), TA_URI, IpResourceSet.parse("AS1, 10.1.0.0/16")).getEncoded());
+        publishManifest(taManifest, TA_REPOSITORY);
+
+        ManifestCmsBuilder caManifest = publicationPoint(caName, CA_KEY_PAIR, caRepository, caUri);
+        URI roaUri = caRepository.resolve("roa.roa");
+        publish(caManifest, roaUri, roa(caName, CA_KEY_PAIR, caRepository, caUri).getEncoded());
+        publishManifest(caManifest, caRepository);
+        // A valid CRL of the same CA, but not the one listed on the manifest
+        URI crlUri = caRepository.resolve("ca.crl");
+        objects.put(crlUri, new X509CrlBuilder()
+                .withIssuerDN(caName)
+                .withThisUpdateTime(now.minusMinutes(1))
+                .withNextUpdateTime(now.plusHours(8))
+                .withNumber(BigInteger.valueOf(2))
+                .withAuthorityKeyIdentifier(CA_KEY_PAIR.getPublic())
+                .withSignatureProvider(DEFAULT_SIGNATURE_PROVIDER)
+                .build(CA_KEY_PAIR.getPrivate())
+                .getEncoded());
+
+        ConcurrentValidationResult result = ConcurrentValidationResult.create();
+        Map<URI, CertificateRepositoryObject> validObjects = RepositoryTreeValidator.of(objects::get).validate(TA_URI, trustAnchor, result);
+
+        assertTrue(result.hasFailureForLocation(new ValidationLocation(crlUri)));
+        assertEquals(1, result.getFailureCount());
+        assertTrue(validObjects.containsKey(caUri));
+        assertFalse(validObjects.containsKey(crlUri));
+        assertFalse(validObjects.containsKey(caRepository.resolve("ca.mft")));
+        assertFalse(validObjects.containsKey(roaUri));
+    }
+
+    @Test
+    public void shouldValidateManyPublicationPointsInDedicatedPool() {
+        ManifestCmsBuilder taManifest = publicationPoint(TA_NAME, TA_KEY_PAIR, TA_REPOSITORY, TA_URI);
+        for (int i = 0; i < 16; i++) {
+            URI caUri = TA_REPOSITORY.resolve("ca-" + i + ".cer");
+            URI caRepository = TA_REPOSITORY.resolve("ca-" + i + "/");
+            X500Principal caName = new X500Principal("CN=CA-" + i);
+            publish(taManifest, caUri, certificate(TA_NAME, TA_KEY_PAIR, caName, CA_KEY_PAIR, caRepository, TA_REPOSITORY.resolve("ta.crl"), TA_URI, IpResourceSet.parse("AS1, 10.1.0.0/16")).getEncoded());
+            ManifestCmsBuilder caManifest = publicationPoint(caName, CA_KEY_PAIR, caRepository, caUri);
+            publish(caManifest, caRepository.resolve("roa.roa"), roa(caName, CA_KEY_PAIR, caRepository, caUri).getEncoded());
+            publishManifest(caManifest, caRepository);
+        }
+        publishManifest(taManifest, TA_REPOSITORY);
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ConcurrentValidationResult result = ConcurrentValidationResult.create();
+            Map<URI, CertificateRepositoryObject> validObjects = RepositoryTreeValidator.of(objects::get).withPool(pool).validate(TA_URI, trustAnchor, result);
+
+            assertFalse(result.hasFailures());
+            assertEquals(objects.keySet(), validObjects.keySet());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotDescendBelowInvalidTrustAnchor() {
+        X509ResourceCertificate expired = new X509ResourceCertificateBuilder()
+                .withCa(true).withKeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign)
+                .withSubjectDN(TA_NAME).withIssuerDN(TA_NAME).withSerial(BigInteger.TEN)
+                .withValidityPeriod(new ValidityPeriod(now.minusYears(2), now.minusYears(1)))
+                .withPublicKey(TA_KEY_PAIR.getPublic()).withSigningKeyPair(TA_KEY_PAIR)
+                .withSubjectKeyIdentifier(true).withAuthorityKeyIdentifier(true)
+                .withResources(IpResourceSet.parse("AS1"))
+                .withSubjectInformationAccess(
+                        new X509CertificateInformationAccessDescriptor(ID_AD_CA_REPOSITORY, TA_REPOSITORY),
+                        new X509CertificateInformationAccessDescriptor(ID_AD_RPKI_MANIFEST, TA_REPOSITORY.resolve("ta.mft")))
+                .build();
+
+        ConcurrentValidationResult result = ConcurrentValidationResult.create();
+        Map<URI, CertificateRepositoryObject> validObjects = RepositoryTreeValidator.of(uri -> {
+            throw new AssertionError("should not fetch " + uri);
+        }).validate(TA_URI, expired, result);
+
+        assertTrue(result.hasFailureForLocation(new ValidationLocation(TA_URI)));
+        assertEquals(Collections.emptyMap(), validObjects);
+    }
+
+    private ManifestCmsBuilder publicationPoint(X500Principal caName, KeyPair caKeyPair, URI repository, URI caUri) {
+        URI crlUri = repository.resolve(crlName(repository));
+        byte[] crl = new X509CrlBuilder()
+                .withIssuerDN(caName)
+                .withThisUpdateTime(now.minusMinutes(1))
+                .withNextUpdateTime(now.plusHours(8))
+                .withNumber(BigInteger.ONE)
+                .withAuthorityKeyIdentifier(caKeyPair.getPublic())
+                .withSignatureProvider(DEFAULT_SIGNATURE_PROVIDER)
+                .build(caKeyPair.getPrivate())
+                .getEncoded();
+        URI manifestUri = repository.resolve(manifestName(repository));
+        ManifestCmsBuilder builder = new ManifestCmsBuilder()
+                .withCertificate(endEntityCertificate(caName, caKeyPair, crlUri, caUri, manifestUri)
+                        .withInheritedResourceTypes(EnumSet.allOf(IpResourceType.class))
+                        .build())
+                .withManifestNumber(BigInteger.ONE)
+                .withThisUpdateTime(now.minusMinutes(1))
+                .withNextUpdateTime(now.plusHours(8))
+                .withSignatureProvider(DEFAULT_SIGNATURE_PROVIDER);
+        publish(builder, crlUri, crl);
+        return builder;
+    }
+
+    private void publish(ManifestCmsBuilder manifest, URI uri, byte[] encoded) {
+        objects.put(uri, encoded);
+        manifest.addFile(uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1), encoded);
+    }
+
+    private void publishManifest(ManifestCmsBuilder manifest, URI repository) {
+        objects.put(repository.resolve(manifestName(repository)), manifest.build(EE_KEY_PAIR.getPrivate()).getEncoded());
+    }
+
+    private static String manifestName(URI repository) {
+        return repository.equals(TA_REPOSITORY) ? "ta.mft" : "ca.mft";
+    }
+
+    private static String crlName(URI repository) {
+        return repository.equals(TA_REPOSITORY) ? "ta.crl" : "ca.crl";
+    }
+
+    private CertificateRepositoryObject roa(X500Principal caName, KeyPair caKeyPair, URI repository, URI caUri) {
+        URI roaUri = repository.resolve("roa.roa");
+        return new RoaCmsBuilder()
+                .withCertificate(endEntityCertificate(caName, caKeyPair, repository.resolve(crlName(repository)), caUri, roaUri)
+                        .withResources(IpResourceSet.parse("10.1.0.0/16"))
+                        .build())
+                .withAsn(Asn.parse("AS1"))
+                .withPrefixes(Collections.singletonList(new RoaPrefix(IpRange.parse("10.1.0.0/16"))))
+                .withSignatureProvider(DEFAULT_SIGNATURE_PROVIDER)
+                .build(EE_KEY_PAIR.getPrivate());
+    }
+
+    private X509ResourceCertificateBuilder endEntityCertificate(X500Principal issuer, KeyPair issuerKeyPair, URI crlUri, URI issuerUri, URI objectUri) {
+        serial = serial.add(BigInteger.ONE);
+        return new X509ResourceCertificateBuilder()
+                .withCa(false)
+                .withKeyUsage(KeyUsage.digitalSignature)
+                .withSubjectDN(new X500Principal("CN=EE-" + serial))
+                .withIssuerDN(issuer)
+                .withSerial(serial)
+                .withValidityPeriod(new ValidityPeriod(now.minusMinutes(1), now.plusHours(8)))
+                .withPublicKey(EE_KEY_PAIR.getPublic())
+                .withSigningKeyPair(issuerKeyPair)
+                .withSubjectKeyIdentifier(true)
+                .withAuthorityKeyIdentifier(true)
+                .withCrlDistributionPoints(crlUri)
+                .withAuthorityInformationAccess(new X509CertificateInformationAccessDescriptor(ID_CA_CA_ISSUERS, issuerUri))
+                .withSubjectInformationAccess(new X509CertificateInformationAccessDescriptor(ID_AD_SIGNED_OBJECT, objectUri));
+    }
+
+    private X509ResourceCertificate certificate(X500Principal issuer, KeyPair issuerKeyPair, X500Principal subject, KeyPair subjectKeyPair,
+                                                URI repository, URI crlUri, URI issuerUri, IpResourceSet resources) {
+        serial = serial.add(BigInteger.ONE);
+        X509ResourceCertificateBuilder builder = new X509ResourceCertificateBuilder()
+                .withCa(true)
+                .withKeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign)
+                .withSubjectDN(subject)
+                .withIssuerDN(issuer)
+                .withSerial(serial)
+                .withValidityPeriod(new ValidityPeriod(now.minusMinutes(1), now.plusYears(1)))
+                .withPublicKey(subjectKeyPair.getPublic())
+                .withSigningKeyPair(issuerKeyPair)
+                .withSubjectKeyIdentifier(true)
+                .withAuthorityKeyIdentifier(true)
+                .withResources(resources)
+                .withSubjectInformationAccess(
+                        new X509CertificateInformationAccessDescriptor(ID_AD_CA_REPOSITORY, repository),
+                        new X509CertificateInformationAccessDescriptor(ID_AD_RPKI_MANIFEST, repository.resolve(manifestName(repository))));
+        if (crlUri != null) {
+            builder.withCrlDistributionPoints(crlUri)
+                    .withAuthorityInformationAccess(new X509CertificateInformationAccessDescriptor(ID_CA_CA_ISSUERS, issuerUri));
+        }
+        return builder.build();
+    }
+}
@@ -30,13 +30,17 @@
 package net.ripe.rpki.commons.validation;
 
 import net.ripe.rpki.commons.FixedDateRule;
+import org.apache.commons.lang.SerializationUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -224,4 +228,147 @@ public class ValidationResultTest {
         assertFalse(result.isStoringPassingChecks());
         assertEquals(0, result.getAllValidationChecksForCurrentLocation().size());
     }
+
+    @Test
+    public void should_store_passing_checks_compactly_when_requested() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withCompactPassingChecks();
+        assertTrue(result.isCompactingPassingChecks());
+        result.pass(ValidationString.SIGNATURE_VALID);
+        result.pass(ValidationString.SIGNATURE_VALID, "with", "params");
+        result.rejectIfFalse(true, "not.a.validation.string");
+        result.rejectIfFalse(false, ValidationString.CRL_REQUIRED, "param");
+        result.warnIfTrue(true, ValidationString.CRL_SIGN);
+
+        List<ValidationCheck> checks = result.getAllValidationChecksForCurrentLocation();
+        assertEquals(4, checks.size());
+        assertEquals(new ValidationCheck(ValidationStatus.ERROR, ValidationString.CRL_REQUIRED, "param"), checks.get(0));
+        assertEquals(new ValidationCheck(ValidationStatus.WARNING, ValidationString.CRL_SIGN), checks.get(1));
+        assertTrue(checks.contains(new ValidationCheck(ValidationStatus.PASSED, ValidationString.SIGNATURE_VALID)));
+        assertTrue(checks.contains(new ValidationCheck(ValidationStatus.PASSED, "not.a.validation.string")));
+
+        assertEquals(ValidationStatus.PASSED, result.getResultForCurrentLocation(ValidationString.SIGNATURE_VALID).getStatus());
+        assertEquals(ValidationStatus.ERROR, result.getResultForCurrentLocation(ValidationString.CRL_REQUIRED).getStatus());
+        assertNull(result.getResultForCurrentLocation("never.checked"));
+        assertTrue(result.hasFailureForCurrentLocation());
+    }
+
+    @Test
+    public void should_compact_existing_passing_checks() {
+        result = ValidationResult.withLocation(FIRST_LOCATION);
+        result.pass("passed", "param");
+        result.error("error");
+
+        result.withCompactPassingChecks();
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.ERROR, "error"),
+                new ValidationCheck(ValidationStatus.PASSED, "passed")
+        ), result.getAllValidationChecksForCurrentLocation());
+    }
+
+    @Test
+    public void should_add_all_between_compact_and_regular_results() {
+        ValidationResult compact = ValidationResult.withLocation(FIRST_LOCATION).withCompactPassingChecks();
+        compact.pass("compact.passed");
+        ValidationResult regular = ValidationResult.withLocation(FIRST_LOCATION);
+        regular.pass("regular.passed", "param");
+
+        ValidationResult compactCopy = ValidationResult.withLocation(FIRST_LOCATION).withCompactPassingChecks().addAll(compact).addAll(regular);
+        ValidationResult regularCopy = ValidationResult.withLocation(FIRST_LOCATION).addAll(compact).addAll(regular);
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.PASSED, "compact.passed"),
+                new ValidationCheck(ValidationStatus.PASSED, "regular.passed")
+        ), compactCopy.getAllValidationChecksForCurrentLocation());
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.PASSED, "compact.passed"),
+                new ValidationCheck(ValidationStatus.PASSED, "regular.passed", "param")
+        ), regularCopy.getAllValidationChecksForCurrentLocation());
+    }
+
+    @Test
+    public void should_serialize_compact_passing_checks_by_key() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).withCompactPassingChecks();
+        result.pass("serialized.passed");
+
+        ValidationResult copy = (ValidationResult) SerializationUtils.clone(result);
+
+        assertEquals(Collections.singletonList(new ValidationCheck(ValidationStatus.PASSED, "serialized.passed")),
+                copy.getAllValidationChecksForCurrentLocation());
+        assertTrue(copy.isCompactingPassingChecks());
+        copy.pass("another.passed");
+        assertEquals(2, copy.getAllValidationChecksForCurrentLocation().size());
+    }
+
+    @Test
+    public void should_keep_serialized_form_of_checks_per_location() throws ClassNotFoundException {
+        ObjectStreamClass serializedForm = ObjectStreamClass.lookup(Class.forName(ValidationResult.class.getName() + "$ResultsPerLocation"));
+
+        assertEquals(1L, serializedForm.getSerialVersionUID());
+        assertEquals(List.class, serializedForm.getField("passed").getType());
+    }
+
+    @Test
+    public void should_forward_checks_to_listener_without_storing_them() {
+        final List<ValidationCheck> received = new ArrayList<>();
+        result = ValidationResult.withLocation(FIRST_LOCATION).streamingTo((location, check) -> received.add(check));
+        assertTrue(result.isStreaming());
+
+        result.rejectIfFalse(true, "passed");
+        result.warnIfFalse(false, "warning");
+        assertFalse(result.hasFailures());
+        assertTrue(result.hasWarnings());
+
+        result.setLocation(SECOND_LOCATION);
+        result.rejectIfFalse(false, "error", "param");
+
+        assertEquals(Arrays.asList(
+                new ValidationCheck(ValidationStatus.PASSED, "passed"),
+                new ValidationCheck(ValidationStatus.WARNING, "warning"),
+                new ValidationCheck(ValidationStatus.ERROR, "error", "param")
+        ), received);
+        assertTrue(result.getValidatedLocations().isEmpty());
+        assertTrue(result.hasFailures());
+        assertTrue(result.hasFailureForCurrentLocation());
+        assertFalse(result.hasFailureForLocation(FIRST_LOCATION));
+
+        result.setLocation(FIRST_LOCATION);
+        assertFalse(result.hasFailureForCurrentLocation());
+        result.setLocation(SECOND_LOCATION);
+        assertTrue("going back to a location keeps its streamed failures", result.hasFailureForCurrentLocation());
+    }
+
+    @Test
+    public void should_not_serialize_streaming_state() {
+        result = ValidationResult.withLocation(FIRST_LOCATION).streamingTo((location, check) -> { });
+        result.error("error");
+
+        ValidationResult copy = (ValidationResult) SerializationUtils.clone(result);
+
+        assertFalse(copy.isStreaming());
+        assertFalse(copy.hasFailures());
+        copy.error("error");
+        assertTrue(copy.hasFailureForCurrentLocation());
+    }
+
+    @Test
+    public void should_keep_serialized_form_compatible() {
+        assertEquals(2L, ObjectStreamClass.lookup(ValidationResult.class).getSerialVersionUID());
+    }
+
+    @Test
+    public void should_forward_added_checks_to_listener() {
+        final List<ValidationCheck> received = new ArrayList<>();
+        result = ValidationResult.withLocation(FIRST_LOCATION).withoutStoringPassingChecks().streamingTo((location, check) -> received.add(check));
+        ValidationResult source = ValidationResult.withLocation(SECOND_LOCATION);
+        source.pass("passed");
+        source.error("error");
+
+        result.addAll(source);
+
+        assertEquals(Collections.singletonList(new ValidationCheck(ValidationStatus.ERROR, "error")), received);
+        assertTrue(result.hasFailureForLocation(SECOND_LOCATION));
+        assertTrue(ValidationResult.withLocation(FIRST_LOCATION).addAll(result).hasFailureForLocation(SECOND_LOCATION));
+        assertFalse(ValidationResult.withLocation(FIRST_LOCATION).addAll(result).hasFailureForCurrentLocation());
+    }
 }
@@ -39,8 +39,10 @@ import net.ripe.rpki.commons.crypto.util.PregeneratedKeyPairFactory;
 import net.ripe.rpki.commons.crypto.x509cert.X509CertificateInformationAccessDescriptor;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificate;
 import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateBuilder;
+import net.ripe.rpki.commons.crypto.x509cert.X509ResourceCertificateTest;
 import net.ripe.rpki.commons.util.UTC;
 import net.ripe.rpki.commons.validation.objectvalidators.ResourceCertificateLocator;
+import net.ripe.rpki.commons.validation.objectvalidators.ValidatedChainCache;
 import net.ripe.rpki.commons.validation.objectvalidators.X509ResourceCertificateBottomUpValidator;
 import org.apache.commons.lang.Validate;
 import org.bouncycastle.asn1.x509.KeyUsage;
@@ -52,6 +54,7 @@ import java.math.BigInteger;
 import java.net.URI;
 import java.security.KeyPair;
 import java.security.cert.CRLException;
+import java.util.Collections;
 import java.util.EnumSet;
 
 import static net.ripe.rpki.commons.crypto.x509cert.X509CertificateBuilderHelper.*;
@@ -238,6 +241,98 @@ public class X509ResourceCertificateBottomUpValidatorTest {
         assertTrue(ValidationString.CRL_SIGNATURE_VALID.equals(validationResult.getFailures(CHILD_VALIDATION_LOCATION).get(0).getKey()));
     }
 
+    @Test
+    public void shouldStopAtCachedAncestor() {
+        grandchild = createSecondChildBuilder().build();
+        ValidatedChainCache chainCache = ValidatedChainCache.create();
+        ResourceCertificateLocatorImpl locator = new ResourceCertificateLocatorImpl();
+
+        X509ResourceCertificateBottomUpValidator validator = new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), locator, Collections.singleton(root), chainCache);
+        validator.validate("grandchild", grandchild);
+        assertFalse(validator.getValidationResult().hasFailures());
+        assertEquals(2, chainCache.size());
+        assertEquals(2, locator.findParentCount);
+
+        validator = new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), locator, Collections.singleton(root), chainCache);
+        validator.validate("grandchild", grandchild);
+        assertFalse(validator.getValidationResult().hasFailures());
+        assertEquals(1, chainCache.getHitCount());
+        assertEquals(2, chainCache.getMissCount());
+    }
+
+    @Test
+    public void shouldNotUseCachedAncestorOfOtherTrustAnchor() {
+        grandchild = createSecondChildBuilder().build();
+        ValidatedChainCache chainCache = ValidatedChainCache.create();
+        new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(root), chainCache)
+                .validate("grandchild", grandchild);
+
+        X509ResourceCertificate otherTrustAnchor = X509ResourceCertificateTest.createSelfSignedCaResourceCertificate();
+        X509ResourceCertificateBottomUpValidator validator = new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(otherTrustAnchor), chainCache);
+        validator.validate("grandchild", grandchild);
+
+        assertEquals(0, chainCache.getHitCount());
+        assertTrue(validator.getValidationResult().hasFailures());
+    }
+
+    @Test
+    public void shouldNotUseCachedAncestorThatWasReissued() {
+        grandchild = createSecondChildBuilder().build();
+        ValidatedChainCache chainCache = ValidatedChainCache.create();
+        new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(root), chainCache)
+                .validate("grandchild", grandchild);
+
+        child = createChildBuilder().withInheritedResourceTypes(EnumSet.noneOf(IpResourceType.class)).withResources(IpResourceSet.parse("10.0.0.0/8")).build();
+        X509ResourceCertificateBottomUpValidator validator = new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(root), chainCache);
+        validator.validate("grandchild", grandchild);
+
+        assertEquals("only the trust anchor is still current", 1, chainCache.getHitCount());
+        assertEquals(ValidationString.RESOURCE_RANGE, validator.getValidationResult().getFailures(GRAND_CHILD_VALIDATION_LOCATION).get(0).getKey());
+    }
+
+    @Test
+    public void shouldNotUseCachedAncestorWithNewCrl() {
+        grandchild = createSecondChildBuilder().build();
+        ValidatedChainCache chainCache = ValidatedChainCache.create();
+        new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(root), chainCache)
+                .validate("grandchild", grandchild);
+
+        childCrl = getChildCRL().withNumber(BigInteger.valueOf(2)).addEntry(SECOND_CHILD_SERIAL_NUMBER, VALIDITY_PERIOD.getNotValidBefore().plusDays(2)).build(FIRST_CHILD_KEY_PAIR.getPrivate());
+        X509ResourceCertificateBottomUpValidator validator = new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(root), chainCache);
+        validator.validate("grandchild", grandchild);
+
+        assertEquals("only the trust anchor is still current", 1, chainCache.getHitCount());
+        assertEquals(ValidationString.CERT_NOT_REVOKED, validator.getValidationResult().getFailures(GRAND_CHILD_VALIDATION_LOCATION).get(0).getKey());
+    }
+
+    @Test
+    public void shouldValidateLeafAgainstCachedAncestor() {
+        grandchild = createSecondChildBuilder().build();
+        ValidatedChainCache chainCache = ValidatedChainCache.create();
+        new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(root), chainCache)
+                .validate("grandchild", grandchild);
+
+        grandchild = createSecondChildBuilder().withResources(INVALID_CHILD_RESOURCE_SET).build();
+        X509ResourceCertificateBottomUpValidator validator = new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(root), chainCache);
+        validator.validate("grandchild", grandchild);
+
+        assertEquals(1, chainCache.getHitCount());
+        assertTrue(validator.getValidationResult().hasFailureForLocation(GRAND_CHILD_VALIDATION_LOCATION));
+        assertEquals(ValidationString.RESOURCE_RANGE, validator.getValidationResult().getFailures(GRAND_CHILD_VALIDATION_LOCATION).get(0).getKey());
+    }
+
+    @Test
+    public void shouldNotCacheChainWithFailures() {
+        grandchild = createSecondChildBuilder().withResources(INVALID_CHILD_RESOURCE_SET).build();
+        ValidatedChainCache chainCache = ValidatedChainCache.create();
+
+        X509ResourceCertificateBottomUpValidator validator = new X509ResourceCertificateBottomUpValidator(ValidationOptions.strictValidation(), ValidationResult.withLocation("grandchild"), new ResourceCertificateLocatorImpl(), Collections.singleton(root), chainCache);
+        validator.validate("grandchild", grandchild);
+
+        assertTrue(validator.getValidationResult().hasFailures());
+        assertEquals(0, chainCache.size());
+    }
+
     private X509ResourceCertificate getRootResourceCertificate() {
         X509ResourceCertificateBuilder builder = new X509ResourceCertificateBuilder();
 
@@ -329,9 +424,12 @@ public class X509ResourceCertificateBottomUpValidatorTest {
 
     private class ResourceCertificateLocatorImpl implements ResourceCertificateLocator {
 
+        private int findParentCount;
+
         @Override
         public CertificateRepositoryObjectFile<X509ResourceCertificate> findParent(X509ResourceCertificate certificate) {
             Validate.isTrue(!certificate.isRoot());
+            findParentCount++;
             if (certificate.equals(grandchild)) {
                 return new CertificateRepositoryObjectFile<X509ResourceCertificate>(X509ResourceCertificate.class, "child", child.getEncoded());
             } else if (certificate.equals(child)) {
@@ -0,0 +1,116 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpAddress;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResource;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.ipresource.etree.NestedIntervalMap;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AllowedRouteIndexTest {
+
+    private static final Asn AS1 = Asn.parse("AS1");
+    private static final Asn AS2 = Asn.parse("AS2");
+    private static final Asn AS_MAX = new Asn(Asn.ASN32_MAX_VALUE);
+
+    private final RouteOriginValidationPolicy policy = new RouteOriginValidationPolicy();
+
+    @Test
+    public void shouldBeUnknownWhenEmpty() {
+        AllowedRouteIndex subject = AllowedRouteIndex.of(Collections.<AllowedRoute>emptyList());
+        assertEquals(0, subject.size());
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(new AnnouncedRoute(AS1, IpRange.parse("10.0.0.0/8"))));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(new AnnouncedRoute(AS1, IpRange.parse("::/0"))));
+    }
+
+    @Test
+    public void shouldValidateAgainstCoveringRoutes() {
+        AllowedRouteIndex subject = AllowedRouteIndex.of(Arrays.asList(
+                new AllowedRoute(AS1, IpRange.parse("10.0.0.0/8"), 16),
+                new AllowedRoute(AS2, IpRange.parse("10.1.0.0/16"), 24),
+                new AllowedRoute(AS_MAX, IpRange.parse("2001:db8::/32"), 128),
+                new AllowedRoute(AS1, IpRange.parse("0.0.0.0/0"), 0)
+        ));
+
+        assertEquals(4, subject.size());
+        assertEquals(RouteValidityState.VALID, subject.validate(new AnnouncedRoute(AS1, IpRange.parse("10.2.0.0/16"))));
+        assertEquals(RouteValidityState.INVALID_LENGTH, subject.validate(new AnnouncedRoute(AS1, IpRange.parse("10.2.0.0/24"))));
+        assertEquals(RouteValidityState.VALID, subject.validate(new AnnouncedRoute(AS2, IpRange.parse("10.1.2.0/24"))));
+        assertEquals(RouteValidityState.INVALID_ASN, subject.validate(new AnnouncedRoute(AS2, IpRange.parse("10.2.0.0/16"))));
+        assertEquals(RouteValidityState.VALID, subject.validate(new AnnouncedRoute(AS1, IpRange.parse("0.0.0.0/0"))));
+        assertEquals(RouteValidityState.INVALID_LENGTH, subject.validate(new AnnouncedRoute(AS1, IpRange.parse("11.0.0.0/8"))));
+        assertEquals(RouteValidityState.VALID, subject.validate(new AnnouncedRoute(AS_MAX, IpRange.parse("2001:db8::1/128"))));
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(new AnnouncedRoute(AS_MAX, IpRange.parse("2001:db9::/32"))));
+    }
+
+    @Test
+    public void shouldGiveSameResultsAsNestedIntervalMap() {
+        Random random = new Random(42);
+        for (IpResourceType type : Arrays.asList(IpResourceType.IPv4, IpResourceType.IPv6)) {
+            List<AllowedRoute> allowedRoutes = new ArrayList<>();
+            for (int i = 0; i < 2000; ++i) {
+                IpRange prefix = randomPrefix(random, type);
+                int maximumLength = prefix.getPrefixLength() + random.nextInt(type.getBitSize() - prefix.getPrefixLength() + 1);
+                allowedRoutes.add(new AllowedRoute(new Asn(random.nextInt(4)), prefix, maximumLength));
+            }
+            NestedIntervalMap<IpResource, List<AllowedRoute>> map = RouteOriginValidationPolicy.allowedRoutesToNestedIntervalMap(allowedRoutes);
+            AllowedRouteIndex subject = AllowedRouteIndex.of(allowedRoutes);
+
+            for (int i = 0; i < 5000; ++i) {
+                AnnouncedRoute route = new AnnouncedRoute(new Asn(random.nextInt(4)), randomPrefix(random, type));
+                assertEquals(route.toString(), policy.validateAnnouncedRoute(map, route), subject.validate(route));
+            }
+        }
+    }
+
+    /**
+     * Random prefixes below a short common prefix, so prefixes frequently overlap.
+     */
+    static IpRange randomPrefix(Random random, IpResourceType type) {
+        int bits = type.getBitSize();
+        int length = 4 + random.nextInt(Math.min(bits, 32) - 3);
+        BigInteger base = type == IpResourceType.IPv4 ? BigInteger.valueOf(10L << 24) : new BigInteger("20010db8", 16).shiftLeft(96);
+        BigInteger value = base.or(new BigInteger(24, random).shiftLeft(bits - 32));
+        IpAddress address = (IpAddress) type.fromBigInteger(value);
+        return IpRange.prefix(address.lowerBoundForPrefix(length), length);
+    }
+}
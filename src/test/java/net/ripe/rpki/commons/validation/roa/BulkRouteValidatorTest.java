@@ -0,0 +1,117 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpResourceType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BulkRouteValidatorTest {
+
+    private AllowedRouteIndex index;
+
+    private List<AnnouncedRoute> announcedRoutes;
+
+    private byte[] expected;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(7);
+        List<AllowedRoute> allowedRoutes = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            IpResourceType type = i % 2 == 0 ? IpResourceType.IPv4 : IpResourceType.IPv6;
+            allowedRoutes.add(new AllowedRoute(new Asn(random.nextInt(4)), AllowedRouteIndexTest.randomPrefix(random, type), type.getBitSize()));
+        }
+        index = AllowedRouteIndex.of(allowedRoutes);
+
+        announcedRoutes = new ArrayList<>();
+        for (int i = 0; i < 10000; ++i) {
+            IpResourceType type = random.nextBoolean() ? IpResourceType.IPv4 : IpResourceType.IPv6;
+            announcedRoutes.add(new AnnouncedRoute(new Asn(random.nextInt(4)), AllowedRouteIndexTest.randomPrefix(random, type)));
+        }
+        expected = new byte[announcedRoutes.size()];
+        for (int i = 0; i < expected.length; ++i) {
+            expected[i] = (byte) index.validate(announcedRoutes.get(i)).ordinal();
+        }
+    }
+
+    @Test
+    public void shouldReturnStatesInInputOrder() {
+        BulkRouteValidator subject = BulkRouteValidator.of(index).withBatchSize(100);
+
+        assertArrayEquals(expected, subject.validate(announcedRoutes));
+        assertArrayEquals(expected, subject.validate(new LinkedList<>(announcedRoutes)));
+        assertArrayEquals(expected, subject.validate(announcedRoutes.stream()));
+        assertArrayEquals(expected, subject.validate(announcedRoutes.spliterator()));
+        assertArrayEquals(expected, subject.validate(announcedRoutes.toArray(new AnnouncedRoute[0])));
+    }
+
+    @Test
+    public void shouldConvertOrdinalsToStates() {
+        for (RouteValidityState state : RouteValidityState.values()) {
+            assertEquals(state, BulkRouteValidator.stateOf((byte) state.ordinal()));
+        }
+    }
+
+    @Test
+    public void shouldStreamStatesToConsumer() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            BulkRouteValidator subject = BulkRouteValidator.of(index).withPool(pool);
+            Map<AnnouncedRoute, RouteValidityState> states = new ConcurrentHashMap<>();
+
+            subject.validate(announcedRoutes.stream(), states::put);
+
+            for (int i = 0; i < expected.length; ++i) {
+                assertEquals(BulkRouteValidator.stateOf(expected[i]), states.get(announcedRoutes.get(i)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldValidateEmptyInput() {
+        BulkRouteValidator subject = BulkRouteValidator.of(index);
+
+        assertEquals(0, subject.validate(new ArrayList<AnnouncedRoute>()).length);
+    }
+}
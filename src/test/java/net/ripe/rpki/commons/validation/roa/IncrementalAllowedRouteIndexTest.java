@@ -0,0 +1,122 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceType;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCms;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaCmsTest;
+import net.ripe.rpki.commons.crypto.cms.roa.RoaPrefix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static net.ripe.rpki.commons.crypto.cms.roa.RoaCmsParserTest.TEST_ASN;
+import static org.junit.Assert.*;
+
+public class IncrementalAllowedRouteIndexTest {
+
+    private static final AnnouncedRoute ANNOUNCED = new AnnouncedRoute(TEST_ASN, IpRange.parse("10.0.0.0/16"));
+
+    @Test
+    public void shouldAddAndRemoveRoas() {
+        RoaCms roa = RoaCmsTest.createRoaCms(Collections.singletonList(new RoaPrefix(IpRange.parse("10.0.0.0/8"), 16)));
+        IncrementalAllowedRouteIndex subject = IncrementalAllowedRouteIndex.create();
+
+        subject.add(roa);
+        assertEquals(1, subject.snapshot().size());
+        assertEquals(RouteValidityState.VALID, subject.validate(ANNOUNCED));
+
+        subject.remove(roa);
+        assertEquals(0, subject.snapshot().size());
+        assertEquals(RouteValidityState.UNKNOWN, subject.validate(ANNOUNCED));
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotsTakenBeforeUpdate() {
+        AllowedRoute allowed = new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/8"), 16);
+        AllowedRoute other = new AllowedRoute(Asn.parse("AS1"), IpRange.parse("10.0.0.0/16"), 16);
+        IncrementalAllowedRouteIndex subject = IncrementalAllowedRouteIndex.of(Collections.singletonList(allowed));
+        AllowedRouteSnapshot before = subject.snapshot();
+
+        AllowedRouteSnapshot after = subject.update(Collections.singletonList(allowed), Collections.singletonList(other));
+
+        assertSame(after, subject.snapshot());
+        assertEquals(RouteValidityState.VALID, before.validate(ANNOUNCED));
+        assertEquals(Collections.singletonList(allowed), before.getAllowedRoutes());
+        assertEquals(RouteValidityState.INVALID_ASN, after.validate(ANNOUNCED));
+        assertEquals(Collections.singletonList(other), after.getAllowedRoutes());
+    }
+
+    @Test
+    public void shouldIgnoreRemovalOfUnknownRoute() {
+        AllowedRouteSnapshot subject = AllowedRouteSnapshot.of(Collections.singletonList(new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/8"), 16)));
+
+        assertSame(subject, subject.withoutAllowedRoutes(Arrays.asList(
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/8"), 24),
+                new AllowedRoute(TEST_ASN, IpRange.parse("10.0.0.0/9"), 16))));
+    }
+
+    @Test
+    public void shouldGiveSameResultsAsRebuiltIndex() {
+        Random random = new Random(11);
+        for (IpResourceType type : Arrays.asList(IpResourceType.IPv4, IpResourceType.IPv6)) {
+            List<AllowedRoute> expected = new ArrayList<>();
+            IncrementalAllowedRouteIndex subject = IncrementalAllowedRouteIndex.create();
+            for (int round = 0; round < 20; ++round) {
+                List<AllowedRoute> removed = new ArrayList<>();
+                for (int i = 0; i < 50 && !expected.isEmpty(); ++i) {
+                    removed.add(expected.remove(random.nextInt(expected.size())));
+                }
+                List<AllowedRoute> added = new ArrayList<>();
+                for (int i = 0; i < 100; ++i) {
+                    IpRange prefix = AllowedRouteIndexTest.randomPrefix(random, type);
+                    added.add(new AllowedRoute(new Asn(random.nextInt(4)), prefix, Math.min(prefix.getPrefixLength() + random.nextInt(4), type.getBitSize())));
+                }
+                expected.addAll(added);
+                subject.update(removed, added);
+
+                AllowedRouteSnapshot snapshot = subject.snapshot();
+                AllowedRouteIndex rebuilt = AllowedRouteIndex.of(expected);
+                assertEquals(expected.size(), snapshot.size());
+                assertEquals(expected.size(), snapshot.getAllowedRoutes().size());
+                for (int i = 0; i < 500; ++i) {
+                    AnnouncedRoute route = new AnnouncedRoute(new Asn(random.nextInt(4)), AllowedRouteIndexTest.randomPrefix(random, type));
+                    assertEquals(route.toString(), rebuilt.validate(route), snapshot.validate(route));
+                }
+            }
+        }
+    }
+}
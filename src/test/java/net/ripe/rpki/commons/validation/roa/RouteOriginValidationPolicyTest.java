@@ -145,6 +145,10 @@ public class RouteOriginValidationPolicyTest {
         AnnouncedRoute route = new AnnouncedRoute(routeAsn, IpRange.parse(routePrefix));
         RouteValidityState validityStateFound = subject.validateAnnouncedRoute(rtrPrefixes, route);
         assertEquals(expectedResult, validityStateFound);
+
+        RoaCms roa = RoaCmsTest.createRoaCms(Collections.singletonList(new RoaPrefix(IpRange.parse(roaIpPrefix), roaMaxLength)));
+        AllowedRouteIndex index = RouteOriginValidationPolicy.allowedRoutesToIndex(AllowedRoute.fromRoas(Collections.singletonList(roa)));
+        assertEquals(expectedResult, subject.validateAnnouncedRoute(index, route));
     }
 
 }
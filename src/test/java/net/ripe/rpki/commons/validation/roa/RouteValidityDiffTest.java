@@ -0,0 +1,127 @@
+/**
+ * The BSD License
+ *
+ * Copyright (c) 2010-2020 RIPE NCC
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   - Neither the name of the RIPE NCC nor the names of its contributors may be
+ *     used to endorse or promote products derived from this software without
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.ripe.rpki.commons.validation.roa;
+
+import net.ripe.ipresource.Asn;
+import net.ripe.ipresource.IpRange;
+import net.ripe.ipresource.IpResourceType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RouteValidityDiffTest {
+
+    private static final Asn AS1 = Asn.parse("AS1");
+    private static final Asn AS2 = Asn.parse("AS2");
+
+    @Test
+    public void shouldReportChangedAnnouncementsOnly() {
+        AnnouncedRoute covered = new AnnouncedRoute(AS1, IpRange.parse("10.1.0.0/16"));
+        AnnouncedRoute elsewhere = new AnnouncedRoute(AS1, IpRange.parse("11.0.0.0/16"));
+        AnnouncedRoute otherOrigin = new AnnouncedRoute(AS2, IpRange.parse("10.1.0.0/16"));
+        RouteValidityDiff subject = RouteValidityDiff.of(Arrays.asList(covered, elsewhere, otherOrigin));
+        AllowedRouteSnapshot before = AllowedRouteSnapshot.of(Collections.singletonList(new AllowedRoute(AS2, IpRange.parse("10.0.0.0/8"), 16)));
+
+        List<RouteValidityChange> changes = subject.changes(before,
+                Collections.<AllowedRoute>emptyList(),
+                Collections.singletonList(new AllowedRoute(AS1, IpRange.parse("10.1.0.0/16"), 16)));
+
+        assertEquals(Collections.singletonList(new RouteValidityChange(covered, RouteValidityState.INVALID_ASN, RouteValidityState.VALID)), changes);
+    }
+
+    @Test
+    public void shouldNotFindChangedPrefixesForSameSnapshot() {
+        AllowedRouteSnapshot snapshot = AllowedRouteSnapshot.of(Collections.singletonList(new AllowedRoute(AS1, IpRange.parse("10.0.0.0/8"), 16)));
+
+        assertTrue(snapshot.changedPrefixes(snapshot).isEmpty());
+        assertTrue(snapshot.changedPrefixes(snapshot.withAllowedRoutes(Collections.<AllowedRoute>emptyList())).isEmpty());
+    }
+
+    @Test
+    public void shouldOnlyReportPrefixesOfChangedSubtree() {
+        AllowedRouteSnapshot before = AllowedRouteSnapshot.of(Arrays.asList(
+                new AllowedRoute(AS1, IpRange.parse("10.0.0.0/8"), 8),
+                new AllowedRoute(AS1, IpRange.parse("10.1.0.0/16"), 16),
+                new AllowedRoute(AS1, IpRange.parse("10.2.0.0/16"), 16)));
+
+        AllowedRouteSnapshot after = before.withAllowedRoutes(Collections.singletonList(new AllowedRoute(AS2, IpRange.parse("10.2.3.0/24"), 24)));
+
+        assertEquals(Collections.singletonList(IpRange.parse("10.2.3.0/24")), after.changedPrefixes(before));
+    }
+
+    @Test
+    public void shouldGiveSameChangesAsFullRevalidation() {
+        Random random = new Random(3);
+        for (IpResourceType type : Arrays.asList(IpResourceType.IPv4, IpResourceType.IPv6)) {
+            List<AnnouncedRoute> announcedRoutes = new ArrayList<>();
+            for (int i = 0; i < 3000; ++i) {
+                announcedRoutes.add(new AnnouncedRoute(new Asn(random.nextInt(4)), AllowedRouteIndexTest.randomPrefix(random, type)));
+            }
+            RouteValidityDiff subject = RouteValidityDiff.of(announcedRoutes);
+
+            List<AllowedRoute> current = new ArrayList<>();
+            AllowedRouteSnapshot before = AllowedRouteSnapshot.empty();
+            for (int round = 0; round < 20; ++round) {
+                List<AllowedRoute> removed = new ArrayList<>();
+                for (int i = 0; i < 20 && !current.isEmpty(); ++i) {
+                    removed.add(current.remove(random.nextInt(current.size())));
+                }
+                List<AllowedRoute> added = new ArrayList<>();
+                for (int i = 0; i < 40; ++i) {
+                    IpRange prefix = AllowedRouteIndexTest.randomPrefix(random, type);
+                    added.add(new AllowedRoute(new Asn(random.nextInt(4)), prefix, Math.min(prefix.getPrefixLength() + random.nextInt(4), type.getBitSize())));
+                }
+                current.addAll(added);
+
+                List<RouteValidityChange> changes = subject.changes(before, removed, added);
+                AllowedRouteSnapshot after = before.withoutAllowedRoutes(removed).withAllowedRoutes(added);
+
+                List<RouteValidityChange> expected = new ArrayList<>();
+                for (AnnouncedRoute route : new HashSet<>(announcedRoutes)) {
+                    RouteValidityState oldState = before.validate(route);
+                    RouteValidityState newState = after.validate(route);
+                    if (oldState != newState) {
+                        expected.add(new RouteValidityChange(route, oldState, newState));
+                    }
+                }
+                assertEquals(new HashSet<>(expected), new HashSet<>(changes));
+                assertEquals(changes.size(), new HashSet<>(changes).size());
+                before = after;
+            }
+        }
+    }
+}